@@ -0,0 +1,445 @@
+package sudoku;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Solves many sudokus on a pool of threads.
+ *
+ * Every thread keeps one solver per dimension and reuses it for all the
+ * sudokus it is given, so nothing but the puzzles and the solutions is
+ * allocated per sudoku. Puzzles are read from the input on a thread of
+ * its own, and only as results are consumed, with at most a few per thread
+ * in flight, so an input of any size is solved in bounded memory.
+ *
+ * A BatchSolver owns its threads and should be closed when done with.
+ */
+public class BatchSolver implements AutoCloseable {
+    // puzzles in flight per thread
+    private static final int WINDOW_PER_THREAD = 4;
+    // wakes up Results when its input is done
+    private static final Future<Result> WAKE = new FutureTask<Result>(() -> null);
+
+    private final int threads;
+    private final ExecutorService executor;
+    // reads the input of every Results
+    private final ExecutorService inputs;
+    private final IntFunction<? extends SudokuSolver> engines;
+    private final ThreadLocal<Map<Integer, SudokuSolver>> local =
+        ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * The order in which results are returned.
+     */
+    public enum Order {
+        /**
+         * The order of the puzzles in the input.
+         */
+        INPUT,
+
+        /**
+         * The order in which the puzzles are solved.
+         */
+        COMPLETION
+    }
+
+    /**
+     * The outcome of one puzzle.
+     */
+    public static final class Result {
+        private final long index;
+        private final int[][] puzzle;
+        private final int[][] solution;
+        private final SolveStats stats;
+
+        /**
+         * Constructs a new Result.
+         *
+         * @param index
+         *        the position of the puzzle in the input
+         * @param puzzle
+         *        the puzzle
+         * @param solution
+         *        the solution, or null if there is none
+         * @param stats
+         *        what the search did
+         */
+        Result(long index, int[][] puzzle, int[][] solution, SolveStats stats) {
+            this.index = index;
+            this.puzzle = puzzle;
+            this.solution = solution;
+            this.stats = stats;
+        }
+
+        /**
+         * Gets the position of the puzzle in the input, starting at 0.
+         *
+         * @return the index
+         */
+        public long getIndex() {
+            return index;
+        }
+
+        /**
+         * Gets the puzzle, as it was given.
+         *
+         * @return the puzzle
+         */
+        public int[][] getPuzzle() {
+            return puzzle;
+        }
+
+        /**
+         * Gets the solution.
+         *
+         * @return the solution, or null if the puzzle could not be solved
+         */
+        public int[][] getSolution() {
+            return solution;
+        }
+
+        /**
+         * Checks if the puzzle was solved.
+         *
+         * @return true if there is a solution, false otherwise
+         */
+        public boolean isSolved() {
+            return solution != null;
+        }
+
+        /**
+         * Gets what the search for the solution did.
+         *
+         * @return the statistics, SolveStats.NONE if the puzzle did not fit
+         *         the solver
+         */
+        public SolveStats getStats() {
+            return stats;
+        }
+    }
+
+    /**
+     * Constructs a new BatchSolver.
+     *
+     * @param threads
+     *        the number of threads to solve on
+     * @param engines
+     *        creates the solver of a dimension, called once per thread
+     *        and dimension
+     * @throws IllegalArgumentException
+     *        if threads is less than 1
+     */
+    private BatchSolver(int threads, IntFunction<? extends SudokuSolver> engines) {
+        if (threads < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.threads = threads;
+        this.engines = engines;
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "sudoku-batch");
+            t.setDaemon(true);
+            return t;
+        });
+        this.inputs = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "sudoku-batch-input");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Returns a BatchSolver with sensible defaults: one thread per
+     * processor, solving with DancingLinksSolver.
+     *
+     * @return the BatchSolver
+     */
+    public static BatchSolver ofDefaults() {
+        return ofThreads(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns a BatchSolver with a custom number of threads, solving with
+     * DancingLinksSolver.
+     *
+     * @param threads
+     *        the number of threads
+     * @return the BatchSolver
+     * @throws IllegalArgumentException
+     *         if threads is less than 1
+     */
+    public static BatchSolver ofThreads(int threads) {
+        return new BatchSolver(threads, DancingLinksSolver::ofDimension);
+    }
+
+    /**
+     * Returns a BatchSolver with a custom number of threads and engine.
+     *
+     * @param threads
+     *        the number of threads
+     * @param engines
+     *        creates the solver of a dimension, for example
+     *        BitmaskSolver::ofDimension
+     * @return the BatchSolver
+     * @throws IllegalArgumentException
+     *         if threads is less than 1
+     */
+    public static BatchSolver of(int threads, IntFunction<? extends SudokuSolver> engines) {
+        return new BatchSolver(threads, engines);
+    }
+
+    /**
+     * Gets the number of threads.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Solves the puzzles, in the input order.
+     *
+     * @param puzzles
+     *        the puzzles
+     * @return the results
+     * @see #solve(Iterable, Order)
+     */
+    public Stream<Result> solve(Iterable<int[][]> puzzles) {
+        return solve(puzzles, Order.INPUT);
+    }
+
+    /**
+     * Solves the puzzles.
+     *
+     * The returned stream is lazy: puzzles are taken from the input and
+     * solved only as results are consumed, a few per thread ahead. The
+     * input is read on a thread of its own, so a result that is ready is
+     * handed out even while the input blocks, and an exception it throws
+     * is thrown after the results of the puzzles before it. Closing the
+     * stream stops reading the input. A puzzle that breaks the rules, has
+     * no solution or does not fit a solver (bad dimension or numbers)
+     * gives a result without solution.
+     *
+     * @param puzzles
+     *        the puzzles
+     * @param order
+     *        the order of the results
+     * @return the results
+     */
+    public Stream<Result> solve(Iterable<int[][]> puzzles, Order order) {
+        Results results = results(puzzles.iterator(), order);
+        int characteristics = Spliterator.NONNULL | (order == Order.INPUT ? Spliterator.ORDERED : 0);
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(results, characteristics), false)
+            .onClose(results::cancel);
+    }
+
+    /**
+     * Solves the puzzles.
+     *
+     * @param puzzles
+     *        the puzzles
+     * @param order
+     *        the order of the results
+     * @return the results
+     * @see #solve(Iterable, Order)
+     */
+    public Stream<Result> solve(Stream<int[][]> puzzles, Order order) {
+        return solve(puzzles::iterator, order);
+    }
+
+    /**
+     * Solves the puzzles, as an iterator that also tells when it is about
+     * to wait on the input.
+     *
+     * @param puzzles
+     *        the puzzles
+     * @param order
+     *        the order of the results
+     * @return the results
+     * @see #solve(Iterable, Order)
+     */
+    Results results(Iterator<int[][]> puzzles, Order order) {
+        return new Results(puzzles, order);
+    }
+
+    /**
+     * Solves one puzzle with the solver of the current thread.
+     *
+     * @param index
+     *        the position of the puzzle in the input
+     * @param puzzle
+     *        the puzzle
+     * @return the result
+     */
+    private Result solveOne(long index, int[][] puzzle) {
+        SudokuSolver s;
+        try {
+            s = local.get().computeIfAbsent(puzzle.length, engines::apply);
+            s.setMatrix(puzzle);
+        } catch (IllegalArgumentException e) {
+            return new Result(index, puzzle, null, SolveStats.NONE);
+        }
+        boolean solved = s.solve();
+        return new Result(index, puzzle, solved ? s.getMatrix() : null, s.getStats());
+    }
+
+    /**
+     * Stops the threads. Puzzles in flight are abandoned and the inputs are
+     * no longer read.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        inputs.shutdownNow();
+    }
+
+    /**
+     * Hands out results while keeping a window of puzzles in flight.
+     *
+     * The input is read on a thread of its own, which takes a puzzle only
+     * when there is room in the window, so a result that is ready is
+     * handed out even while the input blocks, as stdin does until the next
+     * sudoku is typed in.
+     */
+    final class Results implements Iterator<Result> {
+        private final Iterator<int[][]> input;
+        private final Order order;
+        private final Semaphore window = new Semaphore(threads * WINDOW_PER_THREAD);
+        // the futures, in the order of the results, and WAKE markers
+        private final BlockingQueue<Future<Result>> queue = new LinkedBlockingQueue<>();
+        private Future<?> reader;
+        private Future<Result> next;
+        private long handed;
+        // written by the reader only
+        private volatile long submitted;
+        // the number of puzzles, -1 until the input is done
+        private volatile long total = -1;
+        private volatile RuntimeException failure;
+
+        Results(Iterator<int[][]> input, Order order) {
+            this.input = input;
+            this.order = order;
+        }
+
+        /**
+         * Reads the input and submits its puzzles, until the input is done
+         * or the reader is cancelled.
+         */
+        private void read() {
+            long index = 0;
+            try {
+                while (true) {
+                    window.acquire();
+                    if (!input.hasNext()) {
+                        break;
+                    }
+                    int[][] puzzle = input.next();
+                    long i = index++;
+                    FutureTask<Result> task;
+                    if (order == Order.INPUT) {
+                        task = new FutureTask<Result>(() -> solveOne(i, puzzle));
+                        queue.add(task);
+                    } else {
+                        task = new FutureTask<Result>(() -> solveOne(i, puzzle)) {
+                            @Override
+                            protected void done() {
+                                queue.add(this);
+                            }
+                        };
+                    }
+                    submitted = index;
+                    executor.execute(task);
+                }
+            } catch (InterruptedException e) {
+                // cancelled
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                total = index;
+                queue.add(WAKE);
+            }
+        }
+
+        /**
+         * Checks if every puzzle taken from the input so far has been
+         * handed out, so that the next result waits on the input.
+         *
+         * @return true if no puzzle is in flight
+         */
+        boolean isDrained() {
+            return next == null && submitted == handed;
+        }
+
+        /**
+         * Stops reading the input.
+         */
+        void cancel() {
+            if (reader != null) {
+                reader.cancel(true);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (reader == null) {
+                reader = inputs.submit(this::read);
+            }
+            try {
+                while (next == null) {
+                    if (handed == total) {
+                        RuntimeException e = failure;
+                        failure = null;
+                        if (e != null) {
+                            throw e;
+                        }
+                        return false;
+                    }
+                    Future<Result> future = queue.take();
+                    if (future != WAKE) {
+                        next = future;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return true;
+        }
+
+        @Override
+        public Result next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Future<Result> future = next;
+            next = null;
+            // the future is out of the window even if its task failed
+            handed++;
+            window.release();
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,1033 @@
+package sudoku;
+
+import java.util.Arrays;
+
+/**
+ * A SudokuSolver that keeps track of used numbers with bitmasks.
+ *
+ * Every row, column and box (a "unit") has a mask where bit (n - 1) is set
+ * if the number n is placed somewhere in the unit. The masks are updated
+ * incrementally by setNumber and clearNumber, which makes placement checks
+ * O(1) and free of allocation.
+ *
+ * Next to the masks, the number of occurrences of each number in each unit
+ * is counted. This is what allows isValid and isAllValid to give the exact
+ * same answers as Solver even for grids that already break the rules.
+ */
+public class BitmaskSolver implements SudokuSolver {
+    // the search is about to propagate and choose a cell at depth
+    private static final int DESCEND = 0;
+    // the search is about to try the next candidate at depth
+    private static final int BRANCH = 1;
+    // the grid is a solution that has not been reported yet
+    private static final int FOUND = 2;
+    // the grid is a solution that has been reported
+    private static final int SOLUTION = 3;
+    // the search tree is exhausted
+    private static final int DONE = 4;
+
+    // what resume stopped at
+    static final int SOLVED = 1;
+    static final int EXHAUSTED = 0;
+    static final int PAUSED = -1;
+
+    private final int dimension;
+    private final Geometry geometry;
+    private final int[] cells;
+    // units are laid out as [rows..., columns..., boxes...]
+    private final long[] masks;
+    // counts[unit * dimension + (n - 1)] is how many times n occurs in unit
+    private final int[] counts;
+    // dups[unit] is the number of surplus occurrences in unit
+    private final int[] dups;
+    // candidateCounts[i] is the number of candidates of cell i, only kept
+    // up to date when cellOrder is FEWEST_CANDIDATES
+    private final int[] candidateCounts;
+    private CellOrder cellOrder = CellOrder.ROW_MAJOR;
+    // cells filled by the search, in order, so that they can be undone
+    private final int[] trail;
+    private int trailSize;
+    // the state of each level of the search: the trail position before and
+    // after propagation, the cell branched on and its untried candidates
+    private final int[] nodeMark;
+    private final int[] branchMark;
+    private final int[] nodeCell;
+    private final long[] nodeCandidates;
+    private final int[] firstSolution;
+    // where the search is, so that it can be resumed after a solution
+    private int depth;
+    private int from;
+    private int state = DONE;
+    private long branched;
+    private long backtracks;
+    // the optional counters of SolveStats, see SolveStats.ENABLED
+    private int maxDepth;
+    private long candidateChecks;
+    // cells filled in by propagate, counted by the subclasses that propagate
+    long propagated;
+    private long elapsed;
+
+    /**
+     * Constructs a new BitmaskSolver.
+     *
+     * @param dimension
+     *        The (quadratic) dimensions of the matrix.
+     * @throws IllegalArgumentException
+     *        if the dimension is not a square in [1, 64]
+     */
+    BitmaskSolver(int dimension) {
+        if (dimension > Long.SIZE) {
+            throw new IllegalArgumentException();
+        }
+        this.geometry = Geometry.ofDimension(dimension);
+        this.dimension = dimension;
+        this.cells = new int[dimension * dimension];
+        this.masks = new long[3 * dimension];
+        this.counts = new int[3 * dimension * dimension];
+        this.dups = new int[3 * dimension];
+        this.trail = new int[dimension * dimension];
+        this.candidateCounts = new int[dimension * dimension];
+        this.nodeMark = new int[dimension * dimension + 1];
+        this.branchMark = new int[dimension * dimension + 1];
+        this.nodeCell = new int[dimension * dimension + 1];
+        this.nodeCandidates = new long[dimension * dimension + 1];
+        this.firstSolution = new int[dimension * dimension];
+    }
+
+    /**
+     * Returns a BitmaskSolver with sensible defaults.
+     *
+     * @return the BitmaskSolver
+     */
+    public static BitmaskSolver ofDefaults() {
+        return new BitmaskSolver(9);
+    }
+
+    /**
+     * Returns a BitmaskSolver with a custom dimension.
+     *
+     * @param dim
+     *        the dimension
+     * @return the BitmaskSolver
+     * @throws IllegalArgumentException
+     *         if the dimension is not a square in [1, 64]
+     */
+    public static BitmaskSolver ofDimension(int dim) {
+        return new BitmaskSolver(dim);
+    }
+
+    /**
+     * Returns a BitmaskSolver that has its matrix set to nbrs.
+     *
+     * @param nbrs
+     *        the matrix
+     * @return the BitmaskSolver
+     * @throws IllegalArgumentException
+     *         if setMatrix throws it
+     */
+    public static BitmaskSolver ofMatrix(int[][] nbrs) {
+        BitmaskSolver s = new BitmaskSolver(nbrs.length);
+        s.setMatrix(nbrs);
+        return s;
+    }
+
+    /**
+     * Returns the dimension of the grid.
+     *
+     * @return the dimension of the grid
+     */
+    @Override
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Asserts that a row, column and number are within their respective bounds.
+     *
+     * @param r
+     *        the row
+     * @param c
+     *        the column
+     * @param n
+     *        the number
+     * @throws IllegalArgumentException
+     *        if r, c is outside [0, getDimension() - 1]
+     *        or n    is outside [0, getDimension()]
+     */
+    private void assertIsWithinBounds(int r, int c, int n) {
+        if (!(0 <= r && r < dimension &&
+              0 <= c && c < dimension &&
+              0 <= n && n <= dimension)) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Adds the number n to the unit u.
+     *
+     * @param u
+     *        the unit
+     * @param n
+     *        the number, never 0
+     */
+    private void addToUnit(int u, int n) {
+        long bit = 1L << (n - 1);
+        if (counts[u * dimension + n - 1]++ > 0) {
+            dups[u]++;
+        } else if (cellOrder == CellOrder.FEWEST_CANDIDATES) {
+            // n is new to the unit, the cells that could take it no longer can
+            for (int k = 0; k < dimension; k++) {
+                int i = unitCell(u, k);
+                if ((candidates(i) & bit) != 0) {
+                    candidateCounts[i]--;
+                }
+            }
+        }
+        masks[u] |= bit;
+    }
+
+    /**
+     * Removes the number n from the unit u.
+     *
+     * @param u
+     *        the unit
+     * @param n
+     *        the number, never 0
+     */
+    private void removeFromUnit(int u, int n) {
+        long bit = 1L << (n - 1);
+        if (--counts[u * dimension + n - 1] > 0) {
+            dups[u]--;
+        } else {
+            masks[u] &= ~bit;
+            if (cellOrder == CellOrder.FEWEST_CANDIDATES) {
+                // cells not blocked by their other units may take n again
+                for (int k = 0; k < dimension; k++) {
+                    int i = unitCell(u, k);
+                    if ((candidates(i) & bit) != 0) {
+                        candidateCounts[i]++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Recounts the candidates of every cell.
+     */
+    private void recountCandidates() {
+        for (int i = 0; i < cells.length; i++) {
+            candidateCounts[i] = Long.bitCount(candidates(i));
+        }
+    }
+
+    /**
+     * Places the number n in the cell with index i, replacing whatever was there.
+     *
+     * Bounds are NOT checked.
+     *
+     * @param i
+     *        the cell index, r * getDimension() + c
+     * @param n
+     *        the number, or 0 to clear
+     */
+    private void put(int i, int n) {
+        int old = cells[i];
+        if (old == n) {
+            return;
+        }
+        int r = geometry.rowOf(i);
+        int c = geometry.colOf(i);
+        int b = geometry.boxOf(i);
+        if (old != 0) {
+            removeFromUnit(r, old);
+            removeFromUnit(dimension + c, old);
+            removeFromUnit(2 * dimension + b, old);
+        }
+        if (n != 0) {
+            addToUnit(r, n);
+            addToUnit(dimension + c, n);
+            addToUnit(2 * dimension + b, n);
+        }
+        cells[i] = n;
+    }
+
+    /**
+     * Gets a mask with the bits of all numbers in [1, getDimension()] set.
+     *
+     * @return the mask
+     */
+    final long allNumbers() {
+        return -1L >>> (Long.SIZE - dimension);
+    }
+
+    /**
+     * Gets the numbers that are used in unit u.
+     *
+     * Units are numbered rows first, then columns, then boxes, so that
+     * there are 3 * getDimension() units in total.
+     *
+     * @param u
+     *        the unit
+     * @return a mask where bit (n - 1) is set if n is used
+     */
+    final long unitMask(int u) {
+        return masks[u];
+    }
+
+    /**
+     * Gets the index of the k:th cell in unit u.
+     *
+     * @param u
+     *        the unit
+     * @param k
+     *        the position in the unit, in [0, getDimension() - 1]
+     * @return the cell index
+     */
+    final int unitCell(int u, int k) {
+        return geometry.unitCell(u, k);
+    }
+
+    /**
+     * Gets the number of cells in the grid.
+     *
+     * @return the number of cells
+     */
+    final int cellCount() {
+        return cells.length;
+    }
+
+    /**
+     * Gets the number in the cell with index i.
+     *
+     * @param i
+     *        the cell index
+     * @return the number, or 0 if the cell is empty
+     */
+    final int cell(int i) {
+        return cells[i];
+    }
+
+    /**
+     * Gets the numbers that can legally be placed in the cell with index i.
+     *
+     * Bounds are NOT checked.
+     *
+     * @param i
+     *        the cell index
+     * @return a mask where bit (n - 1) is set if n is a candidate
+     */
+    final long candidates(int i) {
+        if (SolveStats.ENABLED) {
+            candidateChecks++;
+        }
+        long used = masks[geometry.rowOf(i)] |
+                    masks[dimension + geometry.colOf(i)] |
+                    masks[2 * dimension + geometry.boxOf(i)];
+        return ~used & allNumbers();
+    }
+
+    /**
+     * Places the number n in the empty cell with index i and records it
+     * on the trail, so that it can be undone.
+     *
+     * @param i
+     *        the cell index
+     * @param n
+     *        the number, never 0
+     */
+    final void assign(int i, int n) {
+        put(i, n);
+        trail[trailSize++] = i;
+    }
+
+    /**
+     * Gets the current position on the trail.
+     *
+     * @return the position, to be given to undo
+     */
+    final int mark() {
+        return trailSize;
+    }
+
+    /**
+     * Clears all cells assigned since mark was called.
+     *
+     * @param mark
+     *        the position returned by mark
+     */
+    final void undo(int mark) {
+        while (trailSize > mark) {
+            put(trail[--trailSize], 0);
+        }
+    }
+
+    /**
+     * Fills in cells whose number is forced by the ones already placed.
+     *
+     * Called at every node of the search before branching. The default
+     * implementation does nothing, subclasses may assign cells and should
+     * return false as soon as they find a cell or unit that cannot be filled.
+     *
+     * @return false if the grid was found to have no solution, true otherwise
+     */
+    boolean propagate() {
+        return true;
+    }
+
+    /**
+     * Chooses the empty cell to branch on next, according to getCellOrder.
+     *
+     * @param from
+     *        the cell index to start looking from in row-major order,
+     *        cells before it are known to be filled
+     * @return the cell index, or -1 if the grid is full
+     */
+    int selectCell(int from) {
+        if (cellOrder == CellOrder.ROW_MAJOR) {
+            for (int i = from; i < cells.length; i++) {
+                if (cells[i] == 0) return i;
+            }
+            return -1;
+        }
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] == 0 && candidateCounts[i] < bestCount) {
+                best = i;
+                bestCount = candidateCounts[i];
+                if (bestCount <= 1) break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the order in which the search visits empty cells.
+     *
+     * @return the cell order
+     */
+    public CellOrder getCellOrder() {
+        return cellOrder;
+    }
+
+    /**
+     * Sets the order in which the search visits empty cells.
+     *
+     * With CellOrder.FEWEST_CANDIDATES the number of candidates of every
+     * cell is kept up to date as numbers are set and cleared, which makes
+     * setNumber and clearNumber somewhat more expensive.
+     *
+     * @param cellOrder
+     *        the cell order
+     */
+    public void setCellOrder(CellOrder cellOrder) {
+        this.cellOrder = cellOrder;
+        if (cellOrder == CellOrder.FEWEST_CANDIDATES) {
+            recountCandidates();
+        }
+    }
+
+    /**
+     * Gets the number of cells filled in by branching during the last solve.
+     *
+     * Cells that were filled in and later cleared again by backtracking are
+     * counted as well, so this is the number of nodes of the search tree.
+     *
+     * @return the number of cells
+     */
+    public long getSearchedCount() {
+        return branched;
+    }
+
+    /**
+     * Gets the number of dead ends met during the last solve.
+     *
+     * @return the number of backtracks
+     */
+    public long getBacktrackCount() {
+        return backtracks;
+    }
+
+    /**
+     * Gets the statistics of the last solve or countSolutions.
+     *
+     * Nodes are cells filled in by branching and candidate checks are
+     * candidate masks computed, including those needed to keep the
+     * candidate counts of FEWEST_CANDIDATES up to date.
+     *
+     * @return the statistics
+     */
+    @Override
+    public SolveStats getStats() {
+        return new SolveStats(branched, backtracks, maxDepth, propagated,
+                              candidateChecks, elapsed);
+    }
+
+    /**
+     * Sets the number nbr at row r, column c.
+     *
+     * @throws IllegalArgumentException
+     *         if r, c is outside [0, getDimension() - 1]
+     *         or nbr  is outside [1, getDimension()]
+     */
+    @Override
+    public void setNumber(int r, int c, int nbr) {
+        if (nbr == 0) {
+            throw new IllegalArgumentException();
+        }
+        assertIsWithinBounds(r, c, nbr);
+        put(r * dimension + c, nbr);
+    }
+
+    /**
+     * Gets the number at row r, column c.
+     *
+     * @return the number
+     * @throws IllegalArgumentException
+     *         if r, c is outside [0, getDimension() - 1]
+     */
+    @Override
+    public int getNumber(int r, int c) {
+        assertIsWithinBounds(r, c, 0);
+        return cells[r * dimension + c];
+    }
+
+    /**
+     * Clears the number at row r, column c.
+     *
+     * @throws IllegalArgumentException
+     *         if r, c is outside [0, getDimension() - 1]
+     */
+    @Override
+    public void clearNumber(int r, int c) {
+        assertIsWithinBounds(r, c, 0);
+        put(r * dimension + c, 0);
+    }
+
+    /**
+     * Checks the number of surplus occurrences in unit u after hypothetically
+     * replacing old with nbr in it.
+     *
+     * @param u
+     *        the unit
+     * @param old
+     *        the number currently in the cell
+     * @param nbr
+     *        the number to try
+     * @return true if the unit would follow the sudoku rules, false otherwise
+     */
+    private boolean isUnitValidWith(int u, int old, int nbr) {
+        int d = dups[u];
+        if (old != 0 && counts[u * dimension + old - 1] > 1) {
+            d--;
+        }
+        if (nbr != 0) {
+            int count = counts[u * dimension + nbr - 1] - (old == nbr ? 1 : 0);
+            if (count > 0) {
+                d++;
+            }
+        }
+        return d == 0;
+    }
+
+    /**
+     * Check sudoku rules for row r, column c after trying to set nbr.
+     *
+     * This gives the same answer as Solver.isValid, that is, it is false if
+     * any of the row, column or box of the position would break the rules,
+     * but without touching the grid.
+     *
+     * @param r
+     *        the row
+     * @param c
+     *        the column
+     * @param nbr
+     *        the number
+     * @return true if all sudoku rules are true for the position
+     *         after number placement, false otherwise
+     * @throws IllegalArgumentException
+     *         if r, c is outside [0, getDimension() - 1]
+     *         or nbr  is outside [1, getDimension()]
+     */
+    @Override
+    public boolean isValid(int r, int c, int nbr) {
+        if (nbr == 0) {
+            throw new IllegalArgumentException();
+        }
+        assertIsWithinBounds(r, c, nbr);
+        int old = cells[r * dimension + c];
+        return isUnitValidWith(r, old, nbr) &&
+               isUnitValidWith(dimension + c, old, nbr) &&
+               isUnitValidWith(2 * dimension + geometry.boxOf(r * dimension + c), old, nbr);
+    }
+
+    /**
+     * Check sudoku rules for the entire matrix.
+     *
+     * @return true if all sudoku rules are true for all positions,
+     *         false otherwise
+     */
+    @Override
+    public boolean isAllValid() {
+        for (int d : dups) {
+            if (d != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Solves the sudoku.
+     *
+     * Equivalent to solve(SolveMode.first()) > 0.
+     *
+     * With CellOrder.ROW_MAJOR the solution found is the same as the one
+     * Solver finds, since numbers are tried in ascending order.
+     *
+     * @return true if a solution was found, false otherwise
+     */
+    @Override
+    public boolean solve() {
+        return solve(SolveMode.first()) > 0;
+    }
+
+    /**
+     * Searches for solutions until mode says to stop.
+     *
+     * If a solution is found, the grid is left holding the first one,
+     * otherwise it is left untouched.
+     *
+     * @param mode
+     *        when to stop searching
+     * @return the number of solutions found, at most mode.getLimit()
+     */
+    @Override
+    public long solve(SolveMode mode) {
+        long start = System.nanoTime();
+        SolveEvent event = SolveEvents.begin(this);
+        long limit = mode.getLimit();
+        long found = 0;
+        if (startSearch()) {
+            found = search(limit, limit > 1);
+            if (found > 0 && limit > 1) {
+                // the search went on past the first solution, bring it back
+                undo(0);
+                for (int i = 0; i < cells.length; i++) {
+                    if (cells[i] == 0) {
+                        put(i, firstSolution[i]);
+                    }
+                }
+            }
+            trailSize = 0;
+            elapsed = System.nanoTime() - start;
+        }
+        SolveEvents.end(event, this, "solve", limit, found,
+                        found > 0 ? "SOLVED" : "UNSOLVABLE");
+        return found;
+    }
+
+    /**
+     * Counts the solutions of the sudoku, up to limit.
+     *
+     * Runs the search of this solver and leaves the grid untouched.
+     *
+     * @param limit
+     *        the number of solutions after which to stop counting
+     * @return the number of solutions, at most limit
+     * @throws IllegalArgumentException
+     *         if limit is less than 1
+     */
+    @Override
+    public int countSolutions(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException();
+        }
+        long start = System.nanoTime();
+        SolveEvent event = SolveEvents.begin(this);
+        long found = 0;
+        if (startSearch()) {
+            found = search(limit, false);
+            undo(0);
+            elapsed = System.nanoTime() - start;
+        }
+        SolveEvents.end(event, this, "count", limit, found,
+                        found == limit ? "FOUND" : "EXHAUSTED");
+        return (int) found;
+    }
+
+    /**
+     * Searches for the first solution until budget runs out.
+     *
+     * The search runs in slices of Budget.CHECK_INTERVAL nodes, or fewer
+     * if fewer are left, and checks the budget between slices, so the node
+     * budget is never passed. An aborted search undoes everything it
+     * assigned.
+     *
+     * @param budget
+     *        when to give up
+     * @return SOLVED, UNSOLVABLE or ABORTED, with the statistics
+     */
+    @Override
+    public SolveResult solve(Budget budget) {
+        long start = System.nanoTime();
+        SolveEvent event = SolveEvents.begin(this);
+        int result = EXHAUSTED;
+        if (startSearch()) {
+            // the propagation at the root takes no node, so it is done
+            // whatever the budget, and only a search with branches left
+            // is aborted
+            result = resume(0);
+            while (!budget.isExceeded(branched, start) && result == PAUSED) {
+                result = resume(budget.slice(branched));
+            }
+            if (result == PAUSED) {
+                undo(0);
+                state = DONE;
+            }
+            trailSize = 0;
+            elapsed = System.nanoTime() - start;
+        }
+        SolveResult.Status status = result == SOLVED ? SolveResult.Status.SOLVED :
+                                    result == PAUSED ? SolveResult.Status.ABORTED :
+                                                       SolveResult.Status.UNSOLVABLE;
+        SolveEvents.end(event, this, "solve", 1, result == SOLVED ? 1 : 0, status.name());
+        return new SolveResult(status, getStats());
+    }
+
+    /**
+     * Searches for solutions, starting with propagate at the root.
+     *
+     * If the search stops at the limit, the grid holds the last solution
+     * found, otherwise everything assigned is undone.
+     *
+     * @param limit
+     *        the number of solutions after which to stop
+     * @param keepFirst
+     *        if the first solution should be copied to firstSolution
+     * @return the number of solutions found
+     */
+    private long search(long limit, boolean keepFirst) {
+        long found = 0;
+        while (found < limit && nextSolution()) {
+            if (found++ == 0 && keepFirst) {
+                System.arraycopy(cells, 0, firstSolution, 0, cells.length);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Prepares a new search of the current grid, to be run by nextSolution.
+     *
+     * @return false if the grid breaks the rules, true otherwise
+     */
+    final boolean startSearch() {
+        branched = 0;
+        backtracks = 0;
+        maxDepth = 0;
+        candidateChecks = 0;
+        propagated = 0;
+        elapsed = 0;
+        trailSize = 0;
+        depth = 0;
+        from = 0;
+        state = isAllValid() ? DESCEND : DONE;
+        return state != DONE;
+    }
+
+    /**
+     * Prepares a new search of the current grid that only branches on the
+     * given candidates of cell i at the root.
+     *
+     * The grid is expected to be propagated already, as it is not
+     * propagated again at the root.
+     *
+     * @param i
+     *        the cell index to branch on
+     * @param cand
+     *        the candidates to try in the cell
+     */
+    final void startSearch(int i, long cand) {
+        if (startSearch()) {
+            nodeMark[0] = 0;
+            branchMark[0] = 0;
+            nodeCell[0] = i;
+            nodeCandidates[0] = cand & candidates(i);
+            state = BRANCH;
+        }
+    }
+
+    /**
+     * Runs the search until the grid holds the next solution.
+     *
+     * @return true if a solution was found, false if the search is
+     *         exhausted, in which case everything assigned is undone
+     */
+    final boolean nextSolution() {
+        return resume(Long.MAX_VALUE) == SOLVED;
+    }
+
+    /**
+     * Runs the search until the grid holds the next solution or nodes more
+     * cells have been filled in by branching, whichever comes first.
+     *
+     * The search is a loop with its state in preallocated arrays, one entry
+     * per level, instead of one recursive call per level. Between calls it
+     * stays where it stopped, so a paused search can be split or resumed.
+     *
+     * @param nodes
+     *        the number of branches after which to pause
+     * @return SOLVED if a solution was found, EXHAUSTED if the search is
+     *         exhausted, in which case everything assigned is undone, or
+     *         PAUSED if the search was paused
+     */
+    final int resume(long nodes) {
+        long pauseAt = nodes > Long.MAX_VALUE - branched ? Long.MAX_VALUE : branched + nodes;
+        while (true) {
+            switch (state) {
+                case DESCEND:
+                    descend();
+                    break;
+                case BRANCH:
+                    if (branched >= pauseAt && nodeCandidates[depth] != 0) {
+                        return PAUSED;
+                    }
+                    branch();
+                    break;
+                case FOUND:
+                    state = SOLUTION;
+                    return SOLVED;
+                case SOLUTION:
+                    // a solution is no dead end, but there is nothing left here
+                    undo(nodeMark[depth]);
+                    if (depth == 0) {
+                        state = DONE;
+                    } else {
+                        depth--;
+                        state = BRANCH;
+                    }
+                    break;
+                default:
+                    return EXHAUSTED;
+            }
+        }
+    }
+
+    /**
+     * Propagates and chooses the cell to branch on at the current depth.
+     */
+    private void descend() {
+        int mark = mark();
+        nodeMark[depth] = mark;
+        if (propagate()) {
+            int i = selectCell(from);
+            if (i < 0) {
+                state = FOUND;
+                return;
+            }
+            nodeCell[depth] = i;
+            nodeCandidates[depth] = candidates(i);
+            branchMark[depth] = mark();
+        } else {
+            undo(mark);
+            nodeCandidates[depth] = 0;
+        }
+        state = BRANCH;
+    }
+
+    /**
+     * Tries the next candidate at the current depth, or goes back to the
+     * previous depth if there is none.
+     */
+    private void branch() {
+        long cand = nodeCandidates[depth];
+        if (cand == 0) {
+            // dead end, go back to the previous level
+            undo(nodeMark[depth]);
+            backtracks++;
+            if (depth == 0) {
+                state = DONE;
+            } else {
+                depth--;
+            }
+            return;
+        }
+        long bit = cand & -cand;
+        nodeCandidates[depth] = cand ^ bit;
+        int i = nodeCell[depth];
+        undo(branchMark[depth]);
+        assign(i, Long.numberOfTrailingZeros(bit) + 1);
+        branched++;
+        depth++;
+        if (SolveStats.ENABLED && depth > maxDepth) {
+            maxDepth = depth;
+        }
+        from = i + 1;
+        state = DESCEND;
+    }
+
+    /**
+     * Hands over part of the untried branches closest to the root of the
+     * ongoing search to another solver.
+     *
+     * If the search has not started yet, the root is propagated first. The
+     * branches handed over are removed from this search, so that the two
+     * searches together cover what this one would have covered alone.
+     *
+     * @param into
+     *        the solver to continue the handed over branches, of the same
+     *        dimension, its grid is overwritten
+     * @return false if there was nothing to hand over, true otherwise
+     */
+    final boolean splitInto(BitmaskSolver into) {
+        if (state == DESCEND) {
+            descend();
+        }
+        int last = state == BRANCH ? depth : depth - 1;
+        for (int d = 0; d <= last; d++) {
+            long cand = nodeCandidates[d];
+            int n = Long.bitCount(cand);
+            // at the pending level one candidate must be left for this search
+            if (n == 0 || (d == depth && n == 1)) continue;
+            long given = 0;
+            for (int k = 0; k < (n + (d < depth ? 1 : 0)) / 2; k++) {
+                long high = Long.highestOneBit(cand & ~given);
+                given |= high;
+            }
+            nodeCandidates[d] = cand & ~given;
+            int[] snapshot = cells.clone();
+            for (int t = branchMark[d]; t < trailSize; t++) {
+                snapshot[trail[t]] = 0;
+            }
+            into.setCells(snapshot);
+            into.startSearch(nodeCell[d], given);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates an empty solver of the same kind, dimension and cell order.
+     *
+     * @return the solver
+     */
+    BitmaskSolver newInstance() {
+        BitmaskSolver s = new BitmaskSolver(dimension);
+        s.setCellOrder(cellOrder);
+        return s;
+    }
+
+    /**
+     * Replaces the grid with the numbers in values.
+     *
+     * Bounds are NOT checked.
+     *
+     * @param values
+     *        the numbers, indexed by cell
+     */
+    final void setCells(int[] values) {
+        clear();
+        for (int i = 0; i < cells.length; i++) {
+            put(i, values[i]);
+        }
+    }
+
+    /**
+     * Clears the matrix.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(cells, 0);
+        Arrays.fill(masks, 0);
+        Arrays.fill(counts, 0);
+        Arrays.fill(dups, 0);
+        trailSize = 0;
+        state = DONE;
+        if (cellOrder == CellOrder.FEWEST_CANDIDATES) {
+            recountCandidates();
+        }
+    }
+
+    /**
+     * Gets a copy of the matrix.
+     *
+     * @return the matrix
+     */
+    @Override
+    public int[][] getMatrix() {
+        int[][] matrix = new int[dimension][dimension];
+        for (int r = 0; r < dimension; r++) {
+            System.arraycopy(cells, r * dimension, matrix[r], 0, dimension);
+        }
+        return matrix;
+    }
+
+    /**
+     * Sets the matrix.
+     *
+     * The numbers are copied, later changes to nbrs are not seen by the solver.
+     *
+     * @param nbrs
+     *        the matrix
+     * @throws IllegalArgumentException
+     *         if nbrs does not have the dimension of the solver or
+     *         contains numbers outside [0, getDimension()]
+     */
+    @Override
+    public void setMatrix(int[][] nbrs) {
+        if (nbrs.length != dimension) {
+            throw new IllegalArgumentException();
+        }
+        for (int r = 0; r < dimension; r++) {
+            if (nbrs[r] == null || nbrs[r].length != dimension) {
+                throw new IllegalArgumentException();
+            }
+            for (int c = 0; c < dimension; c++) {
+                assertIsWithinBounds(r, c, nbrs[r][c]);
+            }
+        }
+        clear();
+        for (int r = 0; r < dimension; r++) {
+            for (int c = 0; c < dimension; c++) {
+                put(r * dimension + c, nbrs[r][c]);
+            }
+        }
+    }
+
+    /**
+     * Gets a copy of the grid.
+     *
+     * @return the grid
+     */
+    @Override
+    public Grid getGrid() {
+        Grid grid = Grid.ofDimension(dimension);
+        for (int i = 0; i < cells.length; i++) {
+            grid.set(i, cells[i]);
+        }
+        return grid;
+    }
+
+    /**
+     * Sets the grid. The numbers are copied.
+     *
+     * @param grid
+     *        the grid
+     * @throws IllegalArgumentException
+     *         if grid does not have the dimension of the solver or a number
+     *         is outside [0, getDimension()]
+     */
+    @Override
+    public void setGrid(Grid grid) {
+        if (grid.getDimension() != dimension) {
+            throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < cells.length; i++) {
+            assertIsWithinBounds(0, 0, grid.get(i));
+        }
+        clear();
+        for (int i = 0; i < cells.length; i++) {
+            put(i, grid.get(i));
+        }
+    }
+}
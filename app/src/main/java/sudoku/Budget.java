@@ -0,0 +1,238 @@
+package sudoku;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * How far a search may go before it is aborted: a number of nodes, a
+ * timeout and a cancellation token, each of them optional.
+ *
+ * The timeout counts from the start of every search the budget is used
+ * for. Searches check the budget every CHECK_INTERVAL nodes, so the node
+ * count is exact for the engines that search in slices and may be passed
+ * by up to CHECK_INTERVAL nodes otherwise, and the timeout and the token
+ * are noticed within the time of that many nodes. At every check the
+ * search also reports the number of nodes searched so far to the progress
+ * listener, if there is one.
+ *
+ * Work that takes no node, such as propagation or reading off a grid that
+ * is already full, is done before the first check. So a sudoku solved
+ * without branching comes back solved even with a budget of no nodes, or
+ * one whose time is up.
+ *
+ * A Budget is immutable, the with methods return a copy.
+ */
+public final class Budget {
+    // the number of nodes between checks of the time and the token
+    static final int CHECK_INTERVAL = 1024;
+
+    private static final Budget UNLIMITED = new Budget(Long.MAX_VALUE, -1, null, null);
+
+    private final long nodes;
+    private final long timeoutNanos;
+    private final CancellationToken token;
+    private final LongConsumer progress;
+
+    /**
+     * Constructs a new Budget.
+     *
+     * @param nodes
+     *        the number of nodes, Long.MAX_VALUE for no limit
+     * @param timeoutNanos
+     *        the timeout, -1 for none
+     * @param token
+     *        the cancellation token, or null
+     * @param progress
+     *        the progress listener, or null
+     */
+    private Budget(long nodes, long timeoutNanos, CancellationToken token,
+                   LongConsumer progress) {
+        this.nodes = nodes;
+        this.timeoutNanos = timeoutNanos;
+        this.token = token;
+        this.progress = progress;
+    }
+
+    /**
+     * Returns the Budget that never runs out.
+     *
+     * @return the Budget
+     */
+    public static Budget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Returns a Budget of a number of nodes.
+     *
+     * @param nodes
+     *        the number of nodes
+     * @return the Budget
+     * @throws IllegalArgumentException
+     *         if nodes is negative
+     */
+    public static Budget ofNodes(long nodes) {
+        return UNLIMITED.withNodes(nodes);
+    }
+
+    /**
+     * Returns a Budget of a time.
+     *
+     * @param timeout
+     *        the time
+     * @param unit
+     *        the unit of timeout
+     * @return the Budget
+     * @throws IllegalArgumentException
+     *         if timeout is negative
+     */
+    public static Budget ofTimeout(long timeout, TimeUnit unit) {
+        return UNLIMITED.withTimeout(timeout, unit);
+    }
+
+    /**
+     * Returns a Budget that runs out when token is cancelled.
+     *
+     * @param token
+     *        the cancellation token
+     * @return the Budget
+     */
+    public static Budget ofToken(CancellationToken token) {
+        return UNLIMITED.withToken(token);
+    }
+
+    /**
+     * Returns a copy with another number of nodes.
+     *
+     * @param nodes
+     *        the number of nodes
+     * @return the Budget
+     * @throws IllegalArgumentException
+     *         if nodes is negative
+     */
+    public Budget withNodes(long nodes) {
+        if (nodes < 0) {
+            throw new IllegalArgumentException();
+        }
+        return new Budget(nodes, timeoutNanos, token, progress);
+    }
+
+    /**
+     * Returns a copy with another timeout.
+     *
+     * @param timeout
+     *        the time
+     * @param unit
+     *        the unit of timeout
+     * @return the Budget
+     * @throws IllegalArgumentException
+     *         if timeout is negative
+     */
+    public Budget withTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException();
+        }
+        return new Budget(nodes, unit.toNanos(timeout), token, progress);
+    }
+
+    /**
+     * Returns a copy with another cancellation token.
+     *
+     * @param token
+     *        the cancellation token, or null for none
+     * @return the Budget
+     */
+    public Budget withToken(CancellationToken token) {
+        return new Budget(nodes, timeoutNanos, token, progress);
+    }
+
+    /**
+     * Returns a copy with another progress listener.
+     *
+     * The listener is called with the number of nodes searched so far
+     * every time the search checks the budget, on the searching thread,
+     * so it should be quick. ParallelSolver calls it from all its threads
+     * with the total of all of them.
+     *
+     * @param progress
+     *        the progress listener, or null for none
+     * @return the Budget
+     */
+    public Budget withProgress(LongConsumer progress) {
+        return new Budget(nodes, timeoutNanos, token, progress);
+    }
+
+    /**
+     * Gets the number of nodes.
+     *
+     * @return the number of nodes, Long.MAX_VALUE if there is no limit
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the timeout.
+     *
+     * @return the timeout in nanoseconds, -1 if there is none
+     */
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    /**
+     * Gets the cancellation token.
+     *
+     * @return the token, or null if there is none
+     */
+    public CancellationToken getToken() {
+        return token;
+    }
+
+    /**
+     * Gets the progress listener.
+     *
+     * @return the listener, or null if there is none
+     */
+    public LongConsumer getProgress() {
+        return progress;
+    }
+
+    /**
+     * Checks if the token is cancelled.
+     *
+     * @return true if there is a token and it is cancelled
+     */
+    boolean isCancelled() {
+        return token != null && token.isCancelled();
+    }
+
+    /**
+     * Checks if a search has run out of budget.
+     *
+     * @param searched
+     *        the number of nodes searched
+     * @param start
+     *        the System.nanoTime() at which the search started
+     * @return true if the search should be aborted
+     */
+    boolean isExceeded(long searched, long start) {
+        if (progress != null) {
+            progress.accept(searched);
+        }
+        return searched >= nodes ||
+               isCancelled() ||
+               (timeoutNanos >= 0 && System.nanoTime() - start >= timeoutNanos);
+    }
+
+    /**
+     * Gets the number of nodes a search may run before it checks again.
+     *
+     * @param searched
+     *        the number of nodes searched
+     * @return the number of nodes, at least 1 as long as isExceeded is false
+     */
+    long slice(long searched) {
+        return Math.min(CHECK_INTERVAL, nodes - searched);
+    }
+}
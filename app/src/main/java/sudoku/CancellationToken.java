@@ -0,0 +1,29 @@
+package sudoku;
+
+/**
+ * A flag that tells searches to give up.
+ *
+ * A token is handed to a search in a Budget and may be cancelled from any
+ * thread. The search notices within a few thousand nodes, undoes what it
+ * did to the grid and returns SolveResult.Status.ABORTED. A cancelled token
+ * stays cancelled.
+ */
+public final class CancellationToken {
+    private volatile boolean cancelled;
+
+    /**
+     * Cancels the searches using this token.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks if the token has been cancelled.
+     *
+     * @return true if cancel has been called, false otherwise
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
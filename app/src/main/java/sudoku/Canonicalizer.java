@@ -0,0 +1,1327 @@
+package sudoku;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Finds the canonical form of sudokus: one representative of all the
+ * sudokus that a Symmetry maps into each other, so that two sudokus are
+ * equivalent exactly when their canonical forms are equal.
+ *
+ * The canonical form is the image that is smallest when read cell by cell
+ * in row-major order, with empty cells as 0, among the images of all
+ * symmetries. For every transposition and permutation of the rows and
+ * columns the smallest relabelling is the one that numbers the numbers
+ * 1, 2, ... in the order they are first read, so only the rows and columns
+ * are searched, by a branch and bound that drops every branch as soon as
+ * it reads a cell larger than the smallest image found so far.
+ *
+ * As no number is repeated in a row, the first row of the image holds
+ * empty cells and then 1, 2, ... in every stack, so it only depends on
+ * how many cells of each stack are empty, and the most empty stacks come
+ * first. Only the rows and columns of the grid that are empty in the most
+ * cells, stack by stack, are tried as the first row, all with the same
+ * first row of the image. The columns are then placed while the second row
+ * is read rather than the first, which they all tie: a column is only
+ * tried where it keeps the first row, and when the second row reads a
+ * number of the first one, the column of that number is forced to the
+ * first place left that fits it, which gives it the smallest label it can
+ * have. After the second row all columns are placed and the other rows are
+ * placed one at a time, only those that read the smallest among the rows
+ * left.
+ *
+ * Columns that are empty in both rows are not ordered yet: they go first
+ * in their stack as a block, and every row read later splits the blocks,
+ * into its empty cells, its numbers read before in the order of their
+ * labels and its new numbers, which is the order that reads the smallest.
+ * Of the empty rows of a band only one is tried, as they can be swapped,
+ * and likewise of the empty bands, and of the empty stacks in a block.
+ * This keeps sparse sudokus from trying every order of columns, rows,
+ * bands and stacks that read the same, and an empty grid is its own
+ * canonical form without a search. A grid with a number twice in a row or column,
+ * which breaks all this, is searched column by column along the first row
+ * instead.
+ *
+ * The canonical form can also be hashed, into 64 or 128 bits, to tell
+ * equivalent sudokus apart without keeping their canonical forms.
+ *
+ * A Canonicalizer keeps the state of its search in arrays of its own, so
+ * it allocates nothing but what it returns. It is not thread safe.
+ */
+public final class Canonicalizer {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final int dimension;
+    private final int boxSize;
+    // the band or stack of every row or column, and of dimension, as a
+    // division is slow next to the rest of the search
+    private final int[] boxOf;
+    // the grid and its transpose, row-major
+    private final int[][] sources;
+    // the one being searched
+    private int[] source;
+    private boolean transposed;
+    // the smallest image so far, cell by cell, of which the first known
+    // cells are read so far
+    private final int[] best;
+    private int known;
+    // the smallest reading of every row of the image among the rows
+    // tried, and of every place of its second row among the columns
+    private final int[] smallest;
+    private final int[] secondValues;
+    // a row of the image as read by reading, the labels of a block, and
+    // the labels reading gives the numbers new to the row with stamp
+    private final int[] line;
+    private final int[] sorted;
+    private final int[] fresh;
+    private final int[] stamps;
+    private int stamp;
+    // the rows that read the smallest as row r
+    private final int[][] tiedRows;
+    // the rows tried as the first row, as t * dimension + row for the
+    // transpose t, and their empty cells per stack, most first
+    private final int[] tops;
+    private final int[] topBlanks;
+    private final int[] blanks;
+    // if a row, as t * dimension + row, is empty, and likewise a band, as
+    // t * boxSize + band, which for t is a stack of the other transpose
+    private final boolean[] emptyRows;
+    private final boolean[] emptyBands;
+    private final int[] rowOf;
+    private final int[] bandOf;
+    private final boolean[] rowUsed;
+    private final boolean[] bandUsed;
+    // colAt[p] is the column at place p of the image and posOf[col] the
+    // place of column col, -1 if not placed, and likewise for the stacks
+    private final int[] colAt;
+    private final int[] posOf;
+    private final int[] stackAt;
+    private final int[] outStackOf;
+    // the columns at the places before row r of the image is read, where
+    // a block of places from p to blockEnds[r][p] holds its columns in any
+    // order, as they have read the same so far, and a place of its own
+    // has blockEnds[r][p] == p + 1
+    private final int[][] columns;
+    private final int[][] blockEnds;
+    // of the first row: the empty cells per stack of the grid, the label
+    // at every place of the image, 0 at an empty one, and the column of
+    // every number, -1 if it is not in the first row
+    private final int[] stackBlanks;
+    private final int[] rankAt;
+    private final int[] firstCol;
+    // label[n] is what n becomes, 0 if it has not been read yet
+    private final int[] label;
+    private int nextLabel;
+    // what has been labelled and placed, to be undone in reverse
+    private final int[] labelTrail;
+    private int labelCount;
+    private final int[] placeTrail;
+    private int placeCount;
+    private final int[] stackTrail;
+    private int stackCount;
+    // the symmetry of best
+    private boolean bestTransposed;
+    private final int[] bestRows;
+    private final int[] bestCols;
+    private final int[] bestLabel;
+    // the hash of best, by hash()
+    private long hashHigh;
+    private long hashLow;
+    // the budget of the search, null for none, when it started, the calls
+    // since it was last checked and if it has run out
+    private Budget budget;
+    private long start;
+    private int calls;
+    private boolean exceeded;
+
+    /**
+     * Constructs a new Canonicalizer.
+     *
+     * @param dimension
+     *        the dimension of the sudokus
+     * @throws IllegalArgumentException
+     *        if the dimension is not a positive square
+     */
+    private Canonicalizer(int dimension) {
+        this.dimension = dimension;
+        this.boxSize = Geometry.ofDimension(dimension).getBoxSize();
+        this.boxOf = new int[dimension + 1];
+        for (int i = 0; i <= dimension; i++) {
+            boxOf[i] = i / boxSize;
+        }
+        this.sources = new int[2][dimension * dimension];
+        this.best = new int[dimension * dimension];
+        this.smallest = new int[dimension * dimension];
+        this.secondValues = new int[dimension * dimension];
+        this.line = new int[dimension];
+        this.sorted = new int[boxSize];
+        this.fresh = new int[dimension + 1];
+        this.stamps = new int[dimension + 1];
+        this.tiedRows = new int[dimension][dimension];
+        this.tops = new int[2 * dimension];
+        this.topBlanks = new int[boxSize];
+        this.blanks = new int[boxSize];
+        this.emptyRows = new boolean[2 * dimension];
+        this.emptyBands = new boolean[2 * boxSize];
+        this.rowOf = new int[dimension];
+        this.bandOf = new int[boxSize];
+        this.rowUsed = new boolean[dimension];
+        this.bandUsed = new boolean[boxSize];
+        this.colAt = new int[dimension];
+        this.posOf = new int[dimension];
+        this.stackAt = new int[boxSize];
+        this.outStackOf = new int[boxSize];
+        this.columns = new int[dimension + 1][dimension];
+        this.blockEnds = new int[dimension + 1][dimension];
+        this.stackBlanks = new int[boxSize];
+        this.rankAt = new int[dimension];
+        this.firstCol = new int[dimension + 1];
+        this.label = new int[dimension + 1];
+        this.labelTrail = new int[dimension];
+        this.placeTrail = new int[dimension];
+        this.stackTrail = new int[boxSize];
+        this.bestRows = new int[dimension];
+        this.bestCols = new int[dimension];
+        this.bestLabel = new int[dimension + 1];
+        Arrays.fill(colAt, -1);
+        Arrays.fill(posOf, -1);
+        Arrays.fill(stackAt, -1);
+        Arrays.fill(outStackOf, -1);
+    }
+
+    /**
+     * Returns a Canonicalizer of sudokus of a dimension.
+     *
+     * @param dim
+     *        the dimension
+     * @return the Canonicalizer
+     * @throws IllegalArgumentException
+     *         if the dimension is not a positive square
+     */
+    public static Canonicalizer ofDimension(int dim) {
+        return new Canonicalizer(dim);
+    }
+
+    /**
+     * Gets the dimension of the sudokus.
+     *
+     * @return the dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Finds a symmetry that maps a grid to its canonical form. If the grid
+     * has symmetries of its own, several symmetries do, and which one is
+     * returned is unspecified.
+     *
+     * @param grid
+     *        the grid
+     * @return the symmetry, whose apply(grid) is the canonical form
+     * @throws IllegalArgumentException
+     *         if grid does not have the dimension of the canonicalizer or
+     *         holds a number larger than it
+     */
+    public Symmetry canonicalize(Grid grid) {
+        load(grid);
+        search();
+        return symmetry();
+    }
+
+    /**
+     * Finds a symmetry that maps a grid to its canonical form, unless the
+     * budget runs out first.
+     *
+     * The time and the token of the budget are checked every
+     * Budget.CHECK_INTERVAL steps of the search; its nodes, which are
+     * those of a solver, are not.
+     *
+     * @param grid
+     *        the grid
+     * @param budget
+     *        when to give up
+     * @param start
+     *        the System.nanoTime() that the timeout of budget counts from
+     * @return the symmetry, or null if the budget ran out
+     * @throws IllegalArgumentException
+     *         if grid does not have the dimension of the canonicalizer or
+     *         holds a number larger than it
+     */
+    Symmetry canonicalize(Grid grid, Budget budget, long start) {
+        load(grid);
+        this.budget = budget.withNodes(Long.MAX_VALUE).withProgress(null);
+        this.start = start;
+        calls = 0;
+        exceeded = false;
+        try {
+            search();
+        } finally {
+            this.budget = null;
+        }
+        return exceeded ? null : symmetry();
+    }
+
+    /**
+     * Finds a symmetry that maps a matrix, as given by getMatrix of a
+     * solver, to its canonical form.
+     *
+     * @param nbrs
+     *        the matrix
+     * @return the symmetry, whose apply(Grid.ofMatrix(nbrs)) is the
+     *         canonical form
+     * @throws IllegalArgumentException
+     *         if nbrs does not have the dimension of the canonicalizer or
+     *         holds a number outside [0, dimension]
+     * @see #canonicalize(Grid)
+     */
+    public Symmetry canonicalize(int[][] nbrs) {
+        load(nbrs);
+        search();
+        return symmetry();
+    }
+
+    /**
+     * Finds the canonical form of a grid.
+     *
+     * @param grid
+     *        the grid
+     * @return the canonical form, a new Grid
+     * @throws IllegalArgumentException
+     *         if grid does not have the dimension of the canonicalizer or
+     *         holds a number larger than it
+     */
+    public Grid canonicalForm(Grid grid) {
+        load(grid);
+        search();
+        Grid form = Grid.ofDimension(dimension);
+        for (int i = 0; i < best.length; i++) {
+            form.set(i, best[i]);
+        }
+        return form;
+    }
+
+    /**
+     * Hashes the canonical form of a grid into 64 bits, so that equivalent
+     * grids have the same hash. The hash is the most significant half of
+     * hash128.
+     *
+     * @param grid
+     *        the grid
+     * @return the hash
+     * @throws IllegalArgumentException
+     *         if grid does not have the dimension of the canonicalizer or
+     *         holds a number larger than it
+     */
+    public long hash64(Grid grid) {
+        load(grid);
+        search();
+        hash();
+        return hashHigh;
+    }
+
+    /**
+     * Hashes the canonical form of a matrix into 64 bits.
+     *
+     * @param nbrs
+     *        the matrix
+     * @return the hash
+     * @throws IllegalArgumentException
+     *         if nbrs does not have the dimension of the canonicalizer or
+     *         holds a number outside [0, dimension]
+     * @see #hash64(Grid)
+     */
+    public long hash64(int[][] nbrs) {
+        load(nbrs);
+        search();
+        hash();
+        return hashHigh;
+    }
+
+    /**
+     * Hashes the canonical form of a grid into 128 bits, so that equivalent
+     * grids have the same hash and others, for all practical purposes,
+     * never do. The bits are returned as a UUID, which compares, hashes
+     * and prints them; they are not a UUID of any version.
+     *
+     * The cells are hashed 16 bits each with the mixing of MurmurHash3
+     * x64 128, seeded by the dimension.
+     *
+     * @param grid
+     *        the grid
+     * @return the hash
+     * @throws IllegalArgumentException
+     *         if grid does not have the dimension of the canonicalizer or
+     *         holds a number larger than it
+     */
+    public UUID hash128(Grid grid) {
+        load(grid);
+        search();
+        hash();
+        return new UUID(hashHigh, hashLow);
+    }
+
+    /**
+     * Hashes the canonical form of a matrix into 128 bits.
+     *
+     * @param nbrs
+     *        the matrix
+     * @return the hash
+     * @throws IllegalArgumentException
+     *         if nbrs does not have the dimension of the canonicalizer or
+     *         holds a number outside [0, dimension]
+     * @see #hash128(Grid)
+     */
+    public UUID hash128(int[][] nbrs) {
+        load(nbrs);
+        search();
+        hash();
+        return new UUID(hashHigh, hashLow);
+    }
+
+    /**
+     * Copies a grid and its transpose into sources.
+     */
+    private void load(Grid grid) {
+        if (grid.getDimension() != dimension) {
+            throw new IllegalArgumentException();
+        }
+        int[] rows = sources[0];
+        int[] cols = sources[1];
+        for (int r = 0; r < dimension; r++) {
+            for (int c = 0; c < dimension; c++) {
+                int n = grid.get(r, c);
+                if (n > dimension) {
+                    throw new IllegalArgumentException();
+                }
+                rows[r * dimension + c] = n;
+                cols[c * dimension + r] = n;
+            }
+        }
+    }
+
+    /**
+     * Copies a matrix and its transpose into sources.
+     */
+    private void load(int[][] nbrs) {
+        if (nbrs.length != dimension) {
+            throw new IllegalArgumentException();
+        }
+        int[] rows = sources[0];
+        int[] cols = sources[1];
+        for (int r = 0; r < dimension; r++) {
+            if (nbrs[r].length != dimension) {
+                throw new IllegalArgumentException();
+            }
+            for (int c = 0; c < dimension; c++) {
+                int n = nbrs[r][c];
+                if (n < 0 || n > dimension) {
+                    throw new IllegalArgumentException();
+                }
+                rows[r * dimension + c] = n;
+                cols[c * dimension + r] = n;
+            }
+        }
+    }
+
+    /**
+     * Searches for the smallest image of the grid in sources, leaving it
+     * in best and its symmetry in bestTransposed, bestRows, bestCols and
+     * bestLabel.
+     */
+    private void search() {
+        known = 0;
+        boolean blank = true;
+        for (int t = 0; t < 2; t++) {
+            Arrays.fill(emptyBands, t * boxSize, (t + 1) * boxSize, true);
+            for (int row = 0; row < dimension; row++) {
+                boolean empty = true;
+                for (int c = 0; c < dimension && empty; c++) {
+                    empty = sources[t][row * dimension + c] == 0;
+                }
+                emptyRows[t * dimension + row] = empty;
+                emptyBands[t * boxSize + boxOf[row]] &= empty;
+                blank &= empty;
+            }
+        }
+        if (blank) {
+            // an empty grid is its own canonical form
+            Arrays.fill(best, 0);
+            bestTransposed = false;
+            for (int i = 0; i < dimension; i++) {
+                bestRows[i] = i;
+                bestCols[i] = i;
+            }
+            Arrays.fill(bestLabel, 0);
+            return;
+        }
+        if (dimension == 1 || repeats(sources[0]) || repeats(sources[1])) {
+            for (int t = 0; t < 2; t++) {
+                transposed = t == 1;
+                source = sources[t];
+                nextLabel = 1;
+                searchPlain();
+            }
+            return;
+        }
+
+        int count = 0;
+        for (int t = 0; t < 2; t++) {
+            transposed = t == 1;
+            for (int row = 0; row < dimension; row++) {
+                if (twin(row) || twinBand(row)) {
+                    // it starts the same search as the empty row it is
+                    // swapped with
+                    continue;
+                }
+                countBlanks(sources[t], row);
+                int cmp = count == 0 ? 1 : compareBlanks();
+                if (cmp > 0) {
+                    System.arraycopy(blanks, 0, topBlanks, 0, boxSize);
+                    count = 0;
+                }
+                if (cmp >= 0) {
+                    tops[count++] = t * dimension + row;
+                }
+            }
+        }
+        // the first row of the image, the same for all of them
+        int rank = 0;
+        for (int p = 0; p < dimension; p++) {
+            rankAt[p] = p % boxSize < topBlanks[boxOf[p]] ? 0 : ++rank;
+            best[p] = rankAt[p];
+        }
+        known = dimension;
+        for (int k = 0; k < count; k++) {
+            transposed = tops[k] >= dimension;
+            source = sources[transposed ? 1 : 0];
+            searchTop(tops[k] % dimension);
+        }
+    }
+
+    /**
+     * Checks if a number is repeated in a row of a grid.
+     */
+    private boolean repeats(int[] grid) {
+        for (int r = 0; r < dimension; r++) {
+            nextStamp();
+            for (int c = 0; c < dimension; c++) {
+                int n = grid[r * dimension + c];
+                if (n != 0) {
+                    if (stamps[n] == stamp) {
+                        return true;
+                    }
+                    stamps[n] = stamp;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves on to a new stamp, clearing the stamps once it wraps around so
+     * that none is ever taken for the current one.
+     */
+    private void nextStamp() {
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Counts the empty cells per stack of a row into blanks, most first.
+     */
+    private void countBlanks(int[] grid, int row) {
+        Arrays.fill(blanks, 0);
+        for (int c = 0; c < dimension; c++) {
+            if (grid[row * dimension + c] == 0) {
+                blanks[boxOf[c]]++;
+            }
+        }
+        for (int i = 1; i < boxSize; i++) {
+            int b = blanks[i];
+            int j = i;
+            while (j > 0 && blanks[j - 1] < b) {
+                blanks[j] = blanks[j - 1];
+                j--;
+            }
+            blanks[j] = b;
+        }
+    }
+
+    /**
+     * Compares blanks to topBlanks.
+     *
+     * @return more than 0 if blanks makes a smaller first row, 0 if the
+     *         same and less than 0 if a larger one
+     */
+    private int compareBlanks() {
+        for (int s = 0; s < boxSize; s++) {
+            if (blanks[s] != topBlanks[s]) {
+                return blanks[s] - topBlanks[s];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Tries a row of source as the first row of the image, with every row
+     * of its band as the second.
+     */
+    private void searchTop(int row) {
+        Arrays.fill(stackBlanks, 0);
+        Arrays.fill(firstCol, -1);
+        int numbers = 0;
+        for (int col = 0; col < dimension; col++) {
+            int n = source[row * dimension + col];
+            if (n == 0) {
+                stackBlanks[boxOf[col]]++;
+            } else {
+                firstCol[n] = col;
+                numbers++;
+            }
+        }
+        nextLabel = numbers + 1;
+        int band = boxOf[row];
+        rowUsed[row] = true;
+        bandUsed[band] = true;
+        bandOf[0] = band;
+        rowOf[0] = row;
+        for (int k = 0; k < boxSize; k++) {
+            int second = band * boxSize + k;
+            if (!rowUsed[second] && !twin(second)) {
+                rowUsed[second] = true;
+                rowOf[1] = second;
+                searchSecond(0);
+                rowUsed[second] = false;
+            }
+        }
+        rowUsed[row] = false;
+        bandUsed[band] = false;
+    }
+
+    /**
+     * Reads place p of the second row of the image, placing a column there
+     * if none is forced to it, and the places after it, and then the other
+     * rows.
+     */
+    private void searchSecond(int p) {
+        if (isExceeded()) {
+            return;
+        }
+        int labels = labelCount;
+        int next = nextLabel;
+        int places = placeCount;
+        int stacks = stackCount;
+        // the places a column is forced to are read without a choice
+        while (p < dimension && colAt[p] >= 0) {
+            if (!compare(dimension + p, second(colAt[p]))) {
+                undo(labels, next, places, stacks);
+                return;
+            }
+            p++;
+        }
+        if (p == dimension) {
+            endSecond();
+            undo(labels, next, places, stacks);
+            return;
+        }
+        searchFree(p);
+        undo(labels, next, places, stacks);
+    }
+
+    /**
+     * Makes the columns empty in both rows a block at the start of their
+     * stack, once the second row is read, and places the other rows.
+     */
+    private void endSecond() {
+        int[] cols = columns[2];
+        int[] ends = blockEnds[2];
+        int second = rowOf[1] * dimension;
+        for (int c = 0; c < dimension; c++) {
+            cols[c] = colAt[c];
+            ends[c] = c + 1;
+        }
+        for (int start = 0; start < dimension; start += boxSize) {
+            int end = start;
+            while (end < start + boxSize && rankAt[end] == 0 && source[second + colAt[end]] == 0) {
+                end++;
+            }
+            if (end > start + 1) {
+                ends[start] = end;
+            }
+        }
+        searchRow(2);
+    }
+
+    /**
+     * Places a column at place p of the second row of the image, to which
+     * none is forced, and reads on.
+     */
+    private void searchFree(int p) {
+        int labels = labelCount;
+        int next = nextLabel;
+        int places = placeCount;
+        int stacks = stackCount;
+        int image = boxOf[p];
+        boolean empty = rankAt[p] == 0;
+        int first = rowOf[0] * dimension;
+        int second = rowOf[1] * dimension;
+        int from = stackAt[image] >= 0 ? stackAt[image] * boxSize : 0;
+        int to = stackAt[image] >= 0 ? from + boxSize : dimension;
+        // only the columns that read the smallest are tried, as any other
+        // is beaten by them right here
+        int[] values = secondValues;
+        int base = p * dimension;
+        int min = Integer.MAX_VALUE;
+        for (int col = from; col < to; col++) {
+            values[base + col] = Integer.MAX_VALUE;
+            if (posOf[col] >= 0 || (source[first + col] == 0) != empty || !fits(boxOf[col], image)) {
+                continue;
+            }
+            int v = valueAt(source[second + col], col, p);
+            values[base + col] = v;
+            if (v < min) {
+                min = v;
+            }
+        }
+        if (!compare(dimension + p, min)) {
+            return;
+        }
+        if (min == 0 && empty) {
+            // the columns empty in both rows all go first in their stack,
+            // in any order until another row tells them apart
+            for (int s = boxOf[from]; s < boxOf[to]; s++) {
+                if (twinStack(s)) {
+                    continue;
+                }
+                int q = p;
+                for (int col = s * boxSize; col < (s + 1) * boxSize; col++) {
+                    if (values[base + col] == 0) {
+                        place(col, q++);
+                    }
+                }
+                if (q > p) {
+                    searchSecond(p + 1);
+                    undo(labels, next, places, stacks);
+                }
+            }
+            return;
+        }
+        for (int col = from; col < to; col++) {
+            if (values[base + col] == min) {
+                place(col, p);
+                second(col);
+                searchSecond(p + 1);
+                undo(labels, next, places, stacks);
+            }
+        }
+    }
+
+    /**
+     * Gets what the second row would read at place p with column col
+     * placed there, n being its number, without placing it: what second
+     * would return after place(col, p).
+     */
+    private int valueAt(int n, int col, int p) {
+        if (n == 0 || label[n] != 0) {
+            return label[n];
+        }
+        int first = firstCol[n];
+        if (first < 0) {
+            return nextLabel;
+        }
+        // the first place left that fits the stack of first, with the
+        // stack of col at the stack of p
+        int s = boxOf[first];
+        int own = boxOf[col];
+        int image = boxOf[p];
+        for (int q = 0; ; q++) {
+            if (q == p || colAt[q] >= 0 || rankAt[q] == 0) {
+                continue;
+            }
+            int at = boxOf[q] == image ? own : stackAt[boxOf[q]];
+            if (at >= 0 ? at == s
+                        : s != own && outStackOf[s] < 0 && stackBlanks[s] == topBlanks[boxOf[q]]) {
+                return rankAt[q];
+            }
+        }
+    }
+
+    /**
+     * Checks if stack s of the grid can be stack image of the image, as
+     * it already is or as both are free and empty in as many cells of the
+     * first row.
+     */
+    private boolean fits(int s, int image) {
+        return stackAt[image] == s ||
+               stackAt[image] < 0 && outStackOf[s] < 0 && stackBlanks[s] == topBlanks[image];
+    }
+
+    /**
+     * Places a column at place p, with its stack, and labels its number
+     * of the first row by the place.
+     */
+    private void place(int col, int p) {
+        colAt[p] = col;
+        posOf[col] = p;
+        placeTrail[placeCount++] = p;
+        int image = boxOf[p];
+        if (stackAt[image] < 0) {
+            stackAt[image] = boxOf[col];
+            outStackOf[boxOf[col]] = image;
+            stackTrail[stackCount++] = image;
+        }
+        int n = source[rowOf[0] * dimension + col];
+        if (n != 0) {
+            label[n] = rankAt[p];
+            labelTrail[labelCount++] = n;
+        }
+    }
+
+    /**
+     * Gets the label of the number of a placed column in the second row.
+     * A number of the first row whose column is not placed yet forces it
+     * to the first place left that fits, as any other place would give
+     * the number a larger label. There always is one, as stacks that are
+     * empty in as many cells are only paired with each other.
+     */
+    private int second(int col) {
+        int n = source[rowOf[1] * dimension + col];
+        if (n == 0 || label[n] != 0) {
+            return label[n];
+        }
+        int first = firstCol[n];
+        if (first < 0) {
+            return labelOf(n);
+        }
+        int s = boxOf[first];
+        int p = 0;
+        while (colAt[p] >= 0 || rankAt[p] == 0 || !fits(s, boxOf[p])) {
+            p++;
+        }
+        place(first, p);
+        return label[n];
+    }
+
+    /**
+     * Takes back the labels and places given since the counts were as
+     * given.
+     */
+    private void undo(int labels, int next, int places, int stacks) {
+        while (labelCount > labels) {
+            label[labelTrail[--labelCount]] = 0;
+        }
+        nextLabel = next;
+        while (placeCount > places) {
+            int p = placeTrail[--placeCount];
+            posOf[colAt[p]] = -1;
+            colAt[p] = -1;
+        }
+        while (stackCount > stacks) {
+            int image = stackTrail[--stackCount];
+            outStackOf[stackAt[image]] = -1;
+            stackAt[image] = -1;
+        }
+    }
+
+    /**
+     * Places row r of the image, and the rows after it, once all columns
+     * are placed or in blocks. Only the rows left that read the smallest
+     * are tried, as any other is beaten by them right there, and a row is
+     * only read as far as it reads no larger than the smallest so far,
+     * starting from row r of best.
+     */
+    private void searchRow(int r) {
+        if (isExceeded()) {
+            return;
+        }
+        if (r == dimension) {
+            record();
+            return;
+        }
+        int base = r * dimension;
+        int limit = Math.max(0, Math.min(dimension, known - base));
+        System.arraycopy(best, base, smallest, base, limit);
+        int[] tied = tiedRows[r];
+        int ties = 0;
+        for (int row = 0; row < dimension; row++) {
+            if (!fitsRow(row, r) || twin(row) || twinBand(row)) {
+                continue;
+            }
+            int cmp = reading(row, r, limit);
+            if (cmp > 0) {
+                continue;
+            }
+            if (cmp < 0) {
+                System.arraycopy(line, 0, smallest, base, dimension);
+                limit = dimension;
+                ties = 0;
+            }
+            tied[ties++] = row;
+        }
+        if (ties == 0) {
+            return;
+        }
+        for (int c = 0; c < dimension; c++) {
+            compare(base + c, smallest[base + c]);
+        }
+        int band = boxOf[r];
+        for (int k = 0; k < ties; k++) {
+            int row = tied[k];
+            int labels = labelCount;
+            int next = nextLabel;
+            int b = boxOf[row];
+            boolean start = !bandUsed[b];
+            bandUsed[b] = true;
+            bandOf[band] = b;
+            rowUsed[row] = true;
+            rowOf[r] = row;
+            refine(row, r, 0);
+            rowUsed[row] = false;
+            bandUsed[b] = !start;
+            undo(labels, next, placeCount, stackCount);
+        }
+    }
+
+    /**
+     * Checks if a row of the grid can be row r of the image: a row left in
+     * its band, or in a band left if r starts a band.
+     */
+    private boolean fitsRow(int row, int r) {
+        int b = boxOf[row];
+        return !rowUsed[row] && (boxOf[r] * boxSize == r ? !bandUsed[b] : b == bandOf[boxOf[r]]);
+    }
+
+    /**
+     * Checks if a row is empty, as is a row before it left in its band, so
+     * that the two can be swapped and only that one needs to be tried.
+     */
+    private boolean twin(int row) {
+        int t = transposed ? dimension : 0;
+        if (!emptyRows[t + row]) {
+            return false;
+        }
+        for (int q = boxOf[row] * boxSize; q < row; q++) {
+            if (emptyRows[t + q] && !rowUsed[q]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a row is in an empty band left, as is a band before it, so
+     * that the two bands can be swapped and only that one needs to be
+     * tried.
+     */
+    private boolean twinBand(int row) {
+        int t = transposed ? boxSize : 0;
+        int band = boxOf[row];
+        if (!emptyBands[t + band] || bandUsed[band]) {
+            return false;
+        }
+        for (int b = 0; b < band; b++) {
+            if (emptyBands[t + b] && !bandUsed[b]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if stack s of the grid is empty and not placed yet, as is a
+     * stack before it, so that the two stacks can be swapped and only that one
+     * needs to be tried.
+     */
+    private boolean twinStack(int s) {
+        int t = transposed ? 0 : boxSize;
+        if (!emptyBands[t + s] || outStackOf[s] >= 0) {
+            return false;
+        }
+        for (int q = 0; q < s; q++) {
+            if (emptyBands[t + q] && outStackOf[q] < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads a row of the grid, as row r of the image, into line, with the
+     * columns of every block in the order that reads the smallest: the
+     * empty cells, the numbers read before by their labels and then those
+     * that are new. Nothing is labelled: the numbers new to the row are
+     * told apart by stamp.
+     *
+     * @return less than 0 if the row reads smaller than the first limit
+     *         places of row r of smallest, or the same but limit is less
+     *         than dimension, 0 if the same and more than 0 if larger, in
+     *         which case it is not read any further
+     */
+    private int reading(int row, int r, int limit) {
+        int[] cols = columns[r];
+        int[] ends = blockEnds[r];
+        int[] bound = smallest;
+        int base = r * dimension;
+        int from = row * dimension;
+        int next = nextLabel;
+        int cmp = 0;
+        nextStamp();
+        int c = 0;
+        while (c < dimension) {
+            int end = ends[c];
+            int start = c;
+            if (end == c + 1) {
+                int n = source[from + cols[c]];
+                int v = label[n];
+                if (n != 0 && v == 0) {
+                    if (stamps[n] != stamp) {
+                        stamps[n] = stamp;
+                        fresh[n] = next++;
+                    }
+                    v = fresh[n];
+                }
+                line[c++] = v;
+            } else {
+                int count = 0;
+                int news = 0;
+                for (int k = c; k < end; k++) {
+                    int n = source[from + cols[k]];
+                    if (n == 0) {
+                        line[c++] = 0;
+                    } else if (label[n] == 0) {
+                        news++;
+                    } else {
+                        int j = count++;
+                        while (j > 0 && sorted[j - 1] > label[n]) {
+                            sorted[j] = sorted[j - 1];
+                            j--;
+                        }
+                        sorted[j] = label[n];
+                    }
+                }
+                for (int k = 0; k < count; k++) {
+                    line[c++] = sorted[k];
+                }
+                for (int k = 0; k < news; k++) {
+                    line[c++] = next++;
+                }
+            }
+            if (cmp == 0) {
+                for (int k = start; k < c && k < limit; k++) {
+                    if (line[k] != bound[base + k]) {
+                        if (line[k] > bound[base + k]) {
+                            return 1;
+                        }
+                        cmp = -1;
+                        break;
+                    }
+                }
+            }
+        }
+        return cmp == 0 && limit < dimension ? -1 : cmp;
+    }
+
+    /**
+     * Reads a row of the grid as row r of the image from place c on,
+     * labelling its numbers and splitting the blocks in the order of
+     * reading, and then places the rows after it. Two or more numbers new
+     * to a block are tried in every order, as they read the same but give
+     * the numbers different labels.
+     */
+    private void refine(int row, int r, int c) {
+        int[] cols = columns[r];
+        int[] ends = blockEnds[r];
+        int[] nextCols = columns[r + 1];
+        int[] nextEnds = blockEnds[r + 1];
+        int from = row * dimension;
+        while (c < dimension) {
+            int end = ends[c];
+            if (end == c + 1) {
+                labelOf(source[from + cols[c]]);
+                nextCols[c] = cols[c];
+                nextEnds[c] = c + 1;
+                c++;
+                continue;
+            }
+            int p = c;
+            for (int k = c; k < end; k++) {
+                if (source[from + cols[k]] == 0) {
+                    nextCols[p++] = cols[k];
+                }
+            }
+            if (p > c) {
+                nextEnds[c] = p;
+            }
+            int q = p;
+            for (int k = c; k < end; k++) {
+                int n = source[from + cols[k]];
+                if (n != 0 && label[n] != 0) {
+                    int j = q++;
+                    while (j > p && label[source[from + nextCols[j - 1]]] > label[n]) {
+                        nextCols[j] = nextCols[j - 1];
+                        j--;
+                    }
+                    nextCols[j] = cols[k];
+                }
+            }
+            for (int k = p; k < q; k++) {
+                nextEnds[k] = k + 1;
+            }
+            int news = q;
+            for (int k = c; k < end; k++) {
+                int n = source[from + cols[k]];
+                if (n != 0 && label[n] == 0) {
+                    nextCols[q++] = cols[k];
+                }
+            }
+            if (end - news > 1) {
+                refineNew(row, r, news, end);
+                return;
+            }
+            if (news < end) {
+                labelOf(source[from + nextCols[news]]);
+                nextEnds[news] = end;
+            }
+            c = end;
+        }
+        searchRow(r + 1);
+    }
+
+    /**
+     * Places the columns of the numbers new to a block, from place k to
+     * the end of the block, in every order, and reads on.
+     */
+    private void refineNew(int row, int r, int k, int end) {
+        int[] nextCols = columns[r + 1];
+        int from = row * dimension;
+        if (k == end - 1) {
+            labelOf(source[from + nextCols[k]]);
+            blockEnds[r + 1][k] = end;
+            refine(row, r, end);
+            return;
+        }
+        for (int j = k; j < end; j++) {
+            int col = nextCols[j];
+            nextCols[j] = nextCols[k];
+            nextCols[k] = col;
+            int labels = labelCount;
+            int next = nextLabel;
+            labelOf(source[from + col]);
+            blockEnds[r + 1][k] = k + 1;
+            refineNew(row, r, k + 1, end);
+            undo(labels, next, placeCount, stackCount);
+            nextCols[k] = nextCols[j];
+            nextCols[j] = col;
+        }
+    }
+
+    /**
+     * Tries every row as the first row of the image, placing the columns
+     * along it, for a grid that repeats a number in a row or column.
+     */
+    private void searchPlain() {
+        for (int row = 0; row < dimension; row++) {
+            int band = boxOf[row];
+            rowUsed[row] = true;
+            bandUsed[band] = true;
+            bandOf[0] = band;
+            rowOf[0] = row;
+            searchColumn(0);
+            rowUsed[row] = false;
+            bandUsed[band] = false;
+        }
+    }
+
+    /**
+     * Places column c of the image, and the columns after it, along the
+     * first row, and then the other rows, for a grid that repeats a
+     * number in a row or column.
+     */
+    private void searchColumn(int c) {
+        if (isExceeded()) {
+            return;
+        }
+        if (c == dimension) {
+            for (int p = 0; p < dimension; p++) {
+                columns[1][p] = colAt[p];
+                blockEnds[1][p] = p + 1;
+            }
+            searchRow(1);
+            return;
+        }
+        int image = boxOf[c];
+        if (boxOf[c] * boxSize != c) {
+            tryColumns(c, stackAt[image]);
+            return;
+        }
+        for (int s = 0; s < boxSize; s++) {
+            if (outStackOf[s] < 0) {
+                outStackOf[s] = image;
+                stackAt[image] = s;
+                tryColumns(c, s);
+                outStackOf[s] = -1;
+                stackAt[image] = -1;
+            }
+        }
+    }
+
+    /**
+     * Tries every column left in stack s of the grid as column c of the
+     * image.
+     */
+    private void tryColumns(int c, int s) {
+        int row = rowOf[0] * dimension;
+        for (int k = 0; k < boxSize; k++) {
+            int col = s * boxSize + k;
+            if (posOf[col] >= 0) {
+                continue;
+            }
+            int labels = labelCount;
+            int next = nextLabel;
+            if (compare(c, labelOf(source[row + col]))) {
+                colAt[c] = col;
+                posOf[col] = c;
+                searchColumn(c + 1);
+                colAt[c] = -1;
+                posOf[col] = -1;
+            }
+            undo(labels, next, placeCount, stackCount);
+        }
+    }
+
+    /**
+     * Compares cell i of the image to best, when all cells before it are
+     * equal, making it the cell of best if it is smaller.
+     *
+     * @return false if the image is larger than best
+     */
+    private boolean compare(int i, int v) {
+        if (i < known) {
+            if (v > best[i]) {
+                return false;
+            }
+            if (v == best[i]) {
+                return true;
+            }
+        }
+        best[i] = v;
+        known = i + 1;
+        return true;
+    }
+
+    /**
+     * Gets the label of a number, giving it the next label if it has none.
+     */
+    private int labelOf(int n) {
+        if (n != 0 && label[n] == 0) {
+            label[n] = nextLabel++;
+            labelTrail[labelCount++] = n;
+        }
+        return label[n];
+    }
+
+    /**
+     * Records the symmetry of an image equal to best.
+     */
+    private void record() {
+        bestTransposed = transposed;
+        System.arraycopy(rowOf, 0, bestRows, 0, dimension);
+        System.arraycopy(columns[dimension], 0, bestCols, 0, dimension);
+        System.arraycopy(label, 0, bestLabel, 0, dimension + 1);
+    }
+
+    /**
+     * Checks the budget, if there is one, every Budget.CHECK_INTERVAL
+     * calls. Once it has run out the search unwinds, every step returning
+     * at once.
+     */
+    private boolean isExceeded() {
+        if (budget != null && !exceeded && ++calls == Budget.CHECK_INTERVAL) {
+            calls = 0;
+            exceeded = budget.isExceeded(0, start);
+        }
+        return exceeded;
+    }
+
+    /**
+     * Returns the symmetry of best, with the numbers not in the grid
+     * taking the labels left, in order.
+     */
+    private Symmetry symmetry() {
+        int[] numbers = bestLabel.clone();
+        int l = 1;
+        for (int n = 1; n <= dimension; n++) {
+            if (numbers[n] != 0) {
+                l++;
+            }
+        }
+        for (int n = 1; n <= dimension; n++) {
+            if (numbers[n] == 0) {
+                numbers[n] = l++;
+            }
+        }
+        return new Symmetry(bestTransposed, bestRows.clone(), bestCols.clone(), numbers);
+    }
+
+    /**
+     * Hashes best with MurmurHash3 x64 128, four cells to a long, into
+     * hashHigh and hashLow.
+     */
+    private void hash() {
+        long h1 = dimension;
+        long h2 = dimension;
+        int cells = best.length;
+        int i = 0;
+        for (; i + 8 <= cells; i += 8) {
+            long k1 = pack(i, 4);
+            long k2 = pack(i + 4, 4);
+            h1 ^= Long.rotateLeft(k1 * C1, 31) * C2;
+            h1 = (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52dce729;
+            h2 ^= Long.rotateLeft(k2 * C2, 33) * C1;
+            h2 = (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495ab5;
+        }
+        if (i < cells) {
+            long k1 = pack(i, Math.min(4, cells - i));
+            long k2 = cells - i > 4 ? pack(i + 4, cells - i - 4) : 0;
+            h1 ^= Long.rotateLeft(k1 * C1, 31) * C2;
+            h2 ^= Long.rotateLeft(k2 * C2, 33) * C1;
+        }
+        h1 ^= 2L * cells;
+        h2 ^= 2L * cells;
+        h1 += h2;
+        h2 += h1;
+        h1 = mix(h1);
+        h2 = mix(h2);
+        hashHigh = h1 + h2;
+        hashLow = h2 + hashHigh;
+    }
+
+    /**
+     * Packs count cells of best from i into a long, 16 bits each, the
+     * first in the lowest bits.
+     */
+    private long pack(int i, int count) {
+        long k = 0;
+        for (int j = count - 1; j >= 0; j--) {
+            k = k << 16 | best[i + j];
+        }
+        return k;
+    }
+
+    /**
+     * The final mix of MurmurHash3, which spreads every bit of h over all
+     * of them.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,18 @@
+package sudoku;
+
+/**
+ * The order in which a search visits the empty cells of a sudoku.
+ */
+public enum CellOrder {
+    /**
+     * The first empty cell, row by row from the upper left corner.
+     */
+    ROW_MAJOR,
+
+    /**
+     * The empty cell with the fewest legal numbers, also known as the
+     * minimum remaining values heuristic. Ties go to the first cell in
+     * row-major order.
+     */
+    FEWEST_CANDIDATES
+}
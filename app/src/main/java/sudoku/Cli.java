@@ -0,0 +1,396 @@
+package sudoku;
+
+import java.io.BufferedInputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Solves sudokus from the command line, without a window.
+ *
+ * Sudokus are read from a file or stdin, in the ROWS or LINE text format
+ * or the packed binary format, solved by a BatchSolver and written to
+ * stdout as they are solved, in the input order, one line per sudoku:
+ * its number, its solution in the LINE format (or the numbers separated
+ * by commas above 35x35), or "unsolved", and the statistics of its search.
+ * Only a few sudokus per thread are held at a time, so any number of them
+ * is solved in bounded memory. A summary with the throughput and the
+ * median and 99th percentile search time is written to stderr at the end,
+ * so that stdout holds nothing but results. The search time is that of
+ * the solver alone: setting it up and handing the sudoku between threads
+ * are left out, and only count in the throughput.
+ *
+ * Run with --help for the options.
+ */
+public final class Cli {
+    private static final String USAGE =
+        "usage: cli [options] [file]\n" +
+        "Solves the sudokus in file, or stdin, and writes one line per sudoku to stdout.\n" +
+        "  -t, --threads N    the number of threads, default the number of processors\n" +
+        "  -f, --format F     rows, line or packed, default guessed from the input\n" +
+        "  -e, --engine E     dlx, bitmask, propagating or plain, default dlx\n" +
+        "  -h, --help         show this help\n";
+
+    // the output buffer, written to stdout whenever it is full
+    private static final int OUTPUT_SIZE = 1 << 16;
+
+    private Cli() {}
+
+    public static void main(String[] args) {
+        WritableByteChannel out = new FileOutputStream(FileDescriptor.out).getChannel();
+        System.exit(run(args, System.in, out, System.err));
+    }
+
+    /**
+     * Runs the command line.
+     *
+     * @param args
+     *        the arguments
+     * @param stdin
+     *        where to read the sudokus if no file is given
+     * @param stdout
+     *        where to write the results
+     * @param stderr
+     *        where to write the summary and errors
+     * @return the exit status: 0 if all went well, 1 if the input could
+     *         not be read and 2 if the arguments are wrong
+     */
+    static int run(String[] args, InputStream stdin, WritableByteChannel stdout, PrintStream stderr) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String format = null;
+        IntFunction<? extends SudokuSolver> engine = DancingLinksSolver::ofDimension;
+        Path file = null;
+        try {
+            for (int k = 0; k < args.length; k++) {
+                switch (args[k]) {
+                    case "-t":
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++k));
+                        break;
+                    case "-f":
+                    case "--format":
+                        format = value(args, ++k);
+                        if (!format.equals("rows") && !format.equals("line") && !format.equals("packed")) {
+                            throw new IllegalArgumentException("unknown format " + format);
+                        }
+                        break;
+                    case "-e":
+                    case "--engine":
+                        engine = engine(value(args, ++k));
+                        break;
+                    case "-h":
+                    case "--help":
+                        stderr.print(USAGE);
+                        return 0;
+                    default:
+                        if (args[k].startsWith("-") || file != null) {
+                            throw new IllegalArgumentException("unexpected argument " + args[k]);
+                        }
+                        file = Paths.get(args[k]);
+                }
+            }
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be at least 1");
+            }
+        } catch (IllegalArgumentException e) {
+            stderr.println(e.getMessage());
+            stderr.print(USAGE);
+            return 2;
+        }
+
+        long start = System.nanoTime();
+        Histogram latencies = new Histogram();
+        long solved = 0;
+        Output out = new Output(stdout);
+        try (InputStream in = new BufferedInputStream(file == null ? stdin : Files.newInputStream(file),
+                                                      OUTPUT_SIZE);
+             Stream<Grid> grids = open(in, format);
+             BatchSolver batch = BatchSolver.of(threads, engine)) {
+            BatchSolver.Results results =
+                batch.results(grids.map(Grid::getMatrix).iterator(), BatchSolver.Order.INPUT);
+            while (true) {
+                if (results.isDrained()) {
+                    // the next result waits on the input, which may be
+                    // typed in, so the results so far go out first
+                    out.flush();
+                }
+                if (!results.hasNext()) {
+                    break;
+                }
+                BatchSolver.Result result = results.next();
+                SolveStats stats = result.getStats();
+                latencies.add(stats.getElapsedNanos());
+                out.putLong(result.getIndex() + 1).put('\t');
+                if (result.isSolved()) {
+                    solved++;
+                    out.putSolution(result.getSolution());
+                } else {
+                    out.putString("unsolved");
+                }
+                out.putString("\tnodes=").putLong(stats.getNodes())
+                   .putString(" backtracks=").putLong(stats.getBacktracks())
+                   .putString(" us=").putLong(stats.getElapsedNanos() / 1000)
+                   .put('\n');
+            }
+            out.flush();
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            flush(out);
+            stderr.println("error: " + e.getMessage());
+            return 1;
+        } catch (IllegalStateException e) {
+            flush(out);
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            stderr.println("error: sudoku " + (latencies.count() + 1) + ": " +
+                           (cause.getMessage() == null ? cause : cause.getMessage()));
+            return 1;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        stderr.printf("solved %d of %d sudokus in %.3f s, %.1f sudokus/s, search p50 %d us, p99 %d us%n",
+                      solved, latencies.count(), seconds, latencies.count() / seconds,
+                      latencies.percentile(0.50) / 1000, latencies.percentile(0.99) / 1000);
+        return 0;
+    }
+
+    /**
+     * Writes the results so far after an error, as they are still worth
+     * having, unless stdout has failed as well.
+     */
+    private static void flush(Output out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            // the error that got here is the one to report
+        }
+    }
+
+    /**
+     * Gets the value of an option.
+     */
+    private static String value(String[] args, int k) {
+        if (k >= args.length) {
+            throw new IllegalArgumentException(args[k - 1] + " needs a value");
+        }
+        return args[k];
+    }
+
+    /**
+     * Gets the solvers of an engine name.
+     */
+    private static IntFunction<? extends SudokuSolver> engine(String name) {
+        switch (name) {
+            case "dlx":
+                return DancingLinksSolver::ofDimension;
+            case "bitmask":
+                return BitmaskSolver::ofDimension;
+            case "propagating":
+                return PropagatingSolver::ofDimension;
+            case "plain":
+                return Solver::ofDimension;
+            default:
+                throw new IllegalArgumentException("unknown engine " + name);
+        }
+    }
+
+    /**
+     * Opens a stream of the sudokus of in, guessing the format if it is
+     * not given: packed if the input starts with the magic of the packed
+     * format, ROWS if the first non-blank line has spaces between its
+     * cells, LINE otherwise.
+     *
+     * @param in
+     *        the input, which must support mark
+     * @param format
+     *        rows, line, packed or null
+     * @return the stream
+     */
+    static Stream<Grid> open(InputStream in, String format) throws IOException {
+        if (format == null) {
+            format = guess(in);
+        }
+        if (format.equals("packed")) {
+            return PackedPuzzleReader.of(in).stream();
+        }
+        PuzzleReader.Format f = format.equals("rows") ? PuzzleReader.Format.ROWS : PuzzleReader.Format.LINE;
+        return PuzzleReader.of(new InputStreamReader(in, StandardCharsets.ISO_8859_1), f).stream();
+    }
+
+    /**
+     * Guesses the format from the start of in, reading no further than the
+     * end of the first non-blank line, as that may be all there is of the
+     * input until more is typed in.
+     */
+    private static String guess(InputStream in) throws IOException {
+        byte[] magic = PackedPuzzleWriter.MAGIC;
+        in.mark(OUTPUT_SIZE);
+        byte[] head = new byte[OUTPUT_SIZE];
+        int length = 0;
+        boolean cell = false;
+        int ch;
+        while (length < head.length && (ch = in.read()) >= 0) {
+            head[length++] = (byte) ch;
+            if (length == magic.length && Arrays.equals(head, 0, length, magic, 0, length)) {
+                in.reset();
+                return "packed";
+            }
+            if (ch == '\n' && cell) {
+                break;
+            }
+            cell |= ch != ' ' && ch != '\t' && ch != '\r' && ch != '\n';
+        }
+        in.reset();
+        return PuzzleReader.guess(head, length) == PuzzleReader.Format.ROWS ? "rows" : "line";
+    }
+
+    /**
+     * Writes ASCII to a channel through a ByteBuffer, so that nothing is
+     * allocated per result and the channel is written in large blocks.
+     */
+    private static final class Output {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(OUTPUT_SIZE);
+        private final byte[] digits = new byte[20];
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        Output put(char ch) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put((byte) ch);
+            return this;
+        }
+
+        Output putString(String s) throws IOException {
+            for (int k = 0; k < s.length(); k++) {
+                put(s.charAt(k));
+            }
+            return this;
+        }
+
+        Output putLong(long n) throws IOException {
+            if (n < 0) {
+                put('-');
+                n = -n;
+            }
+            int k = digits.length;
+            do {
+                digits[--k] = (byte) ('0' + n % 10);
+                n /= 10;
+            } while (n > 0);
+            while (k < digits.length) {
+                put((char) digits[k++]);
+            }
+            return this;
+        }
+
+        Output putSolution(int[][] solution) throws IOException {
+            boolean chars = solution.length <= 35;
+            for (int r = 0; r < solution.length; r++) {
+                for (int c = 0; c < solution.length; c++) {
+                    int n = solution[r][c];
+                    if (chars) {
+                        put(n == 0 ? '.' : n < 10 ? (char) ('0' + n) : (char) ('A' + n - 10));
+                    } else {
+                        if (r + c > 0) {
+                            put(',');
+                        }
+                        putLong(n);
+                    }
+                }
+            }
+            return this;
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Counts values in buckets of about 6% width, 16 per power of two, so
+     * that percentiles of any number of values take constant memory.
+     */
+    static final class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB = 1 << SUB_BITS;
+
+        private final long[] counts = new long[(Long.SIZE - SUB_BITS + 1) * SUB];
+        private long count;
+
+        /**
+         * Adds a value.
+         *
+         * @param value
+         *        the value, at least 0
+         */
+        void add(long value) {
+            counts[bucket(value)]++;
+            count++;
+        }
+
+        /**
+         * Gets the number of values added.
+         *
+         * @return the number of values
+         */
+        long count() {
+            return count;
+        }
+
+        /**
+         * Gets the value below which a fraction of the values lie, rounded
+         * down to the lower end of its bucket.
+         *
+         * @param q
+         *        the fraction, in [0, 1]
+         * @return the value, 0 if no values have been added
+         */
+        long percentile(double q) {
+            long target = Math.max(1, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int b = 0; b < counts.length; b++) {
+                seen += counts[b];
+                if (seen >= target) {
+                    return lowest(b);
+                }
+            }
+            return 0;
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB) {
+                return (int) value;
+            }
+            int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB - 1);
+            return (exponent - SUB_BITS + 1) * SUB + sub;
+        }
+
+        private static long lowest(int bucket) {
+            if (bucket < SUB) {
+                return bucket;
+            }
+            int exponent = bucket / SUB + SUB_BITS - 1;
+            return (long) (SUB + bucket % SUB) << (exponent - SUB_BITS);
+        }
+    }
+}
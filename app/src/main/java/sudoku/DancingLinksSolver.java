@@ -0,0 +1,560 @@
+package sudoku;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A SudokuSolver that treats the sudoku as an exact cover problem and
+ * solves it with Knuth's Algorithm X and Dancing Links.
+ *
+ * There is one column per constraint (each cell holds a number, each row,
+ * column and box holds each number) and one row per possible placement.
+ * The links are kept in primitive arrays instead of node objects. The
+ * matrix for a dimension is built once and shared, every solve copies it
+ * into arrays owned by the solver, so solving allocates nothing.
+ *
+ * The grid itself, and thereby all rule checks, is kept by a BitmaskSolver.
+ */
+public class DancingLinksSolver implements SudokuSolver {
+    private static final Map<Integer, Links> LINKS = new ConcurrentHashMap<>();
+
+    private final BitmaskSolver board;
+    private final Links links;
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] size;
+    // chosen[level] is the node chosen at that level of the search
+    private final int[] chosen;
+    // the nodes chosen in the first solution found
+    private final int[] firstChosen;
+    private int firstDepth;
+    private long searched;
+    // what the last search did besides searched, see getStats
+    private long backtracks;
+    private int maxDepth;
+    private long candidateChecks;
+    private long elapsed;
+
+    /**
+     * The exact cover matrix of a dimension, before anything is covered.
+     *
+     * Index 0 is the root, 1..columns are the column headers and after that
+     * come four nodes for every placement p = (r * dim + c) * dim + (n - 1),
+     * in order, so the first node of p is columns + 1 + 4 * p.
+     */
+    private static final class Links {
+        final int dimension;
+        final int columns;
+        final int[] left;
+        final int[] right;
+        final int[] up;
+        final int[] down;
+        final int[] column;
+        final int[] size;
+
+        /**
+         * Builds the matrix.
+         *
+         * @param dim
+         *        the dimension
+         */
+        Links(int dim) {
+            Geometry geometry = Geometry.ofDimension(dim);
+            int cells = dim * dim;
+            this.dimension = dim;
+            this.columns = 4 * cells;
+            int nodes = columns + 1 + 4 * cells * dim;
+            this.left = new int[nodes];
+            this.right = new int[nodes];
+            this.up = new int[nodes];
+            this.down = new int[nodes];
+            this.column = new int[nodes];
+            this.size = new int[columns + 1];
+
+            for (int h = 0; h <= columns; h++) {
+                left[h] = h == 0 ? columns : h - 1;
+                right[h] = h == columns ? 0 : h + 1;
+                up[h] = h;
+                down[h] = h;
+                column[h] = h;
+            }
+            int node = columns + 1;
+            for (int r = 0; r < dim; r++) {
+                for (int c = 0; c < dim; c++) {
+                    int b = geometry.boxOf(geometry.index(r, c));
+                    for (int n = 0; n < dim; n++) {
+                        int first = node;
+                        append(node++, 1 + r * dim + c);
+                        append(node++, 1 + cells + r * dim + n);
+                        append(node++, 1 + 2 * cells + c * dim + n);
+                        append(node++, 1 + 3 * cells + b * dim + n);
+                        for (int j = first; j < node; j++) {
+                            left[j] = j == first ? node - 1 : j - 1;
+                            right[j] = j == node - 1 ? first : j + 1;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Appends a node at the bottom of a column.
+         *
+         * @param node
+         *        the node
+         * @param h
+         *        the column header
+         */
+        private void append(int node, int h) {
+            column[node] = h;
+            up[node] = up[h];
+            down[node] = h;
+            down[up[h]] = node;
+            up[h] = node;
+            size[h]++;
+        }
+
+        /**
+         * Gets the first node of a placement.
+         *
+         * @param i
+         *        the cell index, r * dim + c
+         * @param n
+         *        the number
+         * @return the node
+         */
+        int nodeOf(int i, int n) {
+            return columns + 1 + 4 * (i * dimension + n - 1);
+        }
+
+        /**
+         * Gets the placement a node belongs to.
+         *
+         * @param node
+         *        the node
+         * @return the placement, (r * dim + c) * dim + (n - 1)
+         */
+        int placementOf(int node) {
+            return (node - columns - 1) / 4;
+        }
+    }
+
+    /**
+     * Constructs a new DancingLinksSolver.
+     *
+     * @param dimension
+     *        The (quadratic) dimensions of the matrix.
+     * @throws IllegalArgumentException
+     *        if the dimension is not a square in [1, 64]
+     */
+    private DancingLinksSolver(int dimension) {
+        this.board = new BitmaskSolver(dimension);
+        this.links = LINKS.computeIfAbsent(dimension, Links::new);
+        this.left = new int[links.left.length];
+        this.right = new int[links.right.length];
+        this.up = new int[links.up.length];
+        this.down = new int[links.down.length];
+        this.size = new int[links.size.length];
+        this.chosen = new int[dimension * dimension];
+        this.firstChosen = new int[dimension * dimension];
+    }
+
+    /**
+     * Returns a DancingLinksSolver with sensible defaults.
+     *
+     * @return the DancingLinksSolver
+     */
+    public static DancingLinksSolver ofDefaults() {
+        return new DancingLinksSolver(9);
+    }
+
+    /**
+     * Returns a DancingLinksSolver with a custom dimension.
+     *
+     * @param dim
+     *        the dimension
+     * @return the DancingLinksSolver
+     * @throws IllegalArgumentException
+     *         if the dimension is not a square in [1, 64]
+     */
+    public static DancingLinksSolver ofDimension(int dim) {
+        return new DancingLinksSolver(dim);
+    }
+
+    /**
+     * Returns a DancingLinksSolver that has its matrix set to nbrs.
+     *
+     * @param nbrs
+     *        the matrix
+     * @return the DancingLinksSolver
+     * @throws IllegalArgumentException
+     *         if setMatrix throws it
+     */
+    public static DancingLinksSolver ofMatrix(int[][] nbrs) {
+        DancingLinksSolver s = new DancingLinksSolver(nbrs.length);
+        s.setMatrix(nbrs);
+        return s;
+    }
+
+    @Override
+    public int getDimension() {
+        return board.getDimension();
+    }
+
+    @Override
+    public void setNumber(int r, int c, int nbr) {
+        board.setNumber(r, c, nbr);
+    }
+
+    @Override
+    public int getNumber(int r, int c) {
+        return board.getNumber(r, c);
+    }
+
+    @Override
+    public void clearNumber(int r, int c) {
+        board.clearNumber(r, c);
+    }
+
+    @Override
+    public boolean isValid(int r, int c, int nbr) {
+        return board.isValid(r, c, nbr);
+    }
+
+    @Override
+    public boolean isAllValid() {
+        return board.isAllValid();
+    }
+
+    @Override
+    public void clear() {
+        board.clear();
+    }
+
+    @Override
+    public int[][] getMatrix() {
+        return board.getMatrix();
+    }
+
+    @Override
+    public void setMatrix(int[][] nbrs) {
+        board.setMatrix(nbrs);
+    }
+
+    @Override
+    public Grid getGrid() {
+        return board.getGrid();
+    }
+
+    @Override
+    public void setGrid(Grid grid) {
+        board.setGrid(grid);
+    }
+
+    /**
+     * Gets the number of placements tried during the last solve.
+     *
+     * @return the number of nodes of the search tree
+     */
+    public long getSearchedCount() {
+        return searched;
+    }
+
+    /**
+     * Gets the statistics of the last solve or countSolutions.
+     *
+     * Nodes are placements tried and candidate checks are column sizes
+     * compared when choosing the column to branch on. The numbers already
+     * in the grid are covered up front and not counted as propagated.
+     *
+     * @return the statistics
+     */
+    @Override
+    public SolveStats getStats() {
+        return new SolveStats(searched, backtracks, maxDepth, 0,
+                              candidateChecks, elapsed);
+    }
+
+    /**
+     * Removes column h from the header list and all rows in it from the
+     * other columns.
+     *
+     * @param h
+     *        the column header
+     */
+    private void cover(int h) {
+        int[] column = links.column;
+        right[left[h]] = right[h];
+        left[right[h]] = left[h];
+        for (int i = down[h]; i != h; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    /**
+     * Undoes cover(h). Must be called in the reverse order of cover.
+     *
+     * @param h
+     *        the column header
+     */
+    private void uncover(int h) {
+        int[] column = links.column;
+        for (int i = up[h]; i != h; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[h]] = h;
+        left[right[h]] = h;
+    }
+
+    /**
+     * Chooses the uncovered column with the fewest rows.
+     *
+     * @return the column header, or 0 if all columns are covered
+     */
+    private int chooseColumn() {
+        int best = 0;
+        int bestSize = Integer.MAX_VALUE;
+        for (int h = right[0]; h != 0; h = right[h]) {
+            if (SolveStats.ENABLED) {
+                candidateChecks++;
+            }
+            if (size[h] < bestSize) {
+                best = h;
+                bestSize = size[h];
+                if (bestSize <= 1) break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Solves the sudoku.
+     *
+     * Equivalent to solve(SolveMode.first()) > 0.
+     *
+     * @return true if a solution was found, false otherwise
+     */
+    @Override
+    public boolean solve() {
+        return solve(SolveMode.first()) > 0;
+    }
+
+    /**
+     * Searches for solutions until mode says to stop.
+     *
+     * If a solution is found, the grid is left holding the first one,
+     * otherwise it is left untouched.
+     *
+     * @param mode
+     *        when to stop searching
+     * @return the number of solutions found, at most mode.getLimit()
+     */
+    @Override
+    public long solve(SolveMode mode) {
+        SolveEvent event = SolveEvents.begin(this);
+        long found = run(mode.getLimit(), Budget.unlimited());
+        if (found > 0) {
+            fillFirstSolution();
+        }
+        SolveEvents.end(event, this, "solve", mode.getLimit(), found,
+                        found > 0 ? "SOLVED" : "UNSOLVABLE");
+        return found;
+    }
+
+    /**
+     * Searches for the first solution until budget runs out.
+     *
+     * The budget is checked every Budget.CHECK_INTERVAL placements tried
+     * or, with a node budget, exactly when it is used up. The grid is only
+     * touched if a solution is found.
+     *
+     * @param budget
+     *        when to give up
+     * @return SOLVED, UNSOLVABLE or ABORTED, with the statistics
+     */
+    @Override
+    public SolveResult solve(Budget budget) {
+        SolveEvent event = SolveEvents.begin(this);
+        long found = run(1, budget);
+        if (found > 0) {
+            fillFirstSolution();
+        }
+        SolveResult.Status status = found > 0 ? SolveResult.Status.SOLVED :
+                                    found == 0 ? SolveResult.Status.UNSOLVABLE :
+                                                 SolveResult.Status.ABORTED;
+        SolveEvents.end(event, this, "solve", 1, Math.max(found, 0), status.name());
+        return new SolveResult(status, getStats());
+    }
+
+    /**
+     * Places the rows of the first solution found in the grid.
+     */
+    private void fillFirstSolution() {
+        int dim = getDimension();
+        for (int level = 0; level < firstDepth; level++) {
+            int p = links.placementOf(firstChosen[level]);
+            int i = p / dim;
+            board.setNumber(i / dim, i % dim, p % dim + 1);
+        }
+    }
+
+    /**
+     * Counts the solutions of the sudoku, up to limit.
+     *
+     * The grid is left untouched.
+     *
+     * @param limit
+     *        the number of solutions after which to stop counting
+     * @return the number of solutions, at most limit
+     * @throws IllegalArgumentException
+     *         if limit is less than 1
+     */
+    @Override
+    public int countSolutions(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException();
+        }
+        SolveEvent event = SolveEvents.begin(this);
+        long found = run(limit, Budget.unlimited());
+        SolveEvents.end(event, this, "count", limit, found,
+                        found == limit ? "FOUND" : "EXHAUSTED");
+        return (int) found;
+    }
+
+    /**
+     * Sets up the links for the numbers in the grid and runs the search,
+     * without touching the grid.
+     *
+     * @param limit
+     *        the number of solutions after which to stop
+     * @param budget
+     *        when to give up
+     * @return the number of solutions found, or -1 if the budget ran out
+     */
+    private long run(long limit, Budget budget) {
+        long start = System.nanoTime();
+        searched = 0;
+        backtracks = 0;
+        maxDepth = 0;
+        candidateChecks = 0;
+        elapsed = 0;
+        firstDepth = 0;
+        if (!board.isAllValid()) {
+            return 0;
+        }
+        System.arraycopy(links.left, 0, left, 0, left.length);
+        System.arraycopy(links.right, 0, right, 0, right.length);
+        System.arraycopy(links.up, 0, up, 0, up.length);
+        System.arraycopy(links.down, 0, down, 0, down.length);
+        System.arraycopy(links.size, 0, size, 0, size.length);
+
+        // the numbers already in the grid are part of every solution
+        int cells = board.cellCount();
+        for (int i = 0; i < cells; i++) {
+            int n = board.cell(i);
+            if (n != 0) {
+                int node = links.nodeOf(i, n);
+                cover(links.column[node]);
+                for (int j = right[node]; j != node; j = right[j]) {
+                    cover(links.column[j]);
+                }
+            }
+        }
+
+        long found = search(limit, budget, start);
+        elapsed = System.nanoTime() - start;
+        return found;
+    }
+
+    /**
+     * Runs Algorithm X on the links until limit solutions are found or the
+     * search tree is exhausted.
+     *
+     * The search keeps its state in chosen instead of on the call stack. The
+     * rows of the first solution are copied to firstChosen.
+     *
+     * @param limit
+     *        the number of solutions after which to stop
+     * @param budget
+     *        when to give up
+     * @param start
+     *        the System.nanoTime() at which the search started
+     * @return the number of solutions found, or -1 if the budget ran out
+     */
+    private long search(long limit, Budget budget, long start) {
+        int[] column = links.column;
+        long found = 0;
+        long checkAt = 0;
+        int level = 0;
+        firstDepth = 0;
+        int h = chooseColumn();
+        if (h == 0) {
+            // nothing left to cover, the grid is its own solution
+            return 1;
+        }
+        cover(h);
+        int node = down[h];
+        while (true) {
+            if (node != h) {
+                if (searched >= checkAt) {
+                    if (budget.isExceeded(searched, start)) {
+                        return -1;
+                    }
+                    checkAt = searched + budget.slice(searched);
+                }
+                // try the row of node
+                searched++;
+                chosen[level++] = node;
+                if (SolveStats.ENABLED && level > maxDepth) {
+                    maxDepth = level;
+                }
+                for (int j = right[node]; j != node; j = right[j]) {
+                    cover(column[j]);
+                }
+                int next = chooseColumn();
+                if (next != 0) {
+                    h = next;
+                    cover(h);
+                    node = down[h];
+                    continue;
+                }
+                // all columns are covered, a solution
+                if (found++ == 0) {
+                    System.arraycopy(chosen, 0, firstChosen, 0, level);
+                    firstDepth = level;
+                }
+                if (found == limit) {
+                    return found;
+                }
+                node = chosen[--level];
+                for (int j = left[node]; j != node; j = left[j]) {
+                    uncover(column[j]);
+                }
+                node = down[node];
+            } else {
+                // column exhausted, go back to the previous level
+                uncover(h);
+                backtracks++;
+                if (level == 0) {
+                    return found;
+                }
+                node = chosen[--level];
+                h = column[node];
+                for (int j = left[node]; j != node; j = left[j]) {
+                    uncover(column[j]);
+                }
+                node = down[node];
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package sudoku;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The shape of a sudoku of some dimension: which row, column and box every
+ * cell is in, which cells every unit holds and which cells every cell sees.
+ *
+ * Everything is computed once per dimension into primitive arrays and
+ * shared by all solvers, so that the solvers look things up instead of
+ * dividing and scanning. A Geometry is immutable.
+ *
+ * Cells are indexed r * dim + c. Units are laid out as rows 0..dim-1,
+ * columns dim..2*dim-1 and boxes 2*dim..3*dim-1, and boxes are numbered
+ * row-major, as are the cells within a box.
+ */
+public final class Geometry {
+    private static final Map<Integer, Geometry> GEOMETRIES = new ConcurrentHashMap<>();
+
+    private final int dimension;
+    private final int boxSize;
+    private final int[] rowOf;
+    private final int[] colOf;
+    private final int[] boxOf;
+    // unitCells[u * dimension + k] is the k:th cell of unit u
+    private final int[] unitCells;
+    private final int peerCount;
+    // peers[i * peerCount + j] is the j:th peer of cell i
+    private final int[] peers;
+
+    /**
+     * Computes the geometry of a dimension.
+     *
+     * @param dimension
+     *        The (quadratic) dimensions of the matrix.
+     * @throws IllegalArgumentException
+     *        if the dimension is not a positive square
+     */
+    private Geometry(int dimension) {
+        int boxSize = (int) Math.sqrt(dimension);
+        if (dimension < 1 || boxSize * boxSize != dimension) {
+            throw new IllegalArgumentException();
+        }
+        int cells = dimension * dimension;
+        this.dimension = dimension;
+        this.boxSize = boxSize;
+        this.rowOf = new int[cells];
+        this.colOf = new int[cells];
+        this.boxOf = new int[cells];
+        this.unitCells = new int[3 * cells];
+        for (int i = 0; i < cells; i++) {
+            int r = i / dimension;
+            int c = i % dimension;
+            int b = (r / boxSize) * boxSize + c / boxSize;
+            int k = (r % boxSize) * boxSize + c % boxSize;
+            rowOf[i] = r;
+            colOf[i] = c;
+            boxOf[i] = b;
+            unitCells[r * dimension + c] = i;
+            unitCells[(dimension + c) * dimension + r] = i;
+            unitCells[(2 * dimension + b) * dimension + k] = i;
+        }
+
+        // the row and column minus the cell itself, plus the part of the
+        // box outside both
+        this.peerCount = 2 * (dimension - 1) + (boxSize - 1) * (boxSize - 1);
+        this.peers = new int[cells * peerCount];
+        for (int i = 0; i < cells; i++) {
+            int j = i * peerCount;
+            for (int k = 0; k < dimension; k++) {
+                int p = unitCells[rowOf[i] * dimension + k];
+                if (p != i) {
+                    peers[j++] = p;
+                }
+            }
+            for (int k = 0; k < dimension; k++) {
+                int p = unitCells[(dimension + colOf[i]) * dimension + k];
+                if (p != i) {
+                    peers[j++] = p;
+                }
+            }
+            for (int k = 0; k < dimension; k++) {
+                int p = unitCells[(2 * dimension + boxOf[i]) * dimension + k];
+                if (rowOf[p] != rowOf[i] && colOf[p] != colOf[i]) {
+                    peers[j++] = p;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the Geometry of a dimension.
+     *
+     * @param dim
+     *        the dimension
+     * @return the Geometry, the same instance for every call with dim
+     * @throws IllegalArgumentException
+     *         if the dimension is not a positive square
+     */
+    public static Geometry ofDimension(int dim) {
+        return GEOMETRIES.computeIfAbsent(dim, Geometry::new);
+    }
+
+    /**
+     * Gets the dimension.
+     *
+     * @return the dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Gets the size of a box, the square root of the dimension.
+     *
+     * @return the box size
+     */
+    public int getBoxSize() {
+        return boxSize;
+    }
+
+    /**
+     * Gets the number of cells, dimension * dimension.
+     *
+     * @return the number of cells
+     */
+    public int cellCount() {
+        return rowOf.length;
+    }
+
+    /**
+     * Gets the number of units, 3 * dimension.
+     *
+     * @return the number of units
+     */
+    public int unitCount() {
+        return 3 * dimension;
+    }
+
+    /**
+     * Gets the index of row r, column c.
+     *
+     * Bounds are NOT checked, nor are they in any of the lookups below.
+     *
+     * @param r
+     *        the row
+     * @param c
+     *        the column
+     * @return the index
+     */
+    public int index(int r, int c) {
+        return r * dimension + c;
+    }
+
+    /**
+     * Gets the row of cell i.
+     *
+     * @param i
+     *        the index
+     * @return the row
+     */
+    public int rowOf(int i) {
+        return rowOf[i];
+    }
+
+    /**
+     * Gets the column of cell i.
+     *
+     * @param i
+     *        the index
+     * @return the column
+     */
+    public int colOf(int i) {
+        return colOf[i];
+    }
+
+    /**
+     * Gets the box of cell i.
+     *
+     * @param i
+     *        the index
+     * @return the box, in [0, getDimension() - 1]
+     */
+    public int boxOf(int i) {
+        return boxOf[i];
+    }
+
+    /**
+     * Gets the index of the k:th cell in unit u.
+     *
+     * @param u
+     *        the unit
+     * @param k
+     *        the position in the unit, in [0, getDimension() - 1]
+     * @return the cell index
+     */
+    public int unitCell(int u, int k) {
+        return unitCells[u * dimension + k];
+    }
+
+    /**
+     * Gets the number of peers of every cell, 20 for 9x9.
+     *
+     * @return the number of peers
+     */
+    public int peerCount() {
+        return peerCount;
+    }
+
+    /**
+     * Gets the j:th peer of cell i, that is a cell other than i that
+     * shares a row, column or box with it. Every peer is listed once.
+     *
+     * @param i
+     *        the index
+     * @param j
+     *        the position in the peer list, in [0, peerCount() - 1]
+     * @return the index of the peer
+     */
+    public int peer(int i, int j) {
+        return peers[i * peerCount + j];
+    }
+}
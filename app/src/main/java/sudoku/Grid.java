@@ -0,0 +1,317 @@
+package sudoku;
+
+import java.util.Arrays;
+
+/**
+ * The numbers of a sudoku, stored in one flat primitive array.
+ *
+ * Cell (r, c) has the index r * dim + c. Numbers are stored in a byte[]
+ * for dimensions up to 15 and in a short[] above that, so a 9x9 grid takes
+ * 81 bytes instead of the nine arrays of an int[][]. Values are read back
+ * unsigned, that is in [0, 255] and [0, 65535] respectively.
+ *
+ * A Grid only stores numbers, it knows nothing about the rules. It is not
+ * thread safe.
+ */
+public final class Grid {
+    // the largest dimension stored in bytes
+    private static final int MAX_BYTE_DIMENSION = 15;
+
+    private final int dimension;
+    private final byte[] bytes;
+    private final short[] shorts;
+
+    /**
+     * Constructs a new, empty Grid.
+     *
+     * @param dimension
+     *        The (quadratic) dimensions of the matrix.
+     * @throws IllegalArgumentException
+     *        if the dimension is negative
+     */
+    private Grid(int dimension) {
+        if (dimension < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.dimension = dimension;
+        if (dimension <= MAX_BYTE_DIMENSION) {
+            this.bytes = new byte[dimension * dimension];
+            this.shorts = null;
+        } else {
+            this.bytes = null;
+            this.shorts = new short[dimension * dimension];
+        }
+    }
+
+    /**
+     * Returns an empty Grid with a custom dimension.
+     *
+     * @param dim
+     *        the dimension
+     * @return the Grid
+     * @throws IllegalArgumentException
+     *         if the dimension is negative
+     */
+    public static Grid ofDimension(int dim) {
+        return new Grid(dim);
+    }
+
+    /**
+     * Returns a Grid that has its matrix set to nbrs.
+     *
+     * @param nbrs
+     *        the matrix
+     * @return the Grid
+     * @throws IllegalArgumentException
+     *         if setMatrix throws it
+     */
+    public static Grid ofMatrix(int[][] nbrs) {
+        Grid g = new Grid(nbrs.length);
+        g.setMatrix(nbrs);
+        return g;
+    }
+
+    /**
+     * Gets the dimension.
+     *
+     * @return the dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Gets the number of cells, dimension * dimension.
+     *
+     * @return the number of cells
+     */
+    public int cellCount() {
+        return dimension * dimension;
+    }
+
+    /**
+     * Gets the index of row r, column c.
+     *
+     * Bounds are NOT checked.
+     *
+     * @param r
+     *        the row
+     * @param c
+     *        the column
+     * @return the index
+     */
+    public int index(int r, int c) {
+        return r * dimension + c;
+    }
+
+    /**
+     * Gets the row of cell i.
+     *
+     * @param i
+     *        the index
+     * @return the row
+     */
+    public int row(int i) {
+        return i / dimension;
+    }
+
+    /**
+     * Gets the column of cell i.
+     *
+     * @param i
+     *        the index
+     * @return the column
+     */
+    public int col(int i) {
+        return i % dimension;
+    }
+
+    /**
+     * Gets the number in cell i.
+     *
+     * @param i
+     *        the index
+     * @return the number, 0 if the cell is empty
+     * @throws ArrayIndexOutOfBoundsException
+     *         if i is outside [0, cellCount() - 1]
+     */
+    public int get(int i) {
+        return bytes != null ? bytes[i] & 0xFF : shorts[i] & 0xFFFF;
+    }
+
+    /**
+     * Gets the number at row r, column c.
+     *
+     * @param r
+     *        the row
+     * @param c
+     *        the column
+     * @return the number, 0 if the cell is empty
+     */
+    public int get(int r, int c) {
+        return get(index(r, c));
+    }
+
+    /**
+     * Sets the number in cell i.
+     *
+     * The number is NOT checked against the dimension, only truncated to
+     * the width of the storage.
+     *
+     * @param i
+     *        the index
+     * @param n
+     *        the number, 0 to clear the cell
+     * @throws ArrayIndexOutOfBoundsException
+     *         if i is outside [0, cellCount() - 1]
+     */
+    public void set(int i, int n) {
+        if (bytes != null) {
+            bytes[i] = (byte) n;
+        } else {
+            shorts[i] = (short) n;
+        }
+    }
+
+    /**
+     * Sets the number at row r, column c.
+     *
+     * @param r
+     *        the row
+     * @param c
+     *        the column
+     * @param n
+     *        the number, 0 to clear the cell
+     * @see #set(int, int)
+     */
+    public void set(int r, int c, int n) {
+        set(index(r, c), n);
+    }
+
+    /**
+     * Clears all cells.
+     */
+    public void clear() {
+        if (bytes != null) {
+            Arrays.fill(bytes, (byte) 0);
+        } else {
+            Arrays.fill(shorts, (short) 0);
+        }
+    }
+
+    /**
+     * Returns a copy of the grid.
+     *
+     * @return the copy
+     */
+    public Grid copy() {
+        Grid g = new Grid(dimension);
+        g.copyFrom(this);
+        return g;
+    }
+
+    /**
+     * Overwrites the grid with the numbers of other, without allocating.
+     *
+     * @param other
+     *        the grid to copy
+     * @throws IllegalArgumentException
+     *         if other has another dimension
+     */
+    public void copyFrom(Grid other) {
+        if (other.dimension != dimension) {
+            throw new IllegalArgumentException();
+        }
+        if (bytes != null) {
+            System.arraycopy(other.bytes, 0, bytes, 0, bytes.length);
+        } else {
+            System.arraycopy(other.shorts, 0, shorts, 0, shorts.length);
+        }
+    }
+
+    /**
+     * Gets a copy of the grid as a matrix.
+     *
+     * @return the matrix
+     */
+    public int[][] getMatrix() {
+        int[][] matrix = new int[dimension][dimension];
+        for (int r = 0; r < dimension; r++) {
+            for (int c = 0; c < dimension; c++) {
+                matrix[r][c] = get(r, c);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Sets the grid to the numbers in nbrs.
+     *
+     * The numbers are copied, later changes to nbrs are not seen by the grid.
+     *
+     * @param nbrs
+     *        the matrix
+     * @throws IllegalArgumentException
+     *         if nbrs is not getDimension() x getDimension() or a number
+     *         is outside [0, getDimension()]
+     */
+    public void setMatrix(int[][] nbrs) {
+        if (nbrs.length != dimension) {
+            throw new IllegalArgumentException();
+        }
+        for (int r = 0; r < dimension; r++) {
+            if (nbrs[r] == null || nbrs[r].length != dimension) {
+                throw new IllegalArgumentException();
+            }
+            for (int c = 0; c < dimension; c++) {
+                if (nbrs[r][c] < 0 || nbrs[r][c] > dimension) {
+                    throw new IllegalArgumentException();
+                }
+            }
+        }
+        for (int r = 0; r < dimension; r++) {
+            for (int c = 0; c < dimension; c++) {
+                set(r, c, nbrs[r][c]);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Grid)) {
+            return false;
+        }
+        Grid other = (Grid) o;
+        return dimension == other.dimension &&
+               Arrays.equals(bytes, other.bytes) &&
+               Arrays.equals(shorts, other.shorts);
+    }
+
+    @Override
+    public int hashCode() {
+        return bytes != null ? Arrays.hashCode(bytes) : Arrays.hashCode(shorts);
+    }
+
+    /**
+     * Returns a string representation of the grid, one row per line.
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < dimension; r++) {
+            for (int c = 0; c < dimension; c++) {
+                if (c > 0) {
+                    sb.append(' ');
+                }
+                sb.append(get(r, c));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
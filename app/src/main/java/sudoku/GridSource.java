@@ -0,0 +1,72 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Something that sudokus are read from one at a time, such as PuzzleReader
+ * and PackedPuzzleReader, which it gives their stream().
+ */
+interface GridSource extends Closeable {
+
+    /**
+     * Reads the next sudoku into a new Grid.
+     *
+     * @return the grid, or null if there are no more sudokus
+     * @throws IOException
+     *         if reading fails
+     */
+    Grid read() throws IOException;
+
+    /**
+     * Returns a lazy stream of the sudokus not read yet, each in a new Grid.
+     *
+     * Closing the stream closes this reader. An IOException is thrown as
+     * an UncheckedIOException.
+     *
+     * @return the stream
+     */
+    default Stream<Grid> stream() {
+        Iterator<Grid> grids = new Iterator<Grid>() {
+            private Grid next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = read();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Grid next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Grid grid = next;
+                next = null;
+                return grid;
+            }
+        };
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(grids, Spliterator.ORDERED | Spliterator.NONNULL),
+            false).onClose(() -> {
+                try {
+                    close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+    }
+}
@@ -2,10 +2,20 @@ package sudoku;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.awt.*;
 import javax.swing.*;
 
 public class Gui {
+    // how often the progress indicator is updated while solving, in ms
+    private static final int PROGRESS_INTERVAL = 100;
+
+    private JButton solveButton;
+    private JButton clearButton;
+    private JButton cancelButton;
+    private JProgressBar progressBar;
+    private SolveWorker worker;
 
     public Gui(SudokuSolver s) {
         SwingUtilities.invokeLater(() -> createWindow(s, "Sudoku Solver", 300, 300));
@@ -87,14 +97,80 @@ public class Gui {
         }
     }
 
+    // Solves in a SwingWorker, so the window stays responsive. The search
+    // reports its node count to an AtomicLong that a Swing timer shows every
+    // PROGRESS_INTERVAL ms, and the cancel button cancels the token of its
+    // budget. Only the worker touches the solver while it runs, that's why
+    // solve and clear are disabled meanwhile.
     public void solveAction(JPanel grid, SudokuSolver s) {
         boolean ran = gridToSolver(grid, s);
         if (ran) {
-            boolean solved = s.solve();
+            worker = new SolveWorker(grid, s);
+            worker.execute();
+        }
+    }
+
+    public void cancelAction() {
+        if (worker != null) {
+            worker.token.cancel();
+        }
+    }
+
+    private void setSolving(boolean solving) {
+        solveButton.setEnabled(!solving);
+        clearButton.setEnabled(!solving);
+        cancelButton.setEnabled(solving);
+        progressBar.setIndeterminate(solving);
+    }
+
+    private class SolveWorker extends SwingWorker<SolveResult, Void> {
+        final CancellationToken token = new CancellationToken();
+        final AtomicLong nodes = new AtomicLong();
+        final JPanel grid;
+        final SudokuSolver s;
+        final Timer timer;
+
+        SolveWorker(JPanel grid, SudokuSolver s) {
+            this.grid = grid;
+            this.s = s;
+            this.timer = new Timer(PROGRESS_INTERVAL,
+                                   e -> progressBar.setString(nodes.get() + " nodes"));
+            setSolving(true);
+            progressBar.setString("Solving...");
+            timer.start();
+        }
+
+        @Override
+        protected SolveResult doInBackground() {
+            return s.solve(Budget.ofToken(token).withProgress(nodes::set));
+        }
+
+        @Override
+        protected void done() {
+            timer.stop();
+            setSolving(false);
+            worker = null;
+            SolveResult result;
+            try {
+                result = get();
+            } catch (InterruptedException | ExecutionException e) {
+                progressBar.setString("Error: " + e.getCause());
+                return;
+            }
+            long searched = result.getStats().getNodes();
             solverToGrid(grid, s);
-            if (!solved) {
-                JOptionPane pane = new JOptionPane("Could not find a solution!");
-                pane.createDialog(grid, "Info").setVisible(true);
+            switch (result.getStatus()) {
+                case SOLVED:
+                    progressBar.setString("Solved in " + searched + " nodes");
+                    break;
+                case UNSOLVABLE:
+                    progressBar.setString("No solution in " + searched + " nodes");
+                    JOptionPane pane = new JOptionPane("Could not find a solution!");
+                    pane.createDialog(grid, "Info").setVisible(true);
+                    break;
+                case ABORTED:
+                    progressBar.setString("Cancelled after " + searched + " nodes");
+                    break;
             }
         }
     }
@@ -150,14 +226,24 @@ public class Gui {
 
         JPanel buttonPanel = new JPanel();
 
-        JButton solveButton = new JButton("Solve");
+        solveButton = new JButton("Solve");
         solveButton.addActionListener(e -> { solveAction(grid, s); });
         buttonPanel.add(solveButton);
 
-        JButton clearButton = new JButton("Clear");
+        cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> { cancelAction(); });
+        cancelButton.setEnabled(false);
+        buttonPanel.add(cancelButton);
+
+        clearButton = new JButton("Clear");
         clearButton.addActionListener(e -> { clearAction(grid, s); });
         buttonPanel.add(clearButton);
 
+        progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
+        buttonPanel.add(progressBar);
+
         mainPane.add(buttonPanel, BorderLayout.PAGE_END); 
         mainFrame.pack();
         mainFrame.setVisible(true);
@@ -0,0 +1,433 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads a file of sudokus in the LINE format of PuzzleReader by mapping it
+ * into memory.
+ *
+ * The file is mapped with FileChannel.map, a window of at most 256 MiB at
+ * a time, and the cells are parsed straight from the mapped bytes into
+ * Grids, without being copied through Strings or buffers. The file can be
+ * split on line boundaries into chunks, to be read by separate workers,
+ * and stream().parallel() splits it in halves at line boundaries by
+ * itself, so a file of any size is read at the speed of the consumers.
+ *
+ * Malformed input throws an IllegalArgumentException whose message starts
+ * with the byte offset of the line. A MappedPuzzleReader should be closed
+ * when done with; the mapped windows are released by the garbage
+ * collector.
+ */
+public final class MappedPuzzleReader implements Closeable {
+    // the largest part of the file mapped at a time
+    private static final long WINDOW = 1L << 28;
+    // the smallest part of the file a parallel stream splits off
+    private static final long MIN_SPLIT = 1L << 16;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long window;
+
+    /**
+     * A part of the file that starts at the start of a line and ends at
+     * the end of one. A chunk reads its sudokus in order and is not
+     * thread safe.
+     */
+    public final class Chunk {
+        private final long start;
+        private final long end;
+        private long pos;
+        private MappedByteBuffer mapped;
+        private long mappedStart;
+        private long mappedEnd;
+
+        /**
+         * Constructs a new Chunk.
+         *
+         * @param start
+         *        the offset of the first byte
+         * @param end
+         *        the offset after the last byte
+         */
+        private Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.pos = start;
+        }
+
+        /**
+         * Gets the offset in the file of the first byte of the chunk.
+         *
+         * @return the offset
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * Gets the offset in the file after the last byte of the chunk.
+         *
+         * @return the offset
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        /**
+         * Reads the next sudoku of the chunk into a new Grid.
+         *
+         * @return the grid, or null if there are no more sudokus
+         * @throws IOException
+         *         if the file cannot be mapped
+         * @throws IllegalArgumentException
+         *         if the line is malformed
+         */
+        public Grid read() throws IOException {
+            return parse(null);
+        }
+
+        /**
+         * Reads the next sudoku of the chunk into grid, replacing all its
+         * numbers.
+         *
+         * @param grid
+         *        the grid
+         * @return true if a sudoku was read, false if there are no more
+         * @throws IOException
+         *         if the file cannot be mapped
+         * @throws IllegalArgumentException
+         *         if the line is malformed or the sudoku does not have the
+         *         dimension of grid
+         */
+        public boolean read(Grid grid) throws IOException {
+            return parse(grid) != null;
+        }
+
+        /**
+         * Returns a lazy stream of the sudokus of the chunk not read yet.
+         *
+         * An IOException is thrown as an UncheckedIOException.
+         *
+         * @return the stream
+         */
+        public Stream<Grid> stream() {
+            return StreamSupport.stream(new Lines(this), false);
+        }
+
+        /**
+         * Parses the next non-blank line.
+         *
+         * @param into
+         *        the grid to read into, or null for a new one
+         * @return the grid, or null at the end of the chunk
+         */
+        private Grid parse(Grid into) throws IOException {
+            while (pos < end) {
+                long lineEnd = lineEnd();
+                int length = 0;
+                for (long p = pos; p < lineEnd; p++) {
+                    if (!isSpace(byteAt(p))) {
+                        length++;
+                    }
+                }
+                if (length == 0) {
+                    pos = lineEnd + 1;
+                    continue;
+                }
+                int dim = (int) Math.sqrt(length);
+                if (dim * dim != length) {
+                    throw malformed("a line of " + length + " cells is not a square sudoku");
+                }
+                Grid grid = into == null ? Grid.ofDimension(dim) : into;
+                if (grid.getDimension() != dim) {
+                    throw malformed("a " + dim + "x" + dim + " sudoku does not fit a grid of dimension " +
+                                    grid.getDimension());
+                }
+                int i = 0;
+                for (long p = pos; p < lineEnd; p++) {
+                    int ch = byteAt(p);
+                    if (isSpace(ch)) {
+                        continue;
+                    }
+                    int n = PuzzleReader.cellOf(ch);
+                    if (n < 0) {
+                        throw malformed("unexpected character '" + (char) ch + "'");
+                    } else if (n > dim) {
+                        throw malformed(n + " is out of bounds for a " + dim + "x" + dim + " sudoku");
+                    }
+                    grid.set(i++, n);
+                }
+                pos = lineEnd + 1;
+                return grid;
+            }
+            return null;
+        }
+
+        /**
+         * Finds the end of the line at pos, mapping the window so that it
+         * holds the whole line.
+         *
+         * @return the offset of the \n ending the line, or the end of the
+         *         chunk
+         */
+        private long lineEnd() throws IOException {
+            if (mapped == null || pos < mappedStart || pos >= mappedEnd) {
+                map(pos);
+            }
+            while (true) {
+                for (long p = pos; p < mappedEnd; p++) {
+                    if (byteAt(p) == '\n') {
+                        return p;
+                    }
+                }
+                if (mappedEnd == end) {
+                    return end;
+                }
+                if (mappedStart == pos) {
+                    throw malformed("line longer than " + window + " bytes");
+                }
+                map(pos);
+            }
+        }
+
+        /**
+         * Maps the window starting at from.
+         *
+         * @param from
+         *        the offset of the first byte of the window
+         */
+        private void map(long from) throws IOException {
+            mappedStart = from;
+            mappedEnd = Math.min(end, from + window);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, mappedEnd - from);
+        }
+
+        private int byteAt(long p) {
+            return mapped.get((int) (p - mappedStart)) & 0xff;
+        }
+
+        private IllegalArgumentException malformed(String message) {
+            return new IllegalArgumentException("byte " + pos + ": " + message);
+        }
+    }
+
+    /**
+     * Hands out the sudokus of a chunk, splitting off its first half at a
+     * line boundary when asked to.
+     */
+    private final class Lines implements Spliterator<Grid> {
+        private final Chunk chunk;
+
+        Lines(Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Grid> action) {
+            Grid grid;
+            try {
+                grid = chunk.read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (grid == null) {
+                return false;
+            }
+            action.accept(grid);
+            return true;
+        }
+
+        @Override
+        public Spliterator<Grid> trySplit() {
+            long remaining = chunk.end - chunk.pos;
+            if (remaining < 2 * MIN_SPLIT) {
+                return null;
+            }
+            long mid;
+            try {
+                mid = lineStart(chunk.pos + remaining / 2);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (mid <= chunk.pos || mid >= chunk.end) {
+                return null;
+            }
+            Lines prefix = new Lines(new Chunk(chunk.pos, mid));
+            chunk.pos = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            // bytes, not sudokus, but proportional to them
+            return chunk.end - chunk.pos;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
+    /**
+     * Constructs a new MappedPuzzleReader.
+     *
+     * @param channel
+     *        the open file
+     * @param window
+     *        the largest part of the file to map at a time
+     */
+    private MappedPuzzleReader(FileChannel channel, long window) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.window = window;
+    }
+
+    /**
+     * Returns a MappedPuzzleReader of a file.
+     *
+     * @param path
+     *        the file
+     * @return the MappedPuzzleReader
+     * @throws IOException
+     *         if the file cannot be opened
+     */
+    public static MappedPuzzleReader ofPath(Path path) throws IOException {
+        return ofPath(path, WINDOW);
+    }
+
+    /**
+     * Returns a MappedPuzzleReader of a file, with a custom window size.
+     *
+     * @param path
+     *        the file
+     * @param window
+     *        the largest part of the file to map at a time
+     * @return the MappedPuzzleReader
+     * @throws IOException
+     *         if the file cannot be opened
+     * @throws IllegalArgumentException
+     *         if window is less than 1 or larger than Integer.MAX_VALUE
+     */
+    static MappedPuzzleReader ofPath(Path path, long window) throws IOException {
+        if (window < 1 || window > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MappedPuzzleReader(channel, window);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the size of the file.
+     *
+     * @return the size in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Splits the file into chunks of about the same size, on line
+     * boundaries.
+     *
+     * There may be fewer chunks than asked for, if the file is small or
+     * has long lines, and none if the file is empty.
+     *
+     * @param count
+     *        the number of chunks
+     * @return the chunks, in the order of the file
+     * @throws IOException
+     *         if the file cannot be read
+     * @throws IllegalArgumentException
+     *         if count is less than 1
+     */
+    public List<Chunk> chunks(int count) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException();
+        }
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        long start = 0;
+        for (int k = 1; k <= count && start < size; k++) {
+            long end = k == count ? size : Math.max(start, lineStart(size / count * k));
+            if (end > start) {
+                chunks.add(new Chunk(start, end));
+                start = end;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns a lazy stream of all the sudokus of the file.
+     *
+     * A parallel stream splits the file on line boundaries. An IOException
+     * is thrown as an UncheckedIOException.
+     *
+     * @return the stream
+     */
+    public Stream<Grid> stream() {
+        return new Chunk(0, size).stream();
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException
+     *         if closing throws it
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Finds the first line starting at or after an offset.
+     *
+     * @param p
+     *        the offset
+     * @return the offset of the start of the line, or the size of the file
+     */
+    private long lineStart(long p) throws IOException {
+        if (p <= 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        long at = p - 1;
+        while (at < size) {
+            buffer.clear();
+            int n = channel.read(buffer, at);
+            if (n < 0) {
+                break;
+            }
+            for (int k = 0; k < n; k++) {
+                if (buffer.get(k) == '\n') {
+                    return at + k + 1;
+                }
+            }
+            at += n;
+        }
+        return size;
+    }
+
+    private static boolean isSpace(int ch) {
+        return ch == ' ' || ch == '\t' || ch == '\r';
+    }
+}
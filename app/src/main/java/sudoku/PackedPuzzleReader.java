@@ -0,0 +1,224 @@
+package sudoku;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads sudokus in the packed binary format of PackedPuzzleWriter, straight
+ * into Grids.
+ *
+ * The header is read when the reader is created. Records are decoded from
+ * a buffer of the reader's own, so in need not be buffered, and read(Grid)
+ * reuses a grid and allocates nothing at all.
+ *
+ * Malformed input throws an IllegalArgumentException. A PackedPuzzleReader
+ * is not thread safe and should be closed when done with, which closes in.
+ */
+public final class PackedPuzzleReader implements GridSource {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final int dimension;
+    private final int bits;
+    private final int mask;
+    private final int recordSize;
+    private final byte[] buffer;
+    private int pos;
+    private int limit;
+    private long index;
+
+    /**
+     * Constructs a new PackedPuzzleReader.
+     *
+     * @param in
+     *        where to read
+     * @param dimension
+     *        the dimension given by the header
+     */
+    private PackedPuzzleReader(InputStream in, int dimension) {
+        this.in = in;
+        this.dimension = dimension;
+        this.bits = PackedPuzzleWriter.bitsPerCell(dimension);
+        this.mask = (1 << bits) - 1;
+        this.recordSize = PackedPuzzleWriter.recordSize(dimension);
+        this.buffer = new byte[Math.max(BUFFER_SIZE, recordSize)];
+    }
+
+    /**
+     * Returns a PackedPuzzleReader of in, reading the header.
+     *
+     * @param in
+     *        where to read
+     * @return the PackedPuzzleReader
+     * @throws IOException
+     *         if reading the header fails
+     * @throws IllegalArgumentException
+     *         if the header is not one of a supported version
+     */
+    public static PackedPuzzleReader of(InputStream in) throws IOException {
+        byte[] header = in.readNBytes(PackedPuzzleWriter.HEADER_SIZE);
+        if (header.length < PackedPuzzleWriter.HEADER_SIZE) {
+            throw new IllegalArgumentException("truncated header");
+        }
+        for (int k = 0; k < PackedPuzzleWriter.MAGIC.length; k++) {
+            if (header[k] != PackedPuzzleWriter.MAGIC[k]) {
+                throw new IllegalArgumentException("not a packed sudoku file");
+            }
+        }
+        if (header[4] != PackedPuzzleWriter.VERSION) {
+            throw new IllegalArgumentException("unsupported version " + header[4]);
+        }
+        int dim = (header[5] & 0xff) << 8 | (header[6] & 0xff);
+        if (dim == 0) {
+            throw new IllegalArgumentException("dimension 0");
+        }
+        return new PackedPuzzleReader(in, dim);
+    }
+
+    /**
+     * Gets the dimension of the sudokus, as given by the header.
+     *
+     * @return the dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Reads the next sudoku into a new Grid.
+     *
+     * @return the grid, or null if there are no more sudokus
+     * @throws IOException
+     *         if reading fails
+     * @throws IllegalArgumentException
+     *         if the record is malformed
+     */
+    @Override
+    public Grid read() throws IOException {
+        Grid grid = Grid.ofDimension(dimension);
+        return read(grid) ? grid : null;
+    }
+
+    /**
+     * Reads the next sudoku into grid, replacing all its numbers.
+     *
+     * @param grid
+     *        the grid
+     * @return true if a sudoku was read, false if there are no more
+     * @throws IOException
+     *         if reading fails
+     * @throws IllegalArgumentException
+     *         if the record is malformed or grid does not have the
+     *         dimension of the sudokus
+     */
+    public boolean read(Grid grid) throws IOException {
+        if (grid.getDimension() != dimension) {
+            throw new IllegalArgumentException();
+        }
+        if (!fill()) {
+            return false;
+        }
+        if (bits == 4) {
+            readNibbles(grid);
+        } else {
+            readBits(grid);
+        }
+        pos += recordSize;
+        index++;
+        return true;
+    }
+
+    /**
+     * Decodes the record at pos, two cells per byte, the common case of
+     * dimensions 8 to 15.
+     *
+     * @param grid
+     *        the grid to decode into
+     */
+    private void readNibbles(Grid grid) {
+        int b = pos;
+        int cells = grid.cellCount();
+        int max = 0;
+        for (int i = 0; i + 1 < cells; i += 2) {
+            int v = buffer[b++];
+            int high = (v >>> 4) & 0xf;
+            int low = v & 0xf;
+            grid.set(i, high);
+            grid.set(i + 1, low);
+            max = Math.max(max, Math.max(high, low));
+        }
+        if ((cells & 1) != 0) {
+            int high = (buffer[b] >>> 4) & 0xf;
+            grid.set(cells - 1, high);
+            max = Math.max(max, high);
+        }
+        if (max > dimension) {
+            throw new IllegalArgumentException("sudoku " + index + ": " + max +
+                                               " is out of bounds");
+        }
+    }
+
+    /**
+     * Decodes the record at pos, bit by bit.
+     *
+     * @param grid
+     *        the grid to decode into
+     */
+    private void readBits(Grid grid) {
+        long acc = 0;
+        int have = 0;
+        int b = pos;
+        int cells = grid.cellCount();
+        for (int i = 0; i < cells; i++) {
+            while (have < bits) {
+                acc = (acc << 8) | (buffer[b++] & 0xff);
+                have += 8;
+            }
+            have -= bits;
+            int n = (int) (acc >>> have) & mask;
+            if (n > dimension) {
+                throw new IllegalArgumentException("sudoku " + index + ": " + n +
+                                                   " is out of bounds");
+            }
+            grid.set(i, n);
+        }
+    }
+
+    /**
+     * Closes in.
+     *
+     * @throws IOException
+     *         if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Makes sure that the buffer holds a whole record at pos.
+     *
+     * @return true if it does, false at the end of the input
+     * @throws IllegalArgumentException
+     *         if the input ends within a record
+     */
+    private boolean fill() throws IOException {
+        if (limit - pos >= recordSize) {
+            return true;
+        }
+        System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+        limit -= pos;
+        pos = 0;
+        while (limit < recordSize) {
+            int n = in.read(buffer, limit, buffer.length - limit);
+            if (n < 0) {
+                if (limit == 0) {
+                    return false;
+                }
+                throw new IllegalArgumentException("sudoku " + index + ": truncated");
+            }
+            limit += n;
+        }
+        return true;
+    }
+}
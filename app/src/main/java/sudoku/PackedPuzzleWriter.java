@@ -0,0 +1,184 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes sudokus of one dimension in the packed binary format.
+ *
+ * The format is a header of 7 bytes, the magic "SUDK", a version byte and
+ * the dimension as an unsigned big endian short, followed by one record per
+ * sudoku. A record holds the cells in row-major order, each in the fewest
+ * bits that fit the numbers 0 to dim, most significant bit first, and is
+ * padded with zero bits to whole bytes. A 9x9 sudoku takes 4 bits per cell
+ * and 41 bytes, half of the LINE text format; 16x16 and 25x25 take 5 bits
+ * per cell. As every record has the same size the file can be split or
+ * indexed without being read.
+ *
+ * Records are collected in a buffer of the writer's own, so out need not
+ * be buffered. A PackedPuzzleWriter is not thread safe and should be
+ * closed when done with, which closes out.
+ */
+public final class PackedPuzzleWriter implements Closeable, Flushable {
+    static final byte[] MAGIC = {'S', 'U', 'D', 'K'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 7;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final int dimension;
+    private final int bits;
+    private final int recordSize;
+    private final byte[] buffer;
+    private int pos;
+
+    /**
+     * Constructs a new PackedPuzzleWriter.
+     *
+     * @param out
+     *        where to write
+     * @param dimension
+     *        the dimension of the sudokus
+     * @throws IllegalArgumentException
+     *        if the dimension is not in [1, 65535]
+     */
+    private PackedPuzzleWriter(OutputStream out, int dimension) {
+        if (dimension < 1 || dimension > 0xffff) {
+            throw new IllegalArgumentException();
+        }
+        this.out = out;
+        this.dimension = dimension;
+        this.bits = bitsPerCell(dimension);
+        this.recordSize = recordSize(dimension);
+        this.buffer = new byte[Math.max(BUFFER_SIZE, recordSize)];
+    }
+
+    /**
+     * Returns a PackedPuzzleWriter that writes the header to out, followed
+     * by sudokus of dimension dim.
+     *
+     * @param out
+     *        where to write
+     * @param dim
+     *        the dimension of the sudokus
+     * @return the PackedPuzzleWriter
+     * @throws IOException
+     *         if writing the header fails
+     * @throws IllegalArgumentException
+     *         if the dimension is not in [1, 65535]
+     */
+    public static PackedPuzzleWriter of(OutputStream out, int dim) throws IOException {
+        PackedPuzzleWriter w = new PackedPuzzleWriter(out, dim);
+        System.arraycopy(MAGIC, 0, w.buffer, 0, MAGIC.length);
+        w.buffer[4] = (byte) VERSION;
+        w.buffer[5] = (byte) (dim >>> 8);
+        w.buffer[6] = (byte) dim;
+        w.pos = HEADER_SIZE;
+        return w;
+    }
+
+    /**
+     * Gets the number of bits a cell of a sudoku of dimension dim takes.
+     *
+     * @param dim
+     *        the dimension
+     * @return the number of bits
+     */
+    static int bitsPerCell(int dim) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(dim);
+    }
+
+    /**
+     * Gets the number of bytes a sudoku of dimension dim takes.
+     *
+     * @param dim
+     *        the dimension
+     * @return the number of bytes
+     */
+    static int recordSize(int dim) {
+        return (int) (((long) dim * dim * bitsPerCell(dim) + 7) / 8);
+    }
+
+    /**
+     * Gets the dimension of the sudokus.
+     *
+     * @return the dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Writes a sudoku.
+     *
+     * @param grid
+     *        the sudoku
+     * @throws IOException
+     *         if writing fails
+     * @throws IllegalArgumentException
+     *         if grid does not have the dimension of the writer or holds a
+     *         number larger than it
+     */
+    public void write(Grid grid) throws IOException {
+        if (grid.getDimension() != dimension) {
+            throw new IllegalArgumentException();
+        }
+        if (pos + recordSize > buffer.length) {
+            flushBuffer();
+        }
+        long acc = 0;
+        int have = 0;
+        int b = pos;
+        int cells = grid.cellCount();
+        for (int i = 0; i < cells; i++) {
+            int n = grid.get(i);
+            if (n > dimension) {
+                throw new IllegalArgumentException();
+            }
+            acc = (acc << bits) | n;
+            have += bits;
+            while (have >= 8) {
+                have -= 8;
+                buffer[b++] = (byte) (acc >>> have);
+            }
+        }
+        if (have > 0) {
+            buffer[b++] = (byte) (acc << (8 - have));
+        }
+        pos = b;
+    }
+
+    /**
+     * Writes the buffered sudokus to out and flushes it.
+     *
+     * @throws IOException
+     *         if writing fails
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Writes the buffered sudokus and closes out.
+     *
+     * @throws IOException
+     *         if writing or closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, pos);
+        pos = 0;
+    }
+}
@@ -0,0 +1,447 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A SudokuSolver that searches one sudoku on several threads.
+ *
+ * The search tree is split close to the root into tasks that run in a
+ * ForkJoinPool. Each task has a PropagatingSolver of its own and searches
+ * in short slices; whenever no other task is waiting to be stolen it first
+ * hands over half of its untried branches as a new task. As soon as enough
+ * solutions are found, every task stops at the end of its current slice.
+ *
+ * The grid itself, and thereby all rule checks, is kept by a BitmaskSolver.
+ *
+ * Solvers that use all processors search in the common ForkJoinPool. For
+ * any other parallelism a pool is kept, for the few most recently used
+ * values only: the pool of a value that drops out is shut down once its
+ * searches are done, and a search that finds its pool shut down before it
+ * got in tries once more in a new one.
+ */
+public class ParallelSolver implements SudokuSolver {
+    // the number of pools kept for parallelisms other than the processors
+    private static final int MAX_POOLS = 4;
+    // the pools kept, the least recently used first
+    private static final Map<Integer, ForkJoinPool> POOLS =
+        new LinkedHashMap<Integer, ForkJoinPool>(MAX_POOLS + 1, 1, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ForkJoinPool> eldest) {
+                if (size() <= MAX_POOLS) {
+                    return false;
+                }
+                eldest.getValue().shutdown();
+                return true;
+            }
+        };
+    // the number of branches a task searches before it checks for work to
+    // hand over and for siblings having finished the search
+    private static final long SLICE = 256;
+
+    private final BitmaskSolver board;
+    private final int parallelism;
+    private SolveStats stats = SolveStats.NONE;
+
+    /**
+     * What the tasks of one search share.
+     */
+    private static final class Search {
+        final long limit;
+        final Budget budget;
+        final long start;
+        final AtomicLong found = new AtomicLong();
+        final AtomicLong searched = new AtomicLong();
+        final AtomicReference<int[]> first = new AtomicReference<>();
+        final AtomicReference<SolveStats> stats = new AtomicReference<>(SolveStats.NONE);
+        volatile boolean stop;
+        volatile boolean aborted;
+
+        Search(long limit, Budget budget, long start) {
+            this.limit = limit;
+            this.budget = budget;
+            this.start = start;
+        }
+
+        /**
+         * Adds the nodes of a slice and stops the search if the budget has
+         * run out.
+         *
+         * @param nodes
+         *        the number of nodes searched in the slice
+         */
+        void account(long nodes) {
+            if (budget.isExceeded(searched.addAndGet(nodes), start)) {
+                aborted = true;
+                stop = true;
+            }
+        }
+
+        /**
+         * Records the solution in the grid of engine.
+         *
+         * @param engine
+         *        the solver holding the solution
+         */
+        void report(BitmaskSolver engine) {
+            long n = found.incrementAndGet();
+            if (n <= limit && first.get() == null) {
+                int[] solution = new int[engine.cellCount()];
+                for (int i = 0; i < solution.length; i++) {
+                    solution[i] = engine.cell(i);
+                }
+                first.compareAndSet(null, solution);
+            }
+            if (n >= limit) {
+                stop = true;
+            }
+        }
+    }
+
+    /**
+     * Searches the subtree left in the search of one solver.
+     */
+    private static final class Task extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final BitmaskSolver engine;
+
+        Task(Search search, BitmaskSolver engine) {
+            this.search = search;
+            this.engine = engine;
+        }
+
+        @Override
+        protected void compute() {
+            List<Task> forked = new ArrayList<Task>();
+            while (!search.stop) {
+                if (getSurplusQueuedTaskCount() <= 0) {
+                    BitmaskSolver other = engine.newInstance();
+                    if (engine.splitInto(other)) {
+                        Task task = new Task(search, other);
+                        task.fork();
+                        forked.add(task);
+                    }
+                }
+                long before = engine.getSearchedCount();
+                int result = engine.resume(SLICE);
+                search.account(engine.getSearchedCount() - before);
+                if (result == BitmaskSolver.SOLVED) {
+                    search.report(engine);
+                } else if (result == BitmaskSolver.EXHAUSTED) {
+                    break;
+                }
+            }
+            search.stats.accumulateAndGet(engine.getStats(), SolveStats::plus);
+            for (Task task : forked) {
+                task.join();
+            }
+        }
+    }
+
+    /**
+     * Constructs a new ParallelSolver.
+     *
+     * @param dimension
+     *        The (quadratic) dimensions of the matrix.
+     * @param parallelism
+     *        The number of threads to search with.
+     * @throws IllegalArgumentException
+     *        if the dimension is not a square in [1, 64] or
+     *        parallelism is less than 1
+     */
+    private ParallelSolver(int dimension, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.board = new BitmaskSolver(dimension);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets the pool to search with parallelism threads in.
+     */
+    private static ForkJoinPool pool(int parallelism) {
+        if (parallelism == Runtime.getRuntime().availableProcessors()) {
+            return ForkJoinPool.commonPool();
+        }
+        synchronized (POOLS) {
+            return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+        }
+    }
+
+    /**
+     * Returns a ParallelSolver with sensible defaults, using all processors.
+     *
+     * @return the ParallelSolver
+     */
+    public static ParallelSolver ofDefaults() {
+        return new ParallelSolver(9, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns a ParallelSolver with a custom dimension, using all processors.
+     *
+     * @param dim
+     *        the dimension
+     * @return the ParallelSolver
+     * @throws IllegalArgumentException
+     *         if the dimension is not a square in [1, 64]
+     */
+    public static ParallelSolver ofDimension(int dim) {
+        return new ParallelSolver(dim, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns a ParallelSolver with a custom dimension and parallelism.
+     *
+     * Solvers with the same parallelism share one ForkJoinPool, the
+     * common pool if it is the number of processors.
+     *
+     * @param dim
+     *        the dimension
+     * @param parallelism
+     *        the number of threads to search with
+     * @return the ParallelSolver
+     * @throws IllegalArgumentException
+     *         if the dimension is not a square in [1, 64] or
+     *         parallelism is less than 1
+     */
+    public static ParallelSolver ofDimension(int dim, int parallelism) {
+        return new ParallelSolver(dim, parallelism);
+    }
+
+    /**
+     * Returns a ParallelSolver that has its matrix set to nbrs, using all
+     * processors.
+     *
+     * @param nbrs
+     *        the matrix
+     * @return the ParallelSolver
+     * @throws IllegalArgumentException
+     *         if setMatrix throws it
+     */
+    public static ParallelSolver ofMatrix(int[][] nbrs) {
+        ParallelSolver s = ofDimension(nbrs.length);
+        s.setMatrix(nbrs);
+        return s;
+    }
+
+    /**
+     * Gets the number of threads the solver searches with.
+     *
+     * @return the parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Gets the statistics of the last solve or countSolutions, summed over
+     * all tasks.
+     *
+     * The maximum depth is counted within each task, from the level it
+     * was split off at, so it is a lower bound of the depth reached.
+     *
+     * @return the statistics
+     */
+    @Override
+    public SolveStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public int getDimension() {
+        return board.getDimension();
+    }
+
+    @Override
+    public void setNumber(int r, int c, int nbr) {
+        board.setNumber(r, c, nbr);
+    }
+
+    @Override
+    public int getNumber(int r, int c) {
+        return board.getNumber(r, c);
+    }
+
+    @Override
+    public void clearNumber(int r, int c) {
+        board.clearNumber(r, c);
+    }
+
+    @Override
+    public boolean isValid(int r, int c, int nbr) {
+        return board.isValid(r, c, nbr);
+    }
+
+    @Override
+    public boolean isAllValid() {
+        return board.isAllValid();
+    }
+
+    @Override
+    public void clear() {
+        board.clear();
+    }
+
+    @Override
+    public int[][] getMatrix() {
+        return board.getMatrix();
+    }
+
+    @Override
+    public void setMatrix(int[][] nbrs) {
+        board.setMatrix(nbrs);
+    }
+
+    @Override
+    public Grid getGrid() {
+        return board.getGrid();
+    }
+
+    @Override
+    public void setGrid(Grid grid) {
+        board.setGrid(grid);
+    }
+
+    /**
+     * Solves the sudoku.
+     *
+     * Equivalent to solve(SolveMode.first()) > 0.
+     *
+     * @return true if a solution was found, false otherwise
+     */
+    @Override
+    public boolean solve() {
+        return solve(SolveMode.first()) > 0;
+    }
+
+    /**
+     * Searches for solutions in parallel until mode says to stop.
+     *
+     * If a solution is found, the grid is left holding one of them, not
+     * necessarily the same one every time, otherwise it is left untouched.
+     *
+     * @param mode
+     *        when to stop searching
+     * @return the number of solutions found, at most mode.getLimit()
+     */
+    @Override
+    public long solve(SolveMode mode) {
+        SolveEvent event = SolveEvents.begin(this);
+        Search search = run(mode.getLimit(), Budget.unlimited());
+        int[] first = search.first.get();
+        if (first != null) {
+            board.setCells(first);
+        }
+        long found = Math.min(search.found.get(), mode.getLimit());
+        SolveEvents.end(event, this, "solve", mode.getLimit(), found,
+                        found > 0 ? "SOLVED" : "UNSOLVABLE");
+        return found;
+    }
+
+    /**
+     * Searches for a solution in parallel until budget runs out.
+     *
+     * The tasks add up the nodes they search and check budget at the end
+     * of every slice, so a node budget can be overrun by a slice per
+     * thread. The grid is only touched if a solution is found.
+     *
+     * @param budget
+     *        when to give up
+     * @return SOLVED, UNSOLVABLE or ABORTED, with the statistics
+     */
+    @Override
+    public SolveResult solve(Budget budget) {
+        SolveEvent event = SolveEvents.begin(this);
+        Search search = run(1, budget);
+        int[] first = search.first.get();
+        if (first != null) {
+            board.setCells(first);
+        }
+        SolveResult.Status status = first != null ? SolveResult.Status.SOLVED :
+                                    search.aborted ? SolveResult.Status.ABORTED :
+                                                     SolveResult.Status.UNSOLVABLE;
+        SolveEvents.end(event, this, "solve", 1, first != null ? 1 : 0, status.name());
+        return new SolveResult(status, stats);
+    }
+
+    /**
+     * Counts the solutions of the sudoku in parallel, up to limit.
+     *
+     * The grid is left untouched.
+     *
+     * @param limit
+     *        the number of solutions after which to stop counting
+     * @return the number of solutions, at most limit
+     * @throws IllegalArgumentException
+     *         if limit is less than 1
+     */
+    @Override
+    public int countSolutions(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException();
+        }
+        SolveEvent event = SolveEvents.begin(this);
+        int found = (int) Math.min(run(limit, Budget.unlimited()).found.get(), limit);
+        SolveEvents.end(event, this, "count", limit, found,
+                        found == limit ? "FOUND" : "EXHAUSTED");
+        return found;
+    }
+
+    /**
+     * Runs the tasks of a search on a copy of the grid.
+     *
+     * @param limit
+     *        the number of solutions after which to stop
+     * @param budget
+     *        when to give up
+     * @return the search, with its results
+     */
+    private Search run(long limit, Budget budget) {
+        long start = System.nanoTime();
+        Search search = new Search(limit, budget, start);
+        BitmaskSolver engine = PropagatingSolver.ofDimension(getDimension());
+        engine.setCellOrder(CellOrder.FEWEST_CANDIDATES);
+        int[] cells = new int[board.cellCount()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = board.cell(i);
+        }
+        engine.setCells(cells);
+        int root = engine.startSearch() ? engine.resume(0) : BitmaskSolver.EXHAUSTED;
+        if (root == BitmaskSolver.SOLVED) {
+            // propagation alone solved it, with no node taken
+            search.report(engine);
+        }
+        boolean exceeded = budget.isExceeded(0, start);
+        if (root != BitmaskSolver.EXHAUSTED && !search.stop && !exceeded) {
+            Task task = new Task(search, engine);
+            ForkJoinPool pool = pool(parallelism);
+            try {
+                pool.invoke(task);
+            } catch (RejectedExecutionException e) {
+                if (!pool.isShutdown()) {
+                    throw e;
+                }
+                // the pool dropped out before the task got in
+                pool(parallelism).invoke(task);
+            }
+        } else {
+            search.aborted = root == BitmaskSolver.PAUSED;
+            search.stats.set(engine.getStats());
+        }
+        stats = search.stats.get().withElapsedNanos(System.nanoTime() - start);
+        return search;
+    }
+}
@@ -0,0 +1,165 @@
+package sudoku;
+
+/**
+ * A BitmaskSolver that deduces forced cells before every branch.
+ *
+ * At every node of the search two rules are applied over and over until
+ * neither of them fills in another cell:
+ *
+ * - naked singles: an empty cell with only one candidate gets it.
+ * - hidden singles: a number that fits in only one cell of a row, column
+ *   or box is placed there.
+ *
+ * Only then the search branches, which is why most sudokus are solved
+ * without any backtracking at all. If a sudoku has several solutions, the
+ * first one found is not necessarily the same as the one Solver finds.
+ */
+public class PropagatingSolver extends BitmaskSolver {
+
+    /**
+     * Constructs a new PropagatingSolver.
+     *
+     * @param dimension
+     *        The (quadratic) dimensions of the matrix.
+     * @throws IllegalArgumentException
+     *        if the dimension is not a square in [1, 64]
+     */
+    private PropagatingSolver(int dimension) {
+        super(dimension);
+    }
+
+    /**
+     * Returns a PropagatingSolver with sensible defaults.
+     *
+     * @return the PropagatingSolver
+     */
+    public static PropagatingSolver ofDefaults() {
+        return new PropagatingSolver(9);
+    }
+
+    /**
+     * Returns a PropagatingSolver with a custom dimension.
+     *
+     * @param dim
+     *        the dimension
+     * @return the PropagatingSolver
+     * @throws IllegalArgumentException
+     *         if the dimension is not a square in [1, 64]
+     */
+    public static PropagatingSolver ofDimension(int dim) {
+        return new PropagatingSolver(dim);
+    }
+
+    /**
+     * Returns a PropagatingSolver that has its matrix set to nbrs.
+     *
+     * @param nbrs
+     *        the matrix
+     * @return the PropagatingSolver
+     * @throws IllegalArgumentException
+     *         if setMatrix throws it
+     */
+    public static PropagatingSolver ofMatrix(int[][] nbrs) {
+        PropagatingSolver s = new PropagatingSolver(nbrs.length);
+        s.setMatrix(nbrs);
+        return s;
+    }
+
+    /**
+     * Creates an empty PropagatingSolver of the same dimension and cell order.
+     *
+     * @return the solver
+     */
+    @Override
+    BitmaskSolver newInstance() {
+        PropagatingSolver s = new PropagatingSolver(getDimension());
+        s.setCellOrder(getCellOrder());
+        return s;
+    }
+
+    /**
+     * Gets the number of cells filled in by propagation during the last solve.
+     *
+     * Cells that were filled in and later cleared again by backtracking are
+     * counted as well.
+     *
+     * @return the number of cells
+     */
+    public long getPropagatedCount() {
+        return propagated;
+    }
+
+    /**
+     * Applies naked and hidden singles until nothing changes.
+     *
+     * @return false if a cell or unit cannot be filled, true otherwise
+     */
+    @Override
+    boolean propagate() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < cellCount(); i++) {
+                if (cell(i) != 0) continue;
+                long cand = candidates(i);
+                if (cand == 0) {
+                    return false;
+                }
+                if ((cand & (cand - 1)) == 0) {
+                    assign(i, Long.numberOfTrailingZeros(cand) + 1);
+                    propagated++;
+                    changed = true;
+                }
+            }
+            for (int u = 0; u < 3 * getDimension(); u++) {
+                int result = propagateHiddenSingles(u);
+                if (result < 0) {
+                    return false;
+                }
+                changed |= result > 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Places every number that fits in only one cell of unit u.
+     *
+     * @param u
+     *        the unit
+     * @return -1 if a missing number fits nowhere in the unit,
+     *         otherwise the number of cells filled in
+     */
+    private int propagateHiddenSingles(int u) {
+        long once = 0;
+        long twice = 0;
+        for (int k = 0; k < getDimension(); k++) {
+            int i = unitCell(u, k);
+            if (cell(i) != 0) continue;
+            long cand = candidates(i);
+            twice |= once & cand;
+            once |= cand;
+        }
+        long missing = allNumbers() & ~unitMask(u);
+        if ((missing & ~once) != 0) {
+            return -1;
+        }
+        long singles = missing & once & ~twice;
+        int filled = 0;
+        while (singles != 0) {
+            long bit = singles & -singles;
+            singles ^= bit;
+            // an earlier single in this unit may have taken the cell
+            for (int k = 0; k < getDimension(); k++) {
+                int i = unitCell(u, k);
+                if (cell(i) == 0 && (candidates(i) & bit) != 0) {
+                    assign(i, Long.numberOfTrailingZeros(bit) + 1);
+                    propagated++;
+                    filled++;
+                    break;
+                }
+            }
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,415 @@
+package sudoku;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads sudokus from text, one at a time, straight into Grids.
+ *
+ * Characters are parsed from a buffer of the reader's own, without lines
+ * being split into Strings, and only one sudoku is held at a time, so a
+ * file of any size is read in constant memory. read(Grid) reuses a grid
+ * and allocates nothing at all; stream() reads lazily as it is consumed.
+ *
+ * Malformed input throws an IllegalArgumentException whose message starts
+ * with the line number. A PuzzleReader is not thread safe and should be
+ * closed when done with, which closes the underlying Reader.
+ */
+public final class PuzzleReader implements GridSource {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader in;
+    private final Format format;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private int line = 1;
+    // the numbers of the first row, or the characters of a line, before the
+    // dimension is known
+    private int[] scratch = new int[81];
+
+    /**
+     * The text formats.
+     */
+    public enum Format {
+        /**
+         * One row per line, the numbers separated by spaces and 0 for an
+         * empty cell, as in src/test/resources/sudokus. The dimension is
+         * the number of numbers in the first row. Blank lines between
+         * sudokus are skipped.
+         */
+        ROWS,
+
+        /**
+         * One sudoku per line, one character per cell: 1-9, then A-Z (or
+         * a-z) for 10-35, and . or 0 for an empty cell. The dimension is
+         * the square root of the length of the line, so a 9x9 sudoku is a
+         * line of 81 characters. Blank lines are skipped.
+         */
+        LINE
+    }
+
+    /**
+     * Constructs a new PuzzleReader.
+     *
+     * @param in
+     *        the text
+     * @param format
+     *        the format of the text
+     */
+    private PuzzleReader(Reader in, Format format) {
+        this.in = in;
+        this.format = format;
+    }
+
+    /**
+     * Returns a PuzzleReader of the text read by in.
+     *
+     * @param in
+     *        the text, buffering is not needed
+     * @param format
+     *        the format of the text
+     * @return the PuzzleReader
+     */
+    public static PuzzleReader of(Reader in, Format format) {
+        return new PuzzleReader(in, format);
+    }
+
+    /**
+     * Returns a PuzzleReader of a file.
+     *
+     * Both formats are ASCII, other bytes are read as ISO-8859-1 and
+     * rejected by the parser.
+     *
+     * @param path
+     *        the file
+     * @param format
+     *        the format of the file
+     * @return the PuzzleReader
+     * @throws IOException
+     *         if the file cannot be opened
+     */
+    public static PuzzleReader ofPath(Path path, Format format) throws IOException {
+        return new PuzzleReader(new InputStreamReader(Files.newInputStream(path),
+                                                      StandardCharsets.ISO_8859_1),
+                                format);
+    }
+
+    /**
+     * Guesses the format of a text from its start: ROWS if the first
+     * non-blank line has spaces between its cells, LINE otherwise.
+     *
+     * @param text
+     *        the start of the text, at least its first non-blank line
+     * @param length
+     *        the number of bytes of text to look at
+     * @return the format
+     */
+    static Format guess(byte[] text, int length) {
+        boolean cell = false;
+        for (int k = 0; k < length; k++) {
+            int ch = text[k];
+            if (ch == '\n') {
+                if (cell) {
+                    break;
+                }
+            } else if (ch == ' ' || ch == '\t') {
+                if (cell) {
+                    return Format.ROWS;
+                }
+            } else if (ch != '\r') {
+                cell = true;
+            }
+        }
+        return Format.LINE;
+    }
+
+    /**
+     * Gets the format.
+     *
+     * @return the format
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Reads the next sudoku into a new Grid.
+     *
+     * @return the grid, or null if there are no more sudokus
+     * @throws IOException
+     *         if the underlying Reader throws it
+     * @throws IllegalArgumentException
+     *         if the text is malformed
+     */
+    @Override
+    public Grid read() throws IOException {
+        return format == Format.ROWS ? readRows(null) : readLine(null);
+    }
+
+    /**
+     * Reads the next sudoku into grid, replacing all its numbers.
+     *
+     * @param grid
+     *        the grid
+     * @return true if a sudoku was read, false if there are no more
+     * @throws IOException
+     *         if the underlying Reader throws it
+     * @throws IllegalArgumentException
+     *         if the text is malformed or the sudoku does not have the
+     *         dimension of grid
+     */
+    public boolean read(Grid grid) throws IOException {
+        return (format == Format.ROWS ? readRows(grid) : readLine(grid)) != null;
+    }
+
+    /**
+     * Closes the underlying Reader.
+     *
+     * @throws IOException
+     *         if the underlying Reader throws it
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads a sudoku in the ROWS format.
+     *
+     * @param into
+     *        the grid to read into, or null for a new one
+     * @return the grid, or null at the end of the text
+     */
+    private Grid readRows(Grid into) throws IOException {
+        int ch = skipBlankLines();
+        if (ch < 0) {
+            return null;
+        }
+        int first = line;
+        // the first row gives the dimension
+        int dim = 0;
+        while ((ch = nextNumber()) >= 0) {
+            if (dim == scratch.length) {
+                scratch = Arrays.copyOf(scratch, dim * 2);
+            }
+            scratch[dim++] = ch;
+        }
+        Grid grid = gridOf(into, dim, first);
+        for (int c = 0; c < dim; c++) {
+            grid.set(c, checked(scratch[c], dim, first));
+        }
+        for (int r = 1; r < dim; r++) {
+            int c = 0;
+            int n;
+            while ((n = nextNumber()) >= 0) {
+                if (c == dim) {
+                    throw malformed("more than " + dim + " numbers in a row");
+                }
+                grid.set(r * dim + c++, checked(n, dim, line));
+            }
+            if (c < dim) {
+                throw malformed(c + " numbers in a row of a " + dim + "x" + dim + " sudoku");
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Reads the next number of the current line and skips the spaces
+     * around it, or consumes the end of the line.
+     *
+     * @return the number, or -1 at the end of the line or the text
+     */
+    private int nextNumber() throws IOException {
+        int ch;
+        while ((ch = peek()) == ' ' || ch == '\t') {
+            pos++;
+        }
+        if (ch < 0) {
+            return -1;
+        }
+        if (ch == '\n' || ch == '\r') {
+            endLine();
+            return -1;
+        }
+        if (ch < '0' || ch > '9') {
+            throw malformed("unexpected character '" + (char) ch + "'");
+        }
+        int n = 0;
+        while ((ch = peek()) >= '0' && ch <= '9') {
+            if (n > 0xffff) {
+                throw malformed("number too large");
+            }
+            n = n * 10 + ch - '0';
+            pos++;
+        }
+        while ((ch = peek()) == ' ' || ch == '\t') {
+            pos++;
+        }
+        return n;
+    }
+
+    /**
+     * Reads a sudoku in the LINE format.
+     *
+     * @param into
+     *        the grid to read into, or null for a new one
+     * @return the grid, or null at the end of the text
+     */
+    private Grid readLine(Grid into) throws IOException {
+        int ch = skipBlankLines();
+        if (ch < 0) {
+            return null;
+        }
+        int length = 0;
+        while ((ch = peek()) >= 0 && ch != '\n' && ch != '\r') {
+            pos++;
+            if (ch == ' ' || ch == '\t') {
+                continue;
+            }
+            if (length == scratch.length) {
+                scratch = Arrays.copyOf(scratch, length * 2);
+            }
+            int n = cellOf(ch);
+            if (n < 0) {
+                throw malformed("unexpected character '" + (char) ch + "'");
+            }
+            scratch[length++] = n;
+        }
+        int dim = (int) Math.sqrt(length);
+        if (dim * dim != length) {
+            throw malformed("a line of " + length + " cells is not a square sudoku");
+        }
+        Grid grid = gridOf(into, dim, line);
+        for (int i = 0; i < length; i++) {
+            grid.set(i, checked(scratch[i], dim, line));
+        }
+        endLine();
+        return grid;
+    }
+
+    /**
+     * Converts a character of the LINE format to a number.
+     *
+     * @param ch
+     *        the character
+     * @return the number, 0 for an empty cell, or -1 if ch is not a cell
+     */
+    static int cellOf(int ch) {
+        if (ch == '.' || (ch >= '0' && ch <= '9')) {
+            return ch == '.' ? 0 : ch - '0';
+        } else if (ch >= 'A' && ch <= 'Z') {
+            return ch - 'A' + 10;
+        } else if (ch >= 'a' && ch <= 'z') {
+            return ch - 'a' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the grid to read a sudoku of dimension dim into.
+     *
+     * @param into
+     *        the grid asked for, or null
+     * @param dim
+     *        the dimension of the sudoku
+     * @param at
+     *        the line the sudoku starts at
+     * @return into, or a new grid if into is null
+     */
+    private Grid gridOf(Grid into, int dim, int at) {
+        if (into == null) {
+            return Grid.ofDimension(dim);
+        }
+        if (into.getDimension() != dim) {
+            throw new IllegalArgumentException("line " + at + ": a " + dim + "x" + dim +
+                                               " sudoku does not fit a grid of dimension " +
+                                               into.getDimension());
+        }
+        return into;
+    }
+
+    /**
+     * Checks that n is a number of a sudoku of dimension dim.
+     *
+     * @param n
+     *        the number
+     * @param dim
+     *        the dimension of the sudoku
+     * @param at
+     *        the line of the number
+     * @return n
+     */
+    private static int checked(int n, int dim, int at) {
+        if (n > dim) {
+            throw new IllegalArgumentException("line " + at + ": " + n +
+                                               " is out of bounds for a " + dim + "x" + dim +
+                                               " sudoku");
+        }
+        return n;
+    }
+
+    /**
+     * Skips blank lines and leading spaces.
+     *
+     * @return the first character after them, not consumed, or -1 at the
+     *         end of the text
+     */
+    private int skipBlankLines() throws IOException {
+        int ch;
+        while ((ch = peek()) >= 0) {
+            if (ch == '\n' || ch == '\r') {
+                endLine();
+            } else if (ch == ' ' || ch == '\t') {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return ch;
+    }
+
+    /**
+     * Consumes a line break, \n, \r\n or \r.
+     */
+    private void endLine() throws IOException {
+        if (peek() == '\r') {
+            pos++;
+        }
+        if (peek() == '\n') {
+            pos++;
+        }
+        line++;
+    }
+
+    /**
+     * Returns the next character without consuming it, filling the buffer
+     * when it is empty.
+     *
+     * @return the character, or -1 at the end of the text
+     */
+    private int peek() throws IOException {
+        if (pos == limit) {
+            int n = in.read(buffer, 0, buffer.length);
+            while (n == 0) {
+                n = in.read(buffer, 0, buffer.length);
+            }
+            if (n < 0) {
+                return -1;
+            }
+            pos = 0;
+            limit = n;
+        }
+        return buffer[pos];
+    }
+
+    private IllegalArgumentException malformed(String message) {
+        return new IllegalArgumentException("line " + line + ": " + message);
+    }
+}
@@ -0,0 +1,69 @@
+package sudoku;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Flight Recorder event for a search that went past the node or time
+ * budget of SolveEvents.
+ *
+ * The event is committed when the search ends, its own duration is 0 and
+ * the time of the search is in elapsed. The budget is only checked then,
+ * so a search that never ends, or runs for hours, is not reported while
+ * it runs.
+ *
+ * @see SolveEvents
+ */
+@Name("sudoku.SlowSearch")
+@Label("Sudoku Slow Search")
+@Category("Sudoku")
+@Description("A search that visited more nodes or took longer than its budget")
+@StackTrace(false)
+final class SlowSearchEvent extends Event {
+    @Label("Engine")
+    String engine;
+
+    @Label("Operation")
+    @Description("solve or count")
+    String operation;
+
+    @Label("Dimension")
+    int dimension;
+
+    @Label("Clues")
+    @Description("The number of cells filled in before the search")
+    int clues;
+
+    @Label("Solutions")
+    long solutions;
+
+    @Label("Outcome")
+    @Description("SOLVED, UNSOLVABLE or ABORTED for solve, FOUND or EXHAUSTED for count")
+    String outcome;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Backtracks")
+    long backtracks;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Node Budget")
+    long nodeBudget;
+
+    @Label("Time Budget")
+    @Timespan(Timespan.NANOSECONDS)
+    long timeBudget;
+
+    @Label("Puzzle")
+    @Description("The sudoku as one line, row by row, 0 for empty cells")
+    String puzzle;
+}
@@ -0,0 +1,216 @@
+package sudoku;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the solutions of sudokus by their canonical form, so that a
+ * sudoku equivalent to one solved before, the same one relabelled,
+ * transposed or with its bands swapped for example, is not solved again.
+ *
+ * solve canonicalizes the sudoku of a solver and looks its canonical form
+ * up. On a hit the solution of the canonical form is mapped back through
+ * the inverse symmetry into the solver, without a search. On a miss the
+ * solver searches and the outcome, solved or unsolvable, is remembered in
+ * canonical form; an aborted search is not remembered.
+ *
+ * Canonicalizing counts against the time and the token of the budget of
+ * a solve. A sudoku with so many symmetries of its own that its canonical
+ * form is not found in time, such as some solved 36x36 ones, is given up
+ * on and solved with the time left, as a miss that is not remembered.
+ *
+ * At most capacity canonical forms are remembered, and the least recently
+ * used one is evicted to make room for a new one. A SolutionCache is
+ * thread safe and meant to be shared by the solvers of many threads.
+ */
+public final class SolutionCache {
+    // the outcome of an unsolvable sudoku, told apart by identity
+    private static final Grid UNSOLVABLE = Grid.ofDimension(0);
+
+    private final int capacity;
+    private final Map<Grid, Grid> entries;
+    private final ThreadLocal<Map<Integer, Canonicalizer>> canonicalizers =
+        ThreadLocal.withInitial(HashMap::new);
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs a new SolutionCache.
+     *
+     * @param capacity
+     *        the number of canonical forms to remember
+     * @throws IllegalArgumentException
+     *        if capacity is less than 1
+     */
+    private SolutionCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Grid, Grid>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Grid, Grid> eldest) {
+                if (size() > SolutionCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns an empty SolutionCache.
+     *
+     * @param capacity
+     *        the number of canonical forms to remember
+     * @return the SolutionCache
+     * @throws IllegalArgumentException
+     *         if capacity is less than 1
+     */
+    public static SolutionCache ofCapacity(int capacity) {
+        return new SolutionCache(capacity);
+    }
+
+    /**
+     * Solves the sudoku of a solver, from the cache if an equivalent one
+     * has been solved before.
+     *
+     * The solver is left as solve(Budget) would leave it: holding a
+     * solution if one is found, as it was otherwise. A hit reports no
+     * search, only the time of the lookup.
+     *
+     * @param solver
+     *        the solver, holding the sudoku
+     * @param budget
+     *        when to give up canonicalizing and a search
+     * @return SOLVED, UNSOLVABLE or ABORTED, with the statistics
+     * @throws IllegalArgumentException
+     *         if the dimension of the solver is not a positive square
+     */
+    public SolveResult solve(SudokuSolver solver, Budget budget) {
+        long start = System.nanoTime();
+        Grid grid = solver.getGrid();
+        Symmetry symmetry = canonicalizers.get()
+            .computeIfAbsent(grid.getDimension(), Canonicalizer::ofDimension)
+            .canonicalize(grid, budget, start);
+        if (symmetry == null) {
+            // the sudoku has too many symmetries of its own to canonicalize
+            // in time, so it is solved as if there was no cache
+            synchronized (this) {
+                misses++;
+            }
+            return solver.solve(remaining(budget, start));
+        }
+        Grid key = symmetry.apply(grid);
+        Grid solution;
+        synchronized (this) {
+            solution = entries.get(key);
+            if (solution != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if (solution == UNSOLVABLE) {
+            return new SolveResult(SolveResult.Status.UNSOLVABLE,
+                                   SolveStats.NONE.withElapsedNanos(System.nanoTime() - start));
+        }
+        if (solution != null) {
+            solver.setGrid(symmetry.inverse().apply(solution));
+            return new SolveResult(SolveResult.Status.SOLVED,
+                                   SolveStats.NONE.withElapsedNanos(System.nanoTime() - start));
+        }
+
+        SolveResult result = solver.solve(remaining(budget, start));
+        if (result.getStatus() != SolveResult.Status.ABORTED) {
+            Grid outcome = result.isSolved() ? symmetry.apply(solver.getGrid()) : UNSOLVABLE;
+            synchronized (this) {
+                entries.put(key, outcome);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the budget left of one whose timeout counts from start, as
+     * the timeout of a solve counts from its own start.
+     */
+    private static Budget remaining(Budget budget, long start) {
+        if (budget.getTimeoutNanos() < 0) {
+            return budget;
+        }
+        long left = budget.getTimeoutNanos() - (System.nanoTime() - start);
+        return budget.withTimeout(Math.max(0, left), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Solves the sudoku of a solver without a budget, from the cache if an
+     * equivalent one has been solved before.
+     *
+     * @param solver
+     *        the solver, holding the sudoku
+     * @return true if the sudoku was solved
+     * @see #solve(SudokuSolver, Budget)
+     */
+    public boolean solve(SudokuSolver solver) {
+        return solve(solver, Budget.unlimited()).isSolved();
+    }
+
+    /**
+     * Gets the number of canonical forms remembered.
+     *
+     * @return the number of canonical forms
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the largest number of canonical forms remembered.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of solves that were answered from the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of solves that had to search.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of canonical forms evicted to make room for others.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Forgets all canonical forms. The counts are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
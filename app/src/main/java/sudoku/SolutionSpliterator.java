@@ -0,0 +1,74 @@
+package sudoku;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A Spliterator over the solutions of a sudoku.
+ *
+ * Solutions are found one at a time, only when they are asked for, by a
+ * BitmaskSolver whose search is paused between them. Splitting hands over
+ * half of the untried branches closest to the root to a new Spliterator
+ * with a solver of its own, so that the parts of a parallel stream get
+ * large, independent subtrees.
+ *
+ * Each solution is a new matrix, as returned by getMatrix.
+ */
+final class SolutionSpliterator implements Spliterator<int[][]> {
+    private final BitmaskSolver engine;
+
+    /**
+     * Constructs a new SolutionSpliterator over the solutions of nbrs.
+     *
+     * @param nbrs
+     *        the matrix
+     * @throws IllegalArgumentException
+     *         if BitmaskSolver.setMatrix throws it
+     */
+    SolutionSpliterator(int[][] nbrs) {
+        this.engine = BitmaskSolver.ofDimension(nbrs.length);
+        engine.setCellOrder(CellOrder.FEWEST_CANDIDATES);
+        engine.setMatrix(nbrs);
+        engine.startSearch();
+    }
+
+    /**
+     * Constructs a new SolutionSpliterator over the search of engine.
+     *
+     * @param engine
+     *        the solver, with its search started
+     */
+    private SolutionSpliterator(BitmaskSolver engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super int[][]> action) {
+        if (engine.nextSolution()) {
+            action.accept(engine.getMatrix());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<int[][]> trySplit() {
+        BitmaskSolver other = engine.newInstance();
+        return engine.splitInto(other) ? new SolutionSpliterator(other) : null;
+    }
+
+    /**
+     * Returns Long.MAX_VALUE, the number of solutions is not known up front.
+     *
+     * @return Long.MAX_VALUE
+     */
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL | DISTINCT;
+    }
+}
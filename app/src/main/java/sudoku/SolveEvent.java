@@ -0,0 +1,58 @@
+package sudoku;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event covering one solve or countSolutions, from start
+ * to end.
+ *
+ * @see SolveEvents
+ */
+@Name("sudoku.Solve")
+@Label("Sudoku Solve")
+@Category("Sudoku")
+@Description("A search for the solutions of a sudoku")
+@StackTrace(false)
+final class SolveEvent extends Event {
+    @Label("Engine")
+    String engine;
+
+    @Label("Operation")
+    @Description("solve or count")
+    String operation;
+
+    @Label("Dimension")
+    int dimension;
+
+    @Label("Clues")
+    @Description("The number of cells filled in before the search")
+    int clues;
+
+    @Label("Limit")
+    @Description("The number of solutions after which to stop")
+    long limit;
+
+    @Label("Solutions")
+    long solutions;
+
+    @Label("Outcome")
+    @Description("SOLVED, UNSOLVABLE or ABORTED for solve, FOUND or EXHAUSTED for count")
+    String outcome;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Backtracks")
+    long backtracks;
+
+    @Label("Max Depth")
+    int maxDepth;
+
+    // the grid before the search, kept for SlowSearchEvent, not recorded
+    transient Grid puzzle;
+}
@@ -0,0 +1,172 @@
+package sudoku;
+
+import jdk.jfr.EventType;
+
+/**
+ * Flight Recorder events of the engines.
+ *
+ * Every solve and countSolutions of Solver, BitmaskSolver,
+ * PropagatingSolver, DancingLinksSolver and ParallelSolver records a
+ * sudoku.Solve event, and a sudoku.SlowSearch event if it visited more
+ * nodes or took longer than the budget set here. The budget starts out as
+ * the system properties sudoku.slowSearch.nodes and
+ * sudoku.slowSearch.millis, by default 1000000 nodes and 100 ms. The
+ * budget is checked when the search ends, so a search is never reported
+ * as slow while it runs.
+ *
+ * When Flight Recorder is not recording the events, all that is left of
+ * them is a check of two flags per search, and nothing is allocated.
+ */
+public final class SolveEvents {
+    private static final EventType SOLVE = EventType.getEventType(SolveEvent.class);
+    private static final EventType SLOW_SEARCH = EventType.getEventType(SlowSearchEvent.class);
+    private static volatile long nodeBudget = Long.getLong("sudoku.slowSearch.nodes", 1_000_000);
+    private static volatile long timeBudget =
+        Long.getLong("sudoku.slowSearch.millis", 100) * 1_000_000;
+
+    private SolveEvents() {}
+
+    /**
+     * Sets the budget of a search, past which a sudoku.SlowSearch event is
+     * recorded.
+     *
+     * @param nodes
+     *        the number of nodes
+     * @param millis
+     *        the time in milliseconds
+     * @throws IllegalArgumentException
+     *         if nodes or millis is negative
+     */
+    public static void setSlowSearchBudget(long nodes, long millis) {
+        if (nodes < 0 || millis < 0) {
+            throw new IllegalArgumentException();
+        }
+        nodeBudget = nodes;
+        timeBudget = millis * 1_000_000;
+    }
+
+    /**
+     * Gets the number of nodes past which a search is slow.
+     *
+     * @return the number of nodes
+     */
+    public static long getSlowSearchNodes() {
+        return nodeBudget;
+    }
+
+    /**
+     * Gets the time past which a search is slow.
+     *
+     * @return the time in milliseconds
+     */
+    public static long getSlowSearchMillis() {
+        return timeBudget / 1_000_000;
+    }
+
+    /**
+     * Starts the event of a search, before the grid is touched.
+     *
+     * @param s
+     *        the engine about to search
+     * @return the event, to be passed to end, or null if neither event is
+     *         being recorded
+     */
+    static SolveEvent begin(SudokuSolver s) {
+        boolean slow = SLOW_SEARCH.isEnabled();
+        if (!slow && !SOLVE.isEnabled()) {
+            return null;
+        }
+        SolveEvent event = new SolveEvent();
+        Grid grid = s.getGrid();
+        for (int i = 0; i < grid.cellCount(); i++) {
+            if (grid.get(i) != 0) {
+                event.clues++;
+            }
+        }
+        if (slow) {
+            event.puzzle = grid;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event of a search and records it, along with a slow search
+     * event if the search went past the budget.
+     *
+     * @param event
+     *        the event returned by begin, null if there was none
+     * @param s
+     *        the engine, having searched
+     * @param operation
+     *        solve or count
+     * @param limit
+     *        the number of solutions after which the search was to stop
+     * @param solutions
+     *        the number of solutions found
+     * @param outcome
+     *        how the search ended: SOLVED, UNSOLVABLE or ABORTED for solve,
+     *        FOUND if it stopped at the limit or EXHAUSTED if it did not
+     *        for count
+     */
+    static void end(SolveEvent event, SudokuSolver s, String operation,
+                    long limit, long solutions, String outcome) {
+        if (event == null) {
+            return;
+        }
+        if (event.isEnabled()) {
+            event.end();
+            if (event.shouldCommit()) {
+                SolveStats stats = s.getStats();
+                event.engine = s.getClass().getSimpleName();
+                event.operation = operation;
+                event.dimension = s.getDimension();
+                event.limit = limit;
+                event.solutions = solutions;
+                event.outcome = outcome;
+                event.nodes = stats.getNodes();
+                event.backtracks = stats.getBacktracks();
+                event.maxDepth = stats.getMaxDepth();
+                event.commit();
+            }
+        }
+        if (event.puzzle != null) {
+            SolveStats stats = s.getStats();
+            if (stats.getNodes() > nodeBudget || stats.getElapsedNanos() > timeBudget) {
+                SlowSearchEvent slow = new SlowSearchEvent();
+                slow.engine = s.getClass().getSimpleName();
+                slow.operation = operation;
+                slow.dimension = s.getDimension();
+                slow.clues = event.clues;
+                slow.solutions = solutions;
+                slow.outcome = outcome;
+                slow.nodes = stats.getNodes();
+                slow.backtracks = stats.getBacktracks();
+                slow.elapsed = stats.getElapsedNanos();
+                slow.nodeBudget = nodeBudget;
+                slow.timeBudget = timeBudget;
+                slow.puzzle = lineOf(event.puzzle);
+                slow.commit();
+            }
+        }
+    }
+
+    /**
+     * Writes a grid as one line, row by row. Numbers are digits up to
+     * dimension 9 and separated by spaces above that.
+     *
+     * @param grid
+     *        the grid
+     * @return the line
+     */
+    private static String lineOf(Grid grid) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < grid.cellCount(); i++) {
+            if (grid.getDimension() > 9 && i > 0) {
+                sb.append(' ');
+            }
+            sb.append(grid.get(i));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,81 @@
+package sudoku;
+
+/**
+ * How far a search goes before it stops.
+ *
+ * A search either stops at the first solution, after the first k
+ * solutions, or goes through the whole search tree. Whichever it is, the
+ * grid is left holding the first solution found.
+ */
+public final class SolveMode {
+    private static final SolveMode FIRST = new SolveMode(1);
+    private static final SolveMode EXHAUSTIVE = new SolveMode(Long.MAX_VALUE);
+
+    private final long limit;
+
+    /**
+     * Constructs a new SolveMode.
+     *
+     * @param limit
+     *        the number of solutions after which the search stops
+     */
+    private SolveMode(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Returns a SolveMode that stops at the first solution.
+     *
+     * @return the SolveMode
+     */
+    public static SolveMode first() {
+        return FIRST;
+    }
+
+    /**
+     * Returns a SolveMode that stops after the first k solutions.
+     *
+     * @param k
+     *        the number of solutions
+     * @return the SolveMode
+     * @throws IllegalArgumentException
+     *         if k is less than 1
+     */
+    public static SolveMode firstK(long k) {
+        if (k < 1) {
+            throw new IllegalArgumentException();
+        }
+        return k == 1 ? FIRST : new SolveMode(k);
+    }
+
+    /**
+     * Returns a SolveMode that finds every solution.
+     *
+     * @return the SolveMode
+     */
+    public static SolveMode exhaustive() {
+        return EXHAUSTIVE;
+    }
+
+    /**
+     * Gets the number of solutions after which the search stops.
+     *
+     * @return the limit, Long.MAX_VALUE for an exhaustive search
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns a string representation of the mode.
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        if (this == EXHAUSTIVE) {
+            return "exhaustive";
+        }
+        return "first " + limit;
+    }
+}
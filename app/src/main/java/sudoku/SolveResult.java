@@ -0,0 +1,80 @@
+package sudoku;
+
+/**
+ * The outcome of a search with a Budget: solved, unsolvable or aborted,
+ * along with what the search did up to then.
+ */
+public final class SolveResult {
+    private final Status status;
+    private final SolveStats stats;
+
+    /**
+     * How a search ended.
+     */
+    public enum Status {
+        /**
+         * A solution was found, the grid holds it.
+         */
+        SOLVED,
+
+        /**
+         * There is no solution, the grid is left untouched.
+         */
+        UNSOLVABLE,
+
+        /**
+         * The budget ran out first, the grid is left untouched.
+         */
+        ABORTED
+    }
+
+    /**
+     * Constructs a new SolveResult.
+     *
+     * @param status
+     *        how the search ended
+     * @param stats
+     *        what the search did
+     */
+    SolveResult(Status status, SolveStats stats) {
+        this.status = status;
+        this.stats = stats;
+    }
+
+    /**
+     * Gets how the search ended.
+     *
+     * @return the status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Checks if a solution was found.
+     *
+     * @return true if the status is SOLVED, false otherwise
+     */
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
+
+    /**
+     * Gets what the search did, up to where it was aborted if it was.
+     *
+     * @return the statistics
+     */
+    public SolveStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns a string representation of the result.
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        return status + " " + stats;
+    }
+}
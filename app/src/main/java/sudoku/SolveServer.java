@@ -0,0 +1,741 @@
+package sudoku;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Solves sudokus over HTTP, with the HttpServer of the JDK.
+ *
+ * POST /solve takes a sudoku in the ROWS or LINE text format, or as JSON,
+ * {"puzzle": "4.....8.5.3...", "timeoutMillis": 100} with the puzzle as a
+ * LINE string or as an array of rows. A text request can give its timeout
+ * as the query parameter timeoutMillis. The response is JSON:
+ * {"status": "SOLVED", "dimension": 9, "solution": [[...], ...],
+ * "nodes": 35, "backtracks": 0, "elapsedMicros": 41}, where the status is
+ * SOLVED, UNSOLVABLE or ABORTED, when the timeout ran out first, and the
+ * solution is null unless solved. A malformed request gets 400.
+ *
+ * Every request runs on a thread of its own, a virtual thread when the JDK
+ * has them (21 and later) and a pooled platform thread otherwise. At most
+ * concurrency sudokus are solved at a time, each with a solver borrowed
+ * from a pool, so no solver is ever shared. At most queueCapacity more
+ * requests wait for a turn; any request beyond those is rejected at once
+ * with 503 and Retry-After, so an overloaded server answers quickly
+ * instead of building up a backlog. A request that cannot get a turn
+ * within its timeout gets 503 as well.
+ *
+ * The body of a request is read before it is admitted, so a client that
+ * sends slowly holds a thread but none of those places, and the time it
+ * takes counts against the timeout of the request.
+ *
+ * TCP_NODELAY is set on the connections, through the system property
+ * sun.net.httpserver.nodelay unless it is set already. Otherwise every
+ * response on a kept-alive connection stalls for the delayed ack of the
+ * client. The JDK reads the property once, so it only takes effect if
+ * no HttpServer was created before the first SolveServer.
+ *
+ * Configure with the setters, then start.
+ */
+public final class SolveServer implements AutoCloseable {
+    // the largest request body, enough for any sudoku up to MAX_DIMENSION
+    private static final int MAX_BODY = 1 << 20;
+    private static final int MAX_DIMENSION = 64;
+    private static final String NODELAY = "sun.net.httpserver.nodelay";
+
+    private final HttpServer server;
+    private final Map<Integer, Queue<SudokuSolver>> solvers = new ConcurrentHashMap<>();
+    private final AtomicLong solved = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private IntFunction<? extends SudokuSolver> engines = DancingLinksSolver::ofDimension;
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 1024;
+    private long timeoutNanos = TimeUnit.SECONDS.toNanos(1);
+    private SolutionCache cache;
+    private Semaphore admission;
+    private Semaphore turns;
+    private ExecutorService executor;
+
+    /**
+     * Constructs a new SolveServer.
+     *
+     * @param address
+     *        the address to listen to
+     * @throws IOException
+     *        if the address cannot be bound
+     */
+    private SolveServer(InetSocketAddress address) throws IOException {
+        // without TCP_NODELAY the body of a response waits for the ack of
+        // its headers, which a kept-alive client delays by some 40 ms; the
+        // property is read when the first HttpServer is created
+        if (System.getProperty(NODELAY) == null) {
+            System.setProperty(NODELAY, "true");
+        }
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/solve", this::handle);
+    }
+
+    /**
+     * Returns a SolveServer, not started, bound to a port on all
+     * interfaces.
+     *
+     * @param port
+     *        the port, 0 for any free one
+     * @return the SolveServer
+     * @throws IOException
+     *         if the port cannot be bound
+     */
+    public static SolveServer ofPort(int port) throws IOException {
+        return new SolveServer(new InetSocketAddress(port));
+    }
+
+    /**
+     * Returns a SolveServer, not started, bound to an address.
+     *
+     * @param address
+     *        the address
+     * @return the SolveServer
+     * @throws IOException
+     *         if the address cannot be bound
+     */
+    public static SolveServer of(InetSocketAddress address) throws IOException {
+        return new SolveServer(address);
+    }
+
+    /**
+     * Sets the engine to solve with, DancingLinksSolver by default.
+     *
+     * @param engines
+     *        creates the solver of a dimension, for example
+     *        BitmaskSolver::ofDimension
+     * @throws IllegalStateException
+     *         if the server is started
+     */
+    public void setEngine(IntFunction<? extends SudokuSolver> engines) {
+        checkNotStarted();
+        this.engines = engines;
+    }
+
+    /**
+     * Sets the number of sudokus solved at a time, by default the number
+     * of processors.
+     *
+     * @param concurrency
+     *        the number of sudokus
+     * @throws IllegalArgumentException
+     *         if concurrency is less than 1
+     * @throws IllegalStateException
+     *         if the server is started
+     */
+    public void setConcurrency(int concurrency) {
+        checkNotStarted();
+        if (concurrency < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Sets the number of requests that may wait for a turn to be solved,
+     * 1024 by default.
+     *
+     * @param queueCapacity
+     *        the number of requests
+     * @throws IllegalArgumentException
+     *         if queueCapacity is negative
+     * @throws IllegalStateException
+     *         if the server is started
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        checkNotStarted();
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Sets the timeout of requests that do not give one, 1 second by
+     * default. It covers both the wait for a turn and the search.
+     *
+     * @param timeout
+     *        the time
+     * @param unit
+     *        the unit of timeout
+     * @throws IllegalArgumentException
+     *         if timeout is negative
+     * @throws IllegalStateException
+     *         if the server is started
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        checkNotStarted();
+        if (timeout < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Sets a cache to look solutions up in before solving, none by default.
+     *
+     * @param cache
+     *        the cache, or null for none
+     * @throws IllegalStateException
+     *         if the server is started
+     */
+    public void setCache(SolutionCache cache) {
+        checkNotStarted();
+        this.cache = cache;
+    }
+
+    /**
+     * Starts serving requests.
+     *
+     * @throws IllegalStateException
+     *         if the server is started
+     */
+    public void start() {
+        checkNotStarted();
+        admission = new Semaphore(concurrency + queueCapacity);
+        turns = new Semaphore(concurrency);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Gets the address the server listens to, with the actual port if it
+     * was given as 0.
+     *
+     * @return the address
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Gets the number of requests that have been solved, whatever the
+     * outcome.
+     *
+     * @return the number of requests
+     */
+    public long getSolvedCount() {
+        return solved.get();
+    }
+
+    /**
+     * Gets the number of requests that have been rejected because the
+     * server was overloaded.
+     *
+     * @return the number of requests
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Gets the number of requests being solved or waiting for a turn.
+     *
+     * @return the number of requests
+     */
+    public int getInFlightCount() {
+        return admission == null ? 0 : concurrency + queueCapacity - admission.availablePermits();
+    }
+
+    /**
+     * Stops the server, without waiting for requests in flight.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void checkNotStarted() {
+        if (executor != null) {
+            throw new IllegalStateException("started");
+        }
+    }
+
+    /**
+     * Creates an executor that runs every task on a new virtual thread if
+     * the JDK has them, or on pooled daemon threads otherwise. The number
+     * of threads is bounded by the admission either way, as rejected
+     * requests return at once.
+     *
+     * @return the executor
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "sudoku-server");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Handles a request to /solve.
+     *
+     * @param exchange
+     *        the request and its response
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, error("use POST"));
+                return;
+            }
+            long start = System.nanoTime();
+            Request request;
+            try {
+                request = parse(exchange);
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, error(e.getMessage()));
+                return;
+            }
+            // only a request read in full takes a place
+            if (!admission.tryAcquire()) {
+                reject(exchange);
+                return;
+            }
+            try {
+                // reading the request already took some of the timeout
+                long left = request.timeoutNanos - (System.nanoTime() - start);
+                if (!turns.tryAcquire(left, TimeUnit.NANOSECONDS)) {
+                    reject(exchange);
+                    return;
+                }
+                String response;
+                try {
+                    response = solve(request, start);
+                } finally {
+                    turns.release();
+                }
+                if (response == null) {
+                    respond(exchange, 400, error("the sudoku does not fit the solver"));
+                } else {
+                    respond(exchange, 200, response);
+                }
+            } finally {
+                admission.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Solves a sudoku with a pooled solver.
+     *
+     * @param request
+     *        the request
+     * @param start
+     *        the System.nanoTime() at which the request was received
+     * @return the response, or null if the solver does not accept the sudoku
+     */
+    private String solve(Request request, long start) {
+        int dim = request.grid.getDimension();
+        Queue<SudokuSolver> pool = solvers.computeIfAbsent(dim, d -> new ConcurrentLinkedQueue<>());
+        SudokuSolver s = pool.poll();
+        if (s == null) {
+            try {
+                s = engines.apply(dim);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        try {
+            try {
+                s.setGrid(request.grid);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            long left = Math.max(0, request.timeoutNanos - (System.nanoTime() - start));
+            Budget budget = Budget.ofTimeout(left, TimeUnit.NANOSECONDS);
+            SolveResult result = cache == null ? s.solve(budget) : cache.solve(s, budget);
+            solved.incrementAndGet();
+            return json(result, result.isSolved() ? s.getGrid() : null, dim);
+        } finally {
+            pool.offer(s);
+        }
+    }
+
+    private void reject(HttpExchange exchange) throws IOException {
+        rejected.incrementAndGet();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        respond(exchange, 503, error("overloaded"));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\": \"" + String.valueOf(message).replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    private static String json(SolveResult result, Grid solution, int dim) {
+        SolveStats stats = result.getStats();
+        StringBuilder sb = new StringBuilder(dim * dim * 3 + 128);
+        sb.append("{\"status\": \"").append(result.getStatus())
+          .append("\", \"dimension\": ").append(dim)
+          .append(", \"solution\": ");
+        if (solution == null) {
+            sb.append("null");
+        } else {
+            sb.append('[');
+            for (int r = 0; r < dim; r++) {
+                sb.append(r == 0 ? "[" : ", [");
+                for (int c = 0; c < dim; c++) {
+                    if (c > 0) {
+                        sb.append(',');
+                    }
+                    sb.append(solution.get(r, c));
+                }
+                sb.append(']');
+            }
+            sb.append(']');
+        }
+        sb.append(", \"nodes\": ").append(stats.getNodes())
+          .append(", \"backtracks\": ").append(stats.getBacktracks())
+          .append(", \"elapsedMicros\": ").append(stats.getElapsedNanos() / 1000)
+          .append('}');
+        return sb.toString();
+    }
+
+    /**
+     * A parsed request.
+     */
+    private static final class Request {
+        final Grid grid;
+        final long timeoutNanos;
+
+        Request(Grid grid, long timeoutNanos) {
+            this.grid = grid;
+            this.timeoutNanos = timeoutNanos;
+        }
+    }
+
+    /**
+     * Parses the body and query of a request.
+     *
+     * @throws IllegalArgumentException
+     *         if the request is malformed
+     */
+    private Request parse(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY + 1);
+        }
+        if (body.length > MAX_BODY) {
+            throw new IllegalArgumentException("request too large");
+        }
+        long timeout = timeoutNanos;
+        String millis = queryParameter(exchange.getRequestURI(), "timeoutMillis");
+        if (millis != null) {
+            timeout = millisToNanos(parseLong(millis));
+        }
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        Grid grid;
+        if (type != null && type.startsWith("application/json")) {
+            Object json = new Json(new String(body, StandardCharsets.UTF_8)).parse();
+            if (!(json instanceof Map)) {
+                throw new IllegalArgumentException("expected a JSON object");
+            }
+            Map<?, ?> object = (Map<?, ?>) json;
+            grid = grid(object.get("puzzle"));
+            Object t = object.get("timeoutMillis");
+            if (t instanceof Long) {
+                timeout = millisToNanos((Long) t);
+            } else if (t != null) {
+                throw new IllegalArgumentException("timeoutMillis must be an integer");
+            }
+        } else {
+            grid = text(new String(body, StandardCharsets.ISO_8859_1),
+                        PuzzleReader.guess(body, body.length));
+        }
+        if (grid.getDimension() > MAX_DIMENSION) {
+            throw new IllegalArgumentException("dimension above " + MAX_DIMENSION);
+        }
+        return new Request(grid, timeout);
+    }
+
+    private static Grid grid(Object puzzle) {
+        if (puzzle instanceof String) {
+            return text((String) puzzle, PuzzleReader.Format.LINE);
+        }
+        if (!(puzzle instanceof List)) {
+            throw new IllegalArgumentException("puzzle must be a string or an array of rows");
+        }
+        List<?> rows = (List<?>) puzzle;
+        int[][] nbrs = new int[rows.size()][];
+        for (int r = 0; r < nbrs.length; r++) {
+            if (!(rows.get(r) instanceof List)) {
+                throw new IllegalArgumentException("puzzle must be a string or an array of rows");
+            }
+            List<?> row = (List<?>) rows.get(r);
+            nbrs[r] = new int[row.size()];
+            for (int c = 0; c < nbrs[r].length; c++) {
+                Object n = row.get(c);
+                if (!(n instanceof Long) || (Long) n < 0 || (Long) n > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("cells must be numbers");
+                }
+                nbrs[r][c] = (int) (long) (Long) n;
+            }
+        }
+        return Grid.ofMatrix(nbrs);
+    }
+
+    private static Grid text(String text, PuzzleReader.Format format) {
+        try (PuzzleReader in = PuzzleReader.of(new StringReader(text), format)) {
+            Grid grid = in.read();
+            if (grid == null) {
+                throw new IllegalArgumentException("no sudoku");
+            }
+            return grid;
+        } catch (IOException e) {
+            // a StringReader does not throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String queryParameter(URI uri, String name) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(name + "=")) {
+                return pair.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    private static long parseLong(String s) {
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not an integer: " + s);
+        }
+    }
+
+    private static long millisToNanos(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("negative timeout");
+        }
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Parses the JSON of a request: objects become Maps, arrays Lists,
+     * integers Longs, other numbers Doubles.
+     */
+    private static final class Json {
+        private final String s;
+        private int pos;
+
+        Json(String s) {
+            this.s = s;
+        }
+
+        Object parse() {
+            Object value = value();
+            skipSpace();
+            if (pos < s.length()) {
+                throw malformed();
+            }
+            return value;
+        }
+
+        private Object value() {
+            skipSpace();
+            if (pos >= s.length()) {
+                throw malformed();
+            }
+            char ch = s.charAt(pos);
+            if (ch == '{') {
+                Map<String, Object> object = new HashMap<String, Object>();
+                pos++;
+                skipSpace();
+                if (peek() == '}') {
+                    pos++;
+                    return object;
+                }
+                do {
+                    skipSpace();
+                    if (peek() != '"') {
+                        throw malformed();
+                    }
+                    String key = string();
+                    skipSpace();
+                    expect(':');
+                    object.put(key, value());
+                    skipSpace();
+                } while (accept(','));
+                expect('}');
+                return object;
+            } else if (ch == '[') {
+                List<Object> array = new ArrayList<Object>();
+                pos++;
+                skipSpace();
+                if (peek() == ']') {
+                    pos++;
+                    return array;
+                }
+                do {
+                    array.add(value());
+                    skipSpace();
+                } while (accept(','));
+                expect(']');
+                return array;
+            } else if (ch == '"') {
+                return string();
+            } else if (s.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            } else if (s.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            } else if (s.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            return number();
+        }
+
+        private String string() {
+            StringBuilder sb = new StringBuilder();
+            pos++;
+            while (pos < s.length()) {
+                char ch = s.charAt(pos++);
+                if (ch == '"') {
+                    return sb.toString();
+                }
+                if (ch == '\\') {
+                    if (pos >= s.length()) {
+                        break;
+                    }
+                    char esc = s.charAt(pos++);
+                    switch (esc) {
+                        case 'n': sb.append('\n'); break;
+                        case 't': sb.append('\t'); break;
+                        case 'r': sb.append('\r'); break;
+                        case 'b': sb.append('\b'); break;
+                        case 'f': sb.append('\f'); break;
+                        case 'u':
+                            if (pos + 4 > s.length()) {
+                                throw malformed();
+                            }
+                            try {
+                                sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                            } catch (NumberFormatException e) {
+                                throw malformed();
+                            }
+                            pos += 4;
+                            break;
+                        default: sb.append(esc);
+                    }
+                } else {
+                    sb.append(ch);
+                }
+            }
+            throw malformed();
+        }
+
+        private Object number() {
+            int start = pos;
+            while (pos < s.length() && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0) {
+                pos++;
+            }
+            String n = s.substring(start, pos);
+            try {
+                if (n.indexOf('.') < 0 && n.indexOf('e') < 0 && n.indexOf('E') < 0) {
+                    return Long.parseLong(n);
+                }
+                return Double.parseDouble(n);
+            } catch (NumberFormatException e) {
+                throw malformed();
+            }
+        }
+
+        private void skipSpace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private int peek() {
+            return pos < s.length() ? s.charAt(pos) : -1;
+        }
+
+        private boolean accept(char ch) {
+            if (peek() == ch) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char ch) {
+            if (!accept(ch)) {
+                throw malformed();
+            }
+        }
+
+        private IllegalArgumentException malformed() {
+            return new IllegalArgumentException("malformed JSON at " + pos);
+        }
+    }
+
+    /**
+     * Serves on the port given as the argument, 8080 by default, until
+     * killed.
+     *
+     * @param args
+     *        the port, optionally
+     * @throws IOException
+     *         if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        SolveServer server = ofPort(args.length > 0 ? Integer.parseInt(args[0]) : 8080);
+        server.start();
+        System.err.println("solving on http://localhost:" + server.getAddress().getPort() + "/solve");
+    }
+}
@@ -0,0 +1,166 @@
+package sudoku;
+
+/**
+ * What a search did: how many nodes it visited, how often it backtracked,
+ * how deep it went, how many cells it filled in by propagation, how many
+ * times it looked at the candidates of a cell and how long it took.
+ *
+ * The engines count into primitive fields while searching and only create
+ * a SolveStats when asked for one, so counting allocates nothing. The
+ * counters that are not needed by the search itself are guarded by a
+ * static final flag, which the JIT folds away when the JVM is started
+ * with -Dsudoku.stats=false; they are then reported as 0.
+ *
+ * What a node or a candidate check is depends on the engine, see getNodes
+ * and getCandidateChecks. Numbers are comparable between runs of the same
+ * engine, not between engines.
+ */
+public final class SolveStats {
+    /**
+     * If the optional counters are collected.
+     */
+    static final boolean ENABLED = !"false".equals(System.getProperty("sudoku.stats"));
+
+    /**
+     * The statistics of an engine that has not searched, or does not count.
+     */
+    public static final SolveStats NONE = new SolveStats(0, 0, 0, 0, 0, 0);
+
+    private final long nodes;
+    private final long backtracks;
+    private final int maxDepth;
+    private final long propagated;
+    private final long candidateChecks;
+    private final long elapsedNanos;
+
+    /**
+     * Constructs a new SolveStats.
+     *
+     * @param nodes
+     *        the number of nodes visited
+     * @param backtracks
+     *        the number of dead ends backtracked from
+     * @param maxDepth
+     *        the deepest level reached
+     * @param propagated
+     *        the number of cells filled in by propagation
+     * @param candidateChecks
+     *        the number of candidate checks
+     * @param elapsedNanos
+     *        the wall clock time in nanoseconds
+     */
+    SolveStats(long nodes, long backtracks, int maxDepth, long propagated,
+               long candidateChecks, long elapsedNanos) {
+        this.nodes = nodes;
+        this.backtracks = backtracks;
+        this.maxDepth = maxDepth;
+        this.propagated = propagated;
+        this.candidateChecks = candidateChecks;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of nodes of the search tree that were visited, that
+     * is the number of numbers tried by branching (placements tried by
+     * DancingLinksSolver).
+     *
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the number of times the search ran out of numbers to try at a
+     * level and went back to the previous one.
+     *
+     * @return the number of backtracks
+     */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * Gets the deepest level of the search tree that was reached, 0 if the
+     * search never branched.
+     *
+     * @return the maximum depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Gets the number of cells filled in by propagation rather than by
+     * branching, including cells that were cleared again by backtracking.
+     *
+     * @return the number of cells
+     */
+    public long getPropagated() {
+        return propagated;
+    }
+
+    /**
+     * Gets the number of candidate checks: placements checked against the
+     * peers of a cell by Solver, candidate masks computed by BitmaskSolver
+     * and columns compared by DancingLinksSolver.
+     *
+     * @return the number of candidate checks
+     */
+    public long getCandidateChecks() {
+        return candidateChecks;
+    }
+
+    /**
+     * Gets the wall clock time of the search.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Adds up the counters of two searches of parts of the same tree. The
+     * maximum depth is the larger of the two, the time is the sum.
+     *
+     * @param other
+     *        the statistics to add
+     * @return the sum
+     */
+    SolveStats plus(SolveStats other) {
+        return new SolveStats(nodes + other.nodes,
+                              backtracks + other.backtracks,
+                              Math.max(maxDepth, other.maxDepth),
+                              propagated + other.propagated,
+                              candidateChecks + other.candidateChecks,
+                              elapsedNanos + other.elapsedNanos);
+    }
+
+    /**
+     * Returns a copy with another time.
+     *
+     * @param elapsedNanos
+     *        the wall clock time in nanoseconds
+     * @return the copy
+     */
+    SolveStats withElapsedNanos(long elapsedNanos) {
+        return new SolveStats(nodes, backtracks, maxDepth, propagated,
+                              candidateChecks, elapsedNanos);
+    }
+
+    /**
+     * Returns a string representation of the statistics.
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        return "nodes=" + nodes +
+               " backtracks=" + backtracks +
+               " maxDepth=" + maxDepth +
+               " propagated=" + propagated +
+               " candidateChecks=" + candidateChecks +
+               " elapsed=" + elapsedNanos / 1000 + "us";
+    }
+}
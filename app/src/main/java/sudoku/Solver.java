@@ -9,10 +9,15 @@ import java.util.Arrays;
 
 public class Solver implements SudokuSolver {
     private int dimension;
-    private int[][] matrix;
+    private Grid grid;
     private boolean bounds;
-    private int[][] origins;
-    private int boxSize;
+    private Geometry geometry;
+    // what the last solve did, see getStats
+    private long nodes;
+    private long backtracks;
+    private int maxDepth;
+    private long candidateChecks;
+    private long elapsed;
     
     /**
      * Constructs a new Solver.
@@ -21,13 +26,14 @@ public class Solver implements SudokuSolver {
      *        The (quadratic) dimensions of the matrix. 
      * @param bounds
      *        If the solver should check boundaries or not.
+     * @throws IllegalArgumentException
+     *        if the dimension is not a positive square
      */
     private Solver(int dimension, boolean bounds) {
         this.dimension = dimension;
         this.bounds = bounds;
-        this.matrix = new int[dimension][dimension];
-        this.boxSize = getBoxSize();
-        this.origins = getOrigins();
+        this.geometry = Geometry.ofDimension(dimension);
+        this.grid = Grid.ofDimension(dimension);
     }   
 
     /**
@@ -46,6 +52,8 @@ public class Solver implements SudokuSolver {
      *        the dimension 
      *
      * @return the Solver
+     * @throws IllegalArgumentException
+     *         if the dimension is not a positive square
      */
     public static Solver ofDimension(int dim) {
         return new Solver(dim, true);
@@ -124,51 +132,74 @@ public class Solver implements SudokuSolver {
     }
 
     /**
-     * Asserts that the matrix nbrs is quadratic and within bounds. 
+     * Asserts that the matrix nbrs is quadratic and has the dimension of the solver. 
      * 
      * @param nbrs
      *        the matrix
      * @throws IllegalArgumentException
-     *        if the matrix is not quadric or if the delegated method call
-     *        throws IllegalArgumentException 
+     *        if the matrix is not quadric or if its dimension is not getDimension()
      */
     private void assertMatrixIsWithinBounds(int[][] nbrs) {
         int rows = nbrs.length;
-        int cols = nbrs[0] != null ? nbrs[0].length : 0;
+        int cols = rows > 0 && nbrs[0] != null ? nbrs[0].length : 0;
         if (rows != cols) {  // must be quadratic
             throw new IllegalArgumentException();
-        } else {
-            assertIsWithinBounds(rows, cols);
+        } else if (rows != getDimension()) {
+            throw new IllegalArgumentException();
         }
     }
     
     /**
-     * Gets the matrix.  
+     * Gets a copy of the matrix.  
      * 
      * @return the matrix
      */
     public int[][] getMatrix() {
-        return this.matrix;
+        return this.grid.getMatrix();
     }
  
     /**
      * Sets the matrix. 
      *
-     * Bounds are checked by assertIsWithinBounds.
+     * The numbers are copied, later changes to nbrs are not seen by the solver.
      *
      * @throws IllegalArgumentException
-     *         if assertIsWithinBounds throws it
+     *         if nbrs is not getDimension() x getDimension() or a number
+     *         is outside [0, getDimension()]
      */ 
     public void setMatrix(int[][] nbrs) {
         assertMatrixIsWithinBounds(nbrs);
-        this.matrix = nbrs;
+        this.grid.setMatrix(nbrs);
     } 
 
+    /**
+     * Gets a copy of the grid.
+     *
+     * @return the grid
+     */
+    @Override
+    public Grid getGrid() {
+        return this.grid.copy();
+    }
+
+    /**
+     * Sets the grid. The numbers are copied.
+     *
+     * @param grid
+     *        the grid
+     * @throws IllegalArgumentException
+     *         if grid does not have the dimension of the solver
+     */
+    @Override
+    public void setGrid(Grid grid) {
+        this.grid.copyFrom(grid);
+    }
+
     /**
      * Clears the matrix.
      */
     public void clear() {
-        this.matrix = new int[getDimension()][getDimension()];
+        this.grid.clear();
     }
     
     /**
@@ -180,7 +211,7 @@ public class Solver implements SudokuSolver {
      */
     public int getNumber(int r, int c) {
         assertIsWithinBounds(r, c);
-        return this.matrix[r][c];
+        return this.grid.get(r, c);
     }
 
     /**
@@ -195,7 +226,7 @@ public class Solver implements SudokuSolver {
      */
     public void setNumber(int r, int c, int nbr) {
         assertIsWithinBounds(r, c, nbr);
-        this.matrix[r][c] = nbr;
+        this.grid.set(r, c, nbr);
     }
 
     /**
@@ -206,7 +237,7 @@ public class Solver implements SudokuSolver {
      */
     public void clearNumber(int r, int c) {
         assertIsWithinBounds(r, c);
-        this.matrix[r][c] = 0;    
+        this.grid.set(r, c, 0);
     }
 
     /**
@@ -249,7 +280,11 @@ public class Solver implements SudokuSolver {
      */
     public int[] getRow(int r) {
         assertIsWithinBounds(r, 0); 
-        return this.matrix[r].clone();
+        int[] row = new int[getDimension()];
+        for (int i = 0; i < getDimension(); i++) {
+            row[i] = this.grid.get(r, i);
+        }
+        return row;
     }
 
     /**
@@ -265,7 +300,7 @@ public class Solver implements SudokuSolver {
         assertIsWithinBounds(0, c);
         int[] col = new int[getDimension()];
         for (int i = 0; i < getDimension(); i++) {
-            col[i] = this.matrix[i][c];
+            col[i] = this.grid.get(i, c);
         }
         return col;
     }
@@ -280,27 +315,7 @@ public class Solver implements SudokuSolver {
      *         if assertIsWithinBounds throws it
      */
     public int getBoxSize() {
-        return (int) Math.sqrt((int) getDimension());
-    }
-
-    /**
-     * Gets all box origins.
-     *
-     * An origin of a box is its upper left point.
-     * 
-     * @return the origins
-     */
-    private int[][] getOrigins() {
-        int[][] origins = new int[getDimension()][2];
-        int i = 0;
-        for (int y = 0; y < getDimension(); y += this.boxSize) {
-            for (int x = 0; x < getDimension(); x += this.boxSize) {
-                origins[i][0] = y;
-                origins[i][1] = x; 
-                i++;
-            } 
-        }
-        return origins;
+        return this.geometry.getBoxSize();
     }
 
     /**
@@ -318,22 +333,10 @@ public class Solver implements SudokuSolver {
      */  
     public int[] getBox(int r, int c) {
         assertIsWithinBounds(r, c);
-        int size = this.boxSize;        
-        int[][] origins = this.origins; 
+        int u = 2 * getDimension() + this.geometry.boxOf(this.geometry.index(r, c));
         int[] box = new int[getDimension()];
-
-        for (int i = 0; i < getDimension(); i++) {
-            if (origins[i][0] <= r && r < origins[i][0] + size &&
-                origins[i][1] <= c && c < origins[i][1] + size) {
-
-                int j = 0;
-                for (int y = 0; y < size; y++) {
-                    for (int x = 0; x < size; x++) {
-                        box[j] = getNumber(origins[i][0] + y, origins[i][1] + x); 
-                        j++;
-                    }
-                } 
-            }
+        for (int k = 0; k < getDimension(); k++) {
+            box[k] = this.grid.get(this.geometry.unitCell(u, k));
         }
         return box;
     }
@@ -406,96 +409,199 @@ public class Solver implements SudokuSolver {
     /**
      * Check sudoku rules for the entire matrix.
      *
+     * Every row, column and box is checked once with Validator, which
+     * allocates nothing.
+     *
      * @return true if all sudoku rules are true for all positions,
      *         false otherwise 
      */
     public boolean isAllValid() {
-        for (int r = 0; r < getDimension(); r++) {
-            for (int c = 0; c < getDimension(); c++) {
-                if (!isValid(r, c)) return false;
-            }    
-        }
-        return true;
+        return Validator.isValid(this.grid);
     }
 
     /**
-     * Gets the row and column from row r and column c.
-     * 
-     * Bounds are NOT checked. This is because nextPosFrom should only be
-     * called in internal methods, which we assume are called correctly. An
-     * incorrect nextPosFrom call should then crash early and hard.
-     * 
-     * @param r
-     *        the row
-     * @param c
-     *        the column
-     * @return the row and column pair 
+     * Checks if nbr can be placed in the cell with index i without
+     * repeating a number in the row, column or box, by looking at the
+     * peers of the cell.
+     *
+     * Unlike isValid, this looks only at nbr and does not copy anything,
+     * which is why it is used by the search. It gives the same answer as
+     * isValid(r, c, nbr) as long as isAllValid is true.
+     *
+     * Bounds are NOT checked.
+     *
+     * @param i
+     *        the cell index, r * getDimension() + c
+     * @param nbr
+     *        the number
+     * @return true if nbr is not already used in the row, column or box
      */
-    private int[] nextPosFrom(int r, int c) {
-        int[] pos = new int[2];
-        if ((c + 1) == getDimension()) {
-            pos[0] = r + 1;
-            pos[1] = 0;
-        } else {
-            pos[0] = r;
-            pos[1] = c + 1;
+    private boolean canPlace(int i, int nbr) {
+        if (SolveStats.ENABLED) {
+            this.candidateChecks++;
         }
-        return pos;
-    }    
+        for (int j = 0; j < this.geometry.peerCount(); j++) {
+            if (this.grid.get(this.geometry.peer(i, j)) == nbr) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     /**
-     * Solves for the next position. 
-     * 
-     * @param r
-     *        the row
-     * @param c
-     *        the column
+     * Solves the sudoku.
+     *
+     * Equivalent to solve(SolveMode.first()) > 0.
+     *
      * @return true if a solution was found, false otherwise
      */
-    private boolean solveNext(int r, int c) {
-        int[] next = nextPosFrom(r, c);
-        return next[0] == getDimension() ? true : solve(next[0], next[1]); 
+    public boolean solve() {
+        return solve(SolveMode.first()) > 0;
     }
 
     /**
-     * Solves the sudoku.
+     * Searches for solutions until mode says to stop.
      *
-     * @return true if a solution was found, false otherwise
+     * The empty cells are visited in row-major order and numbers are tried
+     * in ascending order. The search is a loop over the empty cells instead
+     * of one recursive call per cell, so it does not run out of stack at
+     * large dimensions, and the number tried last in each cell is kept in
+     * the matrix itself, so nothing is allocated per step.
+     *
+     * If a solution is found, the matrix is left holding the first one,
+     * otherwise the empty cells are cleared again.
+     *
+     * @param mode
+     *        when to stop searching
+     * @return the number of solutions found, at most mode.getLimit()
      */
-    public boolean solve() {
-        int[][] oldMatrix = getMatrix();    
-        return solve(0, 0);
+    @Override
+    public long solve(SolveMode mode) {
+        SolveEvent event = SolveEvents.begin(this);
+        long found = search(mode, Budget.unlimited());
+        SolveEvents.end(event, this, "solve", mode.getLimit(), found,
+                        found > 0 ? "SOLVED" : "UNSOLVABLE");
+        return found;
     }
 
     /**
-     * Solves the sudoku at row r, column c.
+     * Searches for the first solution until budget runs out.
      *
-     * @param r
-     *        the row
-     * @param c
-     *        the column
-     * @return true if a solution was found, false otherwise
+     * The budget is checked every Budget.CHECK_INTERVAL nodes or, with a
+     * node budget, exactly when it is used up. An aborted search clears
+     * the cells it filled in.
+     *
+     * @param budget
+     *        when to give up
+     * @return SOLVED, UNSOLVABLE or ABORTED, with the statistics
      */
-    private boolean solve(int r, int c) {
-        if (getNumber(r, c) == 0) {
-            boolean isSolved = false;
-            for (int n = 1; n <= getDimension(); n++) {
-                if (isValid(r, c, n)) {
-                    setNumber(r, c, n);
-                    isSolved = solveNext(r, c);      
-                } 
+    @Override
+    public SolveResult solve(Budget budget) {
+        SolveEvent event = SolveEvents.begin(this);
+        long found = search(SolveMode.first(), budget);
+        SolveResult.Status status = found > 0 ? SolveResult.Status.SOLVED :
+                                    found == 0 ? SolveResult.Status.UNSOLVABLE :
+                                                 SolveResult.Status.ABORTED;
+        SolveEvents.end(event, this, "solve", 1, Math.max(found, 0), status.name());
+        return new SolveResult(status, getStats());
+    }
+
+    /**
+     * Runs the search of solve(mode) and counts what it does.
+     *
+     * @param mode
+     *        when to stop searching
+     * @param budget
+     *        when to give up
+     * @return the number of solutions found, at most mode.getLimit(),
+     *         or -1 if the budget ran out
+     */
+    private long search(SolveMode mode, Budget budget) {
+        long start = System.nanoTime();
+        this.nodes = 0;
+        this.backtracks = 0;
+        this.maxDepth = 0;
+        this.candidateChecks = 0;
+        this.elapsed = 0;
+        if (!isAllValid()) {
+            return 0;
+        }
+        int dim = getDimension();
+        int[] empty = new int[dim * dim];
+        int count = 0;
+        for (int i = 0; i < dim * dim; i++) {
+            if (this.grid.get(i) == 0) {
+                empty[count++] = i;
             }
-            if (!isSolved) {
-                clearNumber(r, c);
+        }
+
+        int[] first = null;
+        long found = 0;
+        int depth = 0;
+        long checkAt = 0;
+        while (depth >= 0) {
+            if (this.nodes >= checkAt) {
+                // a full grid is read off whatever the budget
+                if (budget.isExceeded(this.nodes, start) && depth < count) {
+                    for (int k = 0; k < count; k++) {
+                        this.grid.set(empty[k], 0);
+                    }
+                    this.elapsed = System.nanoTime() - start;
+                    return -1;
+                }
+                checkAt = this.nodes + budget.slice(this.nodes);
             }
-            return isSolved;
-        } else {
-            if (isValid(r, c)) {
-                return solveNext(r, c);
+            if (depth == count) {
+                if (found++ == 0 && mode.getLimit() > 1) {
+                    first = new int[count];
+                    for (int k = 0; k < count; k++) {
+                        first[k] = this.grid.get(empty[k]);
+                    }
+                }
+                if (found == mode.getLimit()) {
+                    break;
+                }
+                depth--;
+                continue;
+            }
+            int n = this.grid.get(empty[depth]) + 1;
+            while (n <= dim && !canPlace(empty[depth], n)) {
+                n++;
+            }
+            if (n <= dim) {
+                this.grid.set(empty[depth], n);
+                depth++;
+                this.nodes++;
+                if (SolveStats.ENABLED && depth > this.maxDepth) {
+                    this.maxDepth = depth;
+                }
             } else {
-                return false;
+                this.grid.set(empty[depth], 0);
+                depth--;
+                this.backtracks++;
             }
         }
+        if (first != null) {
+            for (int k = 0; k < count; k++) {
+                this.grid.set(empty[k], first[k]);
+            }
+        }
+        this.elapsed = System.nanoTime() - start;
+        return found;
+    }
+
+    /**
+     * Gets the statistics of the last solve.
+     *
+     * Nodes are numbers placed in empty cells and candidate checks are
+     * numbers checked against the peers of a cell. Nothing is propagated.
+     *
+     * @return the statistics
+     */
+    @Override
+    public SolveStats getStats() {
+        return new SolveStats(this.nodes, this.backtracks, this.maxDepth, 0,
+                              this.candidateChecks, this.elapsed);
     }
 
     /**
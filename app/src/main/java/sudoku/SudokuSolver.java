@@ -1,5 +1,8 @@
 package sudoku;
 
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 public interface SudokuSolver {
 
 
@@ -44,7 +47,160 @@ public interface SudokuSolver {
 		
 	// Försöker lösa sudokut och returnerar true om det var lösbart, annars false.
 	public boolean solve();
-		
+
+	/**
+	 * Searches for solutions until mode says to stop.
+	 * 
+	 * If at least one solution is found, the grid is left holding the
+	 * first one, otherwise it is left as it was. solve() is equivalent to
+	 * solve(SolveMode.first()) > 0.
+	 * 
+	 * The default implementation is a plain backtracking search built on
+	 * the other methods of this interface. Implementations are expected
+	 * to override it with their own, faster, search.
+	 * 
+	 * @param mode
+	 *            when to stop searching
+	 * @return the number of solutions found, at most mode.getLimit()
+	 */
+	public default long solve(SolveMode mode) {
+		int dim = getDimension();
+		if (!isAllValid()) {
+			return 0;
+		}
+		int[] empty = new int[dim * dim];
+		int count = 0;
+		for (int r = 0; r < dim; r++) {
+			for (int c = 0; c < dim; c++) {
+				if (getNumber(r, c) == 0) {
+					empty[count++] = r * dim + c;
+				}
+			}
+		}
+		int[] first = null;
+		long found = 0;
+		int depth = 0;
+		while (depth >= 0) {
+			if (depth == count) {
+				if (found++ == 0) {
+					first = new int[count];
+					for (int k = 0; k < count; k++) {
+						first[k] = getNumber(empty[k] / dim, empty[k] % dim);
+					}
+				}
+				if (found == mode.getLimit()) {
+					break;
+				}
+				depth--;
+				continue;
+			}
+			int r = empty[depth] / dim;
+			int c = empty[depth] % dim;
+			int n = getNumber(r, c) + 1;
+			while (n <= dim && !isValid(r, c, n)) {
+				n++;
+			}
+			if (n <= dim) {
+				setNumber(r, c, n);
+				depth++;
+			} else {
+				clearNumber(r, c);
+				depth--;
+			}
+		}
+		for (int k = 0; k < count; k++) {
+			if (first != null) {
+				setNumber(empty[k] / dim, empty[k] % dim, first[k]);
+			} else {
+				clearNumber(empty[k] / dim, empty[k] % dim);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Searches for the first solution until budget runs out.
+	 *
+	 * If a solution is found, the grid is left holding it, otherwise it is
+	 * left as it was, also when the search is aborted.
+	 *
+	 * The default implementation can only abort before it starts, if the
+	 * token of budget is already cancelled, and otherwise runs solve().
+	 * Implementations are expected to check budget during the search.
+	 *
+	 * @param budget
+	 *            when to give up
+	 * @return SOLVED, UNSOLVABLE or ABORTED, with the statistics
+	 */
+	public default SolveResult solve(Budget budget) {
+		if (budget.isCancelled()) {
+			return new SolveResult(SolveResult.Status.ABORTED, SolveStats.NONE);
+		}
+		boolean solved = solve();
+		return new SolveResult(solved ? SolveResult.Status.SOLVED
+		                              : SolveResult.Status.UNSOLVABLE, getStats());
+	}
+
+	/**
+	 * Counts the solutions of the sudoku, stopping as soon as limit
+	 * solutions are found. The grid is left untouched.
+	 * 
+	 * The default implementation copies the grid into a
+	 * DancingLinksSolver and counts with it.
+	 * 
+	 * @param limit
+	 *            the number of solutions after which to stop counting
+	 * @return the number of solutions, at most limit
+	 * @throws IllegalArgumentException
+	 *             if limit is less than 1
+	 */
+	public default int countSolutions(int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException();
+		}
+		return DancingLinksSolver.ofMatrix(getMatrix()).countSolutions(limit);
+	}
+
+	/**
+	 * Checks if the sudoku has exactly one solution. The grid is left
+	 * untouched.
+	 * 
+	 * @return true if there is one solution, false if there are none or
+	 *         more than one
+	 */
+	public default boolean hasUniqueSolution() {
+		return countSolutions(2) == 1;
+	}
+
+	/**
+	 * Returns a lazy stream of the solutions of the sudoku, as it is now.
+	 * 
+	 * Solutions are searched for only as the stream is consumed, so
+	 * solutions().limit(n) costs about n solves even for a sudoku with
+	 * an enormous number of solutions. A parallel stream splits the search
+	 * tree close to the root and searches the parts independently. Each
+	 * solution is a new matrix and the grid of this solver is never
+	 * touched.
+	 * 
+	 * @return the stream of solutions, empty if there are none
+	 */
+	public default Stream<int[][]> solutions() {
+		return StreamSupport.stream(new SolutionSpliterator(getMatrix()), false);
+	}
+
+	/**
+	 * Returns what the last solve or countSolutions did: nodes visited,
+	 * backtracks, depth, propagation, candidate checks and time.
+	 *
+	 * The default implementation keeps no statistics and returns
+	 * SolveStats.NONE.
+	 *
+	 * @return the statistics of the last search
+	 */
+	public default SolveStats getStats() {
+		return SolveStats.NONE;
+	}
+
 	// Tömmer alla rutorna i sudokut
 	public void clear();
 		
@@ -64,7 +220,31 @@ public interface SudokuSolver {
 	 *             if nbrs have wrong dimension or containing values not in [0..9] 
 	 */
 	public void setMatrix(int[][] nbrs);
-		
+
+	/**
+	 * Returns a copy of the numbers in the grid as a Grid.
+	 *
+	 * The default implementation goes through getMatrix.
+	 *
+	 * @return the grid
+	 */
+	public default Grid getGrid() {
+		return Grid.ofMatrix(getMatrix());
+	}
+
+	/**
+	 * Fills the grid with the numbers in grid. The numbers are copied.
+	 *
+	 * The default implementation goes through setMatrix.
+	 *
+	 * @param grid the grid with the numbers to insert
+	 * @throws IllegalArgumentException
+	 *             if grid has the wrong dimension or setMatrix throws it
+	 */
+	public default void setGrid(Grid grid) {
+		setMatrix(grid.getMatrix());
+	}
+
 	
 	/**
 	 * Returns the dimension of the grid
@@ -0,0 +1,218 @@
+package sudoku;
+
+import java.util.Arrays;
+
+/**
+ * A symmetry of sudokus: a transform that maps every sudoku to an
+ * equivalent one, with as many solutions, and every solution of it to a
+ * solution of the image.
+ *
+ * A symmetry optionally transposes the grid, then permutes the rows (the
+ * bands, and the rows within each band), then the columns (the stacks, and
+ * the columns within each stack) and finally relabels the numbers. Row r
+ * of the image is row getRow(r) of the (transposed) grid, column c is
+ * column getColumn(c) and number n becomes getNumber(n); 0, an empty cell,
+ * always stays 0.
+ *
+ * A Symmetry is immutable.
+ */
+public final class Symmetry {
+    private final boolean transposed;
+    private final int[] rows;
+    private final int[] cols;
+    private final int[] numbers;
+
+    /**
+     * Constructs a new Symmetry. The arrays are not copied.
+     *
+     * @param transposed
+     *        if the grid is transposed first
+     * @param rows
+     *        the row of the grid that every row of the image is
+     * @param cols
+     *        the column of the grid that every column of the image is
+     * @param numbers
+     *        what every number becomes, with numbers[0] == 0
+     */
+    Symmetry(boolean transposed, int[] rows, int[] cols, int[] numbers) {
+        this.transposed = transposed;
+        this.rows = rows;
+        this.cols = cols;
+        this.numbers = numbers;
+    }
+
+    /**
+     * Returns the symmetry that leaves every sudoku of a dimension as it is.
+     *
+     * @param dim
+     *        the dimension
+     * @return the Symmetry
+     * @throws IllegalArgumentException
+     *         if the dimension is not a positive square
+     */
+    public static Symmetry identity(int dim) {
+        Geometry.ofDimension(dim);
+        int[] order = new int[dim];
+        int[] numbers = new int[dim + 1];
+        for (int k = 0; k < dim; k++) {
+            order[k] = k;
+            numbers[k + 1] = k + 1;
+        }
+        return new Symmetry(false, order, order.clone(), numbers);
+    }
+
+    /**
+     * Gets the dimension of the sudokus this symmetry applies to.
+     *
+     * @return the dimension
+     */
+    public int getDimension() {
+        return rows.length;
+    }
+
+    /**
+     * Checks if the grid is transposed before its rows and columns are
+     * permuted.
+     *
+     * @return true if it is
+     */
+    public boolean isTransposed() {
+        return transposed;
+    }
+
+    /**
+     * Gets the row of the (transposed) grid that a row of the image is.
+     *
+     * @param r
+     *        the row of the image
+     * @return the row of the grid
+     */
+    public int getRow(int r) {
+        return rows[r];
+    }
+
+    /**
+     * Gets the column of the (transposed) grid that a column of the image
+     * is.
+     *
+     * @param c
+     *        the column of the image
+     * @return the column of the grid
+     */
+    public int getColumn(int c) {
+        return cols[c];
+    }
+
+    /**
+     * Gets the number that a number of the grid becomes.
+     *
+     * @param n
+     *        the number of the grid, 0 for an empty cell
+     * @return the number of the image
+     */
+    public int getNumber(int n) {
+        return numbers[n];
+    }
+
+    /**
+     * Applies this symmetry to a grid.
+     *
+     * @param grid
+     *        the grid
+     * @return the image, a new Grid
+     * @throws IllegalArgumentException
+     *         if grid does not have the dimension of this symmetry
+     */
+    public Grid apply(Grid grid) {
+        Grid image = Grid.ofDimension(grid.getDimension());
+        apply(grid, image);
+        return image;
+    }
+
+    /**
+     * Applies this symmetry to a grid, into another grid.
+     *
+     * @param grid
+     *        the grid
+     * @param image
+     *        the grid to write the image to, not grid itself
+     * @throws IllegalArgumentException
+     *         if the grids do not have the dimension of this symmetry, or
+     *         are the same grid
+     */
+    public void apply(Grid grid, Grid image) {
+        int dim = rows.length;
+        if (grid.getDimension() != dim || image.getDimension() != dim || grid == image) {
+            throw new IllegalArgumentException();
+        }
+        for (int r = 0; r < dim; r++) {
+            for (int c = 0; c < dim; c++) {
+                int n = transposed ? grid.get(cols[c], rows[r]) : grid.get(rows[r], cols[c]);
+                image.set(r, c, numbers[n]);
+            }
+        }
+    }
+
+    /**
+     * Returns the symmetry that undoes this one, which maps the image of
+     * every grid back to the grid.
+     *
+     * @return the inverse
+     */
+    public Symmetry inverse() {
+        int dim = rows.length;
+        int[] rowsInverse = new int[dim];
+        int[] colsInverse = new int[dim];
+        int[] numbersInverse = new int[dim + 1];
+        for (int k = 0; k < dim; k++) {
+            rowsInverse[rows[k]] = k;
+            colsInverse[cols[k]] = k;
+        }
+        for (int n = 0; n <= dim; n++) {
+            numbersInverse[numbers[n]] = n;
+        }
+        // a transposed image is transposed back, which swaps the roles of
+        // the rows and the columns
+        return transposed ? new Symmetry(true, colsInverse, rowsInverse, numbersInverse)
+                          : new Symmetry(false, rowsInverse, colsInverse, numbersInverse);
+    }
+
+    /**
+     * Compares this symmetry to another object.
+     *
+     * @param o
+     *        the object
+     * @return true if o is a Symmetry that does the same
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Symmetry)) {
+            return false;
+        }
+        Symmetry s = (Symmetry) o;
+        return transposed == s.transposed && Arrays.equals(rows, s.rows) &&
+               Arrays.equals(cols, s.cols) && Arrays.equals(numbers, s.numbers);
+    }
+
+    /**
+     * Returns a hash code of the symmetry.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return ((Boolean.hashCode(transposed) * 31 + Arrays.hashCode(rows)) * 31 +
+                Arrays.hashCode(cols)) * 31 + Arrays.hashCode(numbers);
+    }
+
+    /**
+     * Returns a string representation of the symmetry.
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        return (transposed ? "transposed, " : "") + "rows " + Arrays.toString(rows) +
+               ", columns " + Arrays.toString(cols) + ", numbers " + Arrays.toString(numbers);
+    }
+}
@@ -0,0 +1,119 @@
+package sudoku;
+
+/**
+ * Checks the sudoku rules for a whole grid.
+ *
+ * Every row, column and box is walked once, keeping the numbers seen so far
+ * in a long used as a bitmask, so a check is O(n²) and allocates nothing.
+ * Numbers above 64 are handled by walking the unit once per 64 numbers.
+ *
+ * A conflict is reported as a long holding two cell indices, see
+ * firstCell and secondCell, so that reporting allocates nothing either.
+ */
+public final class Validator {
+    /**
+     * What findConflict returns for a grid without conflicts.
+     */
+    public static final long NO_CONFLICT = -1;
+
+    private Validator() {}
+
+    /**
+     * Checks that no number occurs twice in any row, column or box.
+     *
+     * @param grid
+     *        the grid
+     * @return true if the grid follows the rules, false otherwise
+     * @throws IllegalArgumentException
+     *         if the dimension of the grid is not a positive square
+     */
+    public static boolean isValid(Grid grid) {
+        return findConflict(grid) == NO_CONFLICT;
+    }
+
+    /**
+     * Finds two cells in the same row, column or box that hold the same
+     * number.
+     *
+     * Rows are checked first, then columns, then boxes, and within a unit
+     * the pair whose second cell comes first is reported.
+     *
+     * @param grid
+     *        the grid
+     * @return NO_CONFLICT if the grid follows the rules, otherwise the
+     *         conflicting cells, to be read with firstCell and secondCell
+     * @throws IllegalArgumentException
+     *         if the dimension of the grid is not a positive square
+     */
+    public static long findConflict(Grid grid) {
+        int dim = grid.getDimension();
+        if (dim == 0) {
+            return NO_CONFLICT;
+        }
+        Geometry geometry = Geometry.ofDimension(dim);
+        int max = 0;
+        for (int i = 0; i < grid.cellCount(); i++) {
+            max = Math.max(max, grid.get(i));
+        }
+        for (int u = 0; u < geometry.unitCount(); u++) {
+            for (int low = 1; low <= max; low += Long.SIZE) {
+                long seen = 0;
+                for (int k = 0; k < dim; k++) {
+                    int n = grid.get(geometry.unitCell(u, k)) - low;
+                    if (n < 0 || n >= Long.SIZE) continue;
+                    long bit = 1L << n;
+                    if ((seen & bit) != 0) {
+                        return conflict(grid, geometry, u, k);
+                    }
+                    seen |= bit;
+                }
+            }
+        }
+        return NO_CONFLICT;
+    }
+
+    /**
+     * Gets the first, that is lowest, cell index of a conflict.
+     *
+     * @param conflict
+     *        a conflict returned by findConflict
+     * @return the cell index, r * dim + c
+     */
+    public static int firstCell(long conflict) {
+        return (int) (conflict >>> 32);
+    }
+
+    /**
+     * Gets the second, that is highest, cell index of a conflict.
+     *
+     * @param conflict
+     *        a conflict returned by findConflict
+     * @return the cell index, r * dim + c
+     */
+    public static int secondCell(long conflict) {
+        return (int) conflict;
+    }
+
+    /**
+     * Packs the conflict between the k:th cell of unit u and the earlier
+     * cell in the unit that holds the same number.
+     *
+     * @param grid
+     *        the grid
+     * @param geometry
+     *        the geometry of the grid
+     * @param u
+     *        the unit
+     * @param k
+     *        the position of the second cell in the unit
+     * @return the conflict
+     */
+    private static long conflict(Grid grid, Geometry geometry, int u, int k) {
+        int second = geometry.unitCell(u, k);
+        int j = 0;
+        while (grid.get(geometry.unitCell(u, j)) != grid.get(second)) {
+            j++;
+        }
+        return ((long) geometry.unitCell(u, j) << 32) | second;
+    }
+}
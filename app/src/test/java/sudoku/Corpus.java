@@ -0,0 +1,61 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Access to the bundled sudokus in src/test/resources/sudokus.
+ */
+class Corpus {
+
+    private Corpus() {}
+
+    /**
+     * Gets the names of all bundled sudokus, without the .txt suffix.
+     *
+     * @return the names
+     */
+    static List<String> names() {
+        List<String> names = new ArrayList<String>();
+        for (int i = 1; i <= 15; i++) {
+            for (char v = 'a'; v <= 'c'; v++) {
+                names.add(String.format("s%02d%c", i, v));
+            }
+        }
+        names.add("s16");
+        return names;
+    }
+
+    /**
+     * Loads the bundled sudoku with the given name.
+     *
+     * @param name
+     *        the name, for example "s01a"
+     * @return the matrix
+     */
+    static int[][] load(String name) {
+        String path = "/sudokus/" + name + ".txt";
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(Corpus.class.getResourceAsStream(path)))) {
+            List<int[]> rows = new ArrayList<int[]>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                String[] nums = line.split(" +");
+                int[] row = new int[nums.length];
+                for (int c = 0; c < nums.length; c++) {
+                    row[c] = Integer.parseInt(nums[c]);
+                }
+                rows.add(row);
+            }
+            return rows.toArray(new int[0][]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
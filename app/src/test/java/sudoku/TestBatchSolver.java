@@ -0,0 +1,233 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.*;
+
+class TestBatchSolver {
+    BatchSolver s;
+
+    @BeforeEach
+    void setUp() {
+        s = BatchSolver.ofThreads(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        s.close();
+        s = null;
+    }
+
+    /**
+     * Gets the corpus, repeated times times.
+     */
+    static List<int[][]> puzzles(int times) {
+        List<int[][]> puzzles = new ArrayList<int[][]>();
+        for (int t = 0; t < times; t++) {
+            for (String name : Corpus.names()) {
+                puzzles.add(Corpus.load(name));
+            }
+        }
+        return puzzles;
+    }
+
+    @Test
+    void testThreads() {
+        assertEquals(3, s.getThreads());
+        assertThrows(IllegalArgumentException.class,
+                     () -> {BatchSolver.ofThreads(0);});
+    }
+
+    @Test
+    void testInputOrder() {
+        List<int[][]> puzzles = puzzles(3);
+        List<BatchSolver.Result> results = s.solve(puzzles).collect(Collectors.toList());
+        assertEquals(puzzles.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            BatchSolver.Result r = results.get(i);
+            assertEquals(i, r.getIndex());
+            assertSame(puzzles.get(i), r.getPuzzle());
+            assertTrue(r.isSolved());
+            TestPropagatingSolver.assertSolves(puzzles.get(i), r.getSolution(), "puzzle " + i);
+        }
+    }
+
+    @Test
+    void testCompletionOrder() {
+        List<int[][]> puzzles = puzzles(3);
+        Set<Long> seen = new HashSet<Long>();
+        s.solve(puzzles.stream(), BatchSolver.Order.COMPLETION).forEach(r -> {
+            assertTrue(seen.add(r.getIndex()));
+            assertTrue(r.isSolved());
+            TestPropagatingSolver.assertSolves(puzzles.get((int) r.getIndex()),
+                                               r.getSolution(), "puzzle " + r.getIndex());
+        });
+        assertEquals(puzzles.size(), seen.size());
+    }
+
+    @Test
+    void testEngines() {
+        try (BatchSolver b = BatchSolver.of(2, PropagatingSolver::ofDimension)) {
+            List<int[][]> puzzles = puzzles(1);
+            puzzles.add(TestDancingLinksSolver.puzzleOf(16, 16));
+            assertEquals(puzzles.size(),
+                         b.solve(puzzles).filter(BatchSolver.Result::isSolved).count());
+        }
+    }
+
+    @Test
+    void testUnsolvable() {
+        int[][] duplicate = new int[9][9];
+        duplicate[0][0] = 5;
+        duplicate[0][1] = 5;
+        int[][] badNumber = new int[9][9];
+        badNumber[0][0] = 10;
+        List<int[][]> puzzles = new ArrayList<int[][]>();
+        puzzles.add(duplicate);
+        puzzles.add(Corpus.load("s01a"));
+        puzzles.add(badNumber);
+        List<BatchSolver.Result> results = s.solve(puzzles).collect(Collectors.toList());
+        assertFalse(results.get(0).isSolved());
+        assertNull(results.get(0).getSolution());
+        assertTrue(results.get(1).isSolved());
+        assertFalse(results.get(2).isSolved());
+    }
+
+    @Test
+    void testBadDimension() {
+        List<int[][]> puzzles = new ArrayList<int[][]>();
+        puzzles.add(new int[][] {{0, 1}, {2, 0}});
+        puzzles.add(Corpus.load("s01a"));
+        puzzles.add(new int[0][]);
+        puzzles.add(new int[][] {{0, 1, 2}, {3}, {}});
+        puzzles.add(Corpus.load("s02a"));
+        List<BatchSolver.Result> results = s.solve(puzzles).collect(Collectors.toList());
+        assertEquals(5, results.size());
+        for (int i : new int[] {0, 2, 3}) {
+            assertFalse(results.get(i).isSolved(), "puzzle " + i);
+            assertNull(results.get(i).getSolution());
+            assertEquals(i, results.get(i).getIndex());
+        }
+        assertTrue(results.get(1).isSolved());
+        assertTrue(results.get(4).isSolved());
+    }
+
+    @Test
+    void testFailure() {
+        try (BatchSolver b = BatchSolver.of(2, dim -> {
+                if (dim == 4) {
+                    throw new UnsupportedOperationException("no 4x4");
+                }
+                return BitmaskSolver.ofDimension(dim);
+            })) {
+            for (BatchSolver.Order order : BatchSolver.Order.values()) {
+                List<int[][]> puzzles = new ArrayList<int[][]>();
+                puzzles.add(Corpus.load("s01a"));
+                puzzles.add(new int[4][4]);
+                puzzles.add(Corpus.load("s02a"));
+                Iterator<BatchSolver.Result> results = b.solve(puzzles, order).iterator();
+                int solved = 0;
+                int failed = 0;
+                // the failure is thrown, from hasNext as the stream reads
+                // ahead, and the results after it still come
+                while (true) {
+                    try {
+                        if (!results.hasNext()) {
+                            break;
+                        }
+                        assertTrue(results.next().isSolved());
+                        solved++;
+                    } catch (IllegalStateException e) {
+                        assertTrue(e.getCause() instanceof UnsupportedOperationException);
+                        failed++;
+                    }
+                }
+                assertEquals(2, solved, order.toString());
+                assertEquals(1, failed, order.toString());
+            }
+        }
+    }
+
+    @Test
+    void testBlockingInput() throws InterruptedException {
+        for (BatchSolver.Order order : BatchSolver.Order.values()) {
+            // an input like stdin, that blocks until the next puzzle comes
+            BlockingQueue<int[][]> typed = new LinkedBlockingQueue<int[][]>();
+            int[][] end = new int[0][];
+            Iterator<int[][]> input = new Iterator<int[][]>() {
+                private int[][] next;
+
+                @Override
+                public boolean hasNext() {
+                    try {
+                        if (next == null) {
+                            next = typed.take();
+                        }
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return next != end;
+                }
+
+                @Override
+                public int[][] next() {
+                    hasNext();
+                    int[][] puzzle = next;
+                    next = null;
+                    return puzzle;
+                }
+            };
+            Iterator<BatchSolver.Result> results = s.solve(() -> input, order).iterator();
+            for (int k = 0; k < 3; k++) {
+                typed.add(Corpus.load("s01a"));
+                // handed out while the input waits for the next puzzle
+                assertTrue(results.hasNext(), order.toString());
+                assertTrue(results.next().isSolved(), order.toString());
+            }
+            typed.add(end);
+            assertFalse(results.hasNext(), order.toString());
+        }
+    }
+
+    @Test
+    void testInputFailure() {
+        List<int[][]> puzzles = puzzles(1);
+        Iterator<int[][]> good = puzzles.iterator();
+        Iterator<int[][]> input = new Iterator<int[][]>() {
+            @Override
+            public boolean hasNext() {
+                if (!good.hasNext()) {
+                    throw new IllegalArgumentException("line 7: bad");
+                }
+                return true;
+            }
+
+            @Override
+            public int[][] next() {
+                return good.next();
+            }
+        };
+        Iterator<BatchSolver.Result> results = s.results(input, BatchSolver.Order.INPUT);
+        for (int k = 0; k < puzzles.size(); k++) {
+            assertTrue(results.next().isSolved());
+        }
+        // the results before the failure come first
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, results::hasNext);
+        assertEquals("line 7: bad", e.getMessage());
+        assertFalse(results.hasNext());
+    }
+
+    @Test
+    void testEmpty() {
+        assertEquals(0, s.solve(new ArrayList<int[][]>()).count());
+    }
+}
@@ -0,0 +1,200 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+
+class TestBitmaskSolver {
+    BitmaskSolver s;
+
+    @BeforeEach
+    void setUp() {
+        s = BitmaskSolver.ofDefaults();
+    }
+
+    @AfterEach
+    void tearDown() {
+        s = null;
+    }
+
+    @Test
+    void testGetDimension() {
+        assertEquals(9, s.getDimension());
+        assertEquals(16, BitmaskSolver.ofDimension(16).getDimension());
+        assertThrows(IllegalArgumentException.class,
+                     () -> {BitmaskSolver.ofDimension(10);});
+    }
+
+    @Test
+    void testBounds() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> {s.setNumber(-1, 0, 4);});
+        assertThrows(IllegalArgumentException.class,
+                     () -> {s.setNumber(0, 9, 4);});
+        assertThrows(IllegalArgumentException.class,
+                     () -> {s.setNumber(0, 0, 0);});
+        assertThrows(IllegalArgumentException.class,
+                     () -> {s.setNumber(0, 0, 10);});
+        assertThrows(IllegalArgumentException.class,
+                     () -> {s.getNumber(9, 0);});
+        assertThrows(IllegalArgumentException.class,
+                     () -> {s.clearNumber(0, -1);});
+        assertThrows(IllegalArgumentException.class,
+                     () -> {s.isValid(0, 0, 10);});
+        assertThrows(IllegalArgumentException.class,
+                     () -> {s.setMatrix(new int[8][8]);});
+    }
+
+    @Test
+    void testSetAndClear() {
+        s.setNumber(4, 5, 7);
+        assertEquals(7, s.getNumber(4, 5));
+        assertFalse(s.isValid(4, 0, 7));
+        assertFalse(s.isValid(0, 5, 7));
+        assertFalse(s.isValid(3, 4, 7));
+        assertTrue(s.isValid(4, 5, 7));
+        assertTrue(s.isValid(0, 0, 7));
+        s.clearNumber(4, 5);
+        assertEquals(0, s.getNumber(4, 5));
+        assertTrue(s.isValid(4, 0, 7));
+    }
+
+    @Test
+    void testDuplicates() {
+        s.setNumber(0, 0, 5);
+        s.setNumber(0, 1, 5);
+        s.setNumber(0, 2, 5);
+        assertFalse(s.isAllValid());
+        s.clearNumber(0, 1);
+        assertFalse(s.isAllValid());
+        s.clearNumber(0, 2);
+        assertTrue(s.isAllValid());
+        assertFalse(s.isValid(0, 8, 5));
+    }
+
+    // isValid must agree with Solver, also on grids that break the rules
+    @Test
+    void testIsValidAgreesWithSolver() {
+        for (String name : Corpus.names()) {
+            int[][] m = Corpus.load(name);
+            m[0][0] = m[0][1] = 1;
+            Solver old = Solver.ofDefaults();
+            for (int r = 0; r < 9; r++) {
+                for (int c = 0; c < 9; c++) {
+                    old.setOrClearNumber(r, c, m[r][c]);
+                }
+            }
+            s.setMatrix(m);
+            assertEquals(old.isAllValid(), s.isAllValid());
+            for (int r = 0; r < 9; r++) {
+                for (int c = 0; c < 9; c++) {
+                    for (int n = 1; n <= 9; n++) {
+                        assertEquals(old.isValid(r, c, n), s.isValid(r, c, n), name);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSolveCorpus() {
+        for (String name : Corpus.names()) {
+            int[][] m = Corpus.load(name);
+            Solver old = Solver.ofDefaults();
+            for (int r = 0; r < 9; r++) {
+                for (int c = 0; c < 9; c++) {
+                    old.setOrClearNumber(r, c, m[r][c]);
+                }
+            }
+            old.solve();
+            s.setMatrix(m);
+            assertTrue(s.solve(), name);
+            assertTrue(s.isAllValid(), name);
+            assertArrayEquals(old.getMatrix(), s.getMatrix(), name);
+        }
+    }
+
+    @Test
+    void testSimpleSolve() {
+        //unsolvable
+        s.setNumber(0, 0, 5);
+        s.setNumber(0, 1, 5);
+        assertFalse(s.solve());
+        assertEquals(0, s.getNumber(0, 2));
+        //empty board
+        s.clear();
+        assertTrue(s.solve());
+        assertTrue(s.isAllValid());
+        //empty 16x16 board
+        BitmaskSolver s16 = BitmaskSolver.ofDimension(16);
+        assertTrue(s16.solve());
+        assertTrue(s16.isAllValid());
+    }
+
+    @Test
+    void testFewestCandidates() {
+        s.setCellOrder(CellOrder.FEWEST_CANDIDATES);
+        assertEquals(CellOrder.FEWEST_CANDIDATES, s.getCellOrder());
+        for (String name : Corpus.names()) {
+            int[][] m = Corpus.load(name);
+            s.setMatrix(m);
+            assertTrue(s.solve(), name);
+            TestPropagatingSolver.assertSolves(m, s.getMatrix(), name);
+        }
+        s.clear();
+        assertTrue(s.solve());
+        assertTrue(s.isAllValid());
+    }
+
+    // the order can be changed on a filled in grid
+    @Test
+    void testChangeCellOrder() {
+        s.setMatrix(Corpus.load("s16"));
+        s.setCellOrder(CellOrder.FEWEST_CANDIDATES);
+        assertTrue(s.solve());
+        int[][] solution = s.getMatrix();
+        s.setMatrix(Corpus.load("s16"));
+        s.setCellOrder(CellOrder.ROW_MAJOR);
+        assertTrue(s.solve());
+        assertArrayEquals(solution, s.getMatrix());
+    }
+
+    @Test
+    void testFewestCandidatesVisitsFewerNodes() {
+        long rowMajor = 0;
+        long fewest = 0;
+        for (String name : Corpus.names()) {
+            s.setCellOrder(CellOrder.ROW_MAJOR);
+            s.setMatrix(Corpus.load(name));
+            s.solve();
+            rowMajor += s.getSearchedCount();
+            s.setCellOrder(CellOrder.FEWEST_CANDIDATES);
+            s.setMatrix(Corpus.load(name));
+            s.solve();
+            fewest += s.getSearchedCount();
+        }
+        assertTrue(fewest * 10 < rowMajor, fewest + " vs " + rowMajor);
+    }
+
+    // a 36x36 grid with every 4th cell empty, 324 cells deep
+    @Test
+    void testDeepSolve() {
+        int dim = 36;
+        int[][] m = new int[dim][dim];
+        for (int r = 0; r < dim; r++) {
+            for (int c = 0; c < dim; c++) {
+                if ((r * dim + c) % 4 != 0) {
+                    m[r][c] = (6 * (r % 6) + r / 6 + c) % dim + 1;
+                }
+            }
+        }
+        BitmaskSolver deep = BitmaskSolver.ofMatrix(m);
+        assertTrue(deep.solve());
+        TestPropagatingSolver.assertSolves(m, deep.getMatrix(), "36x36");
+
+        PropagatingSolver empty = PropagatingSolver.ofDimension(dim);
+        empty.setCellOrder(CellOrder.FEWEST_CANDIDATES);
+        assertTrue(empty.solve());
+        assertTrue(empty.isAllValid());
+    }
+}
@@ -0,0 +1,229 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+class TestBudget {
+    int[][] puzzle;
+    int[][] branching;
+
+    @BeforeEach
+    void setUp() {
+        puzzle = Corpus.load("s01a");
+        // propagation alone does not solve it
+        branching = Corpus.load("s04a");
+    }
+
+    @AfterEach
+    void tearDown() {
+        puzzle = null;
+        branching = null;
+    }
+
+    /**
+     * A 9x9 grid without solution where the cell that has no legal number
+     * is the last one row by row, so a search in row order fills in
+     * almost the whole grid, in every way, before it finds out.
+     */
+    static int[][] lateDeadEnd() {
+        int[][] nbrs = new int[9][9];
+        for (int c = 0; c < 8; c++) {
+            nbrs[8][c] = c + 1;
+        }
+        nbrs[0][8] = 9;
+        return nbrs;
+    }
+
+    @Test
+    void testUnlimited() {
+        for (SudokuSolver s : TestSolveStats.engines()) {
+            String name = s.getClass().getSimpleName();
+            s.setMatrix(puzzle);
+            SolveResult result = s.solve(Budget.unlimited());
+            assertEquals(SolveResult.Status.SOLVED, result.getStatus(), name);
+            assertTrue(result.isSolved(), name);
+            assertTrue(s.isAllValid(), name);
+            for (int r = 0; r < 9; r++) {
+                for (int c = 0; c < 9; c++) {
+                    assertNotEquals(0, s.getNumber(r, c), name);
+                }
+            }
+            assertEquals(s.getStats().getNodes(), result.getStats().getNodes(), name);
+        }
+    }
+
+    @Test
+    void testUnsolvable() {
+        int[][] nbrs = lateDeadEnd();
+        SudokuSolver[] engines = {
+            PropagatingSolver.ofDefaults(),
+            DancingLinksSolver.ofDefaults(),
+            ParallelSolver.ofDimension(9, 2)
+        };
+        for (SudokuSolver s : engines) {
+            String name = s.getClass().getSimpleName();
+            s.setMatrix(nbrs);
+            SolveResult result = s.solve(Budget.ofNodes(1000000));
+            assertEquals(SolveResult.Status.UNSOLVABLE, result.getStatus(), name);
+            assertArrayEquals(nbrs, s.getMatrix(), name);
+        }
+        nbrs[0][0] = 9;
+        for (SudokuSolver s : TestSolveStats.engines()) {
+            String name = s.getClass().getSimpleName();
+            s.setMatrix(nbrs);
+            assertEquals(SolveResult.Status.UNSOLVABLE, s.solve(Budget.unlimited()).getStatus(), name);
+        }
+    }
+
+    @Test
+    void testCancelledBefore() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        for (SudokuSolver s : TestSolveStats.engines()) {
+            String name = s.getClass().getSimpleName();
+            s.setMatrix(branching);
+            SolveResult result = s.solve(Budget.ofToken(token));
+            assertEquals(SolveResult.Status.ABORTED, result.getStatus(), name);
+            assertFalse(result.isSolved(), name);
+            assertArrayEquals(branching, s.getMatrix(), name);
+        }
+        SudokuSolver plain = new TestSolveMode.PlainSolver(9);
+        plain.setMatrix(branching);
+        assertEquals(SolveResult.Status.ABORTED, plain.solve(Budget.ofToken(token)).getStatus());
+    }
+
+    @Test
+    void testTimeoutZero() {
+        for (SudokuSolver s : TestSolveStats.engines()) {
+            String name = s.getClass().getSimpleName();
+            s.setMatrix(branching);
+            SolveResult result = s.solve(Budget.ofTimeout(0, TimeUnit.MILLISECONDS));
+            assertEquals(SolveResult.Status.ABORTED, result.getStatus(), name);
+            assertArrayEquals(branching, s.getMatrix(), name);
+        }
+    }
+
+    @Test
+    void testNoNodes() {
+        SudokuSolver solved = Solver.ofMatrix(puzzle);
+        assertTrue(solved.solve());
+        int[][] full = solved.getMatrix();
+        Budget[] budgets = {
+            Budget.ofNodes(0),
+            Budget.ofTimeout(0, TimeUnit.MILLISECONDS)
+        };
+        for (SudokuSolver s : TestSolveStats.engines()) {
+            String name = s.getClass().getSimpleName();
+            for (Budget budget : budgets) {
+                // a full grid takes no node
+                s.setMatrix(full);
+                SolveResult result = s.solve(budget);
+                assertEquals(SolveResult.Status.SOLVED, result.getStatus(), name);
+                assertArrayEquals(full, s.getMatrix(), name);
+                // but a branch does
+                s.setMatrix(new int[9][9]);
+                assertEquals(SolveResult.Status.ABORTED, s.solve(budget).getStatus(), name);
+                assertArrayEquals(new int[9][9], s.getMatrix(), name);
+            }
+        }
+        // nor does propagation, which alone solves puzzle
+        SudokuSolver[] propagating = {
+            PropagatingSolver.ofDefaults(),
+            ParallelSolver.ofDimension(9, 2)
+        };
+        for (SudokuSolver s : propagating) {
+            String name = s.getClass().getSimpleName();
+            s.setMatrix(puzzle);
+            SolveResult result = s.solve(Budget.ofNodes(0));
+            assertEquals(SolveResult.Status.SOLVED, result.getStatus(), name);
+            assertEquals(0, result.getStats().getNodes(), name);
+            TestPropagatingSolver.assertSolves(puzzle, s.getMatrix(), name);
+        }
+    }
+
+    @Test
+    void testNodeBudget() {
+        SudokuSolver[] engines = {
+            Solver.ofMatrix(puzzle),
+            BitmaskSolver.ofMatrix(puzzle),
+            DancingLinksSolver.ofMatrix(puzzle)
+        };
+        for (SudokuSolver s : engines) {
+            String name = s.getClass().getSimpleName();
+            SolveResult result = s.solve(Budget.ofNodes(10));
+            assertEquals(SolveResult.Status.ABORTED, result.getStatus(), name);
+            assertEquals(10, result.getStats().getNodes(), name);
+            assertArrayEquals(puzzle, s.getMatrix(), name);
+            // the solver is usable again afterwards
+            assertTrue(s.solve(Budget.unlimited()).isSolved(), name);
+        }
+    }
+
+    @Test
+    void testCancelDuring() throws InterruptedException {
+        SudokuSolver[] engines = {
+            Solver.ofMatrix(lateDeadEnd()),
+            BitmaskSolver.ofMatrix(lateDeadEnd())
+        };
+        ((BitmaskSolver) engines[1]).setCellOrder(CellOrder.ROW_MAJOR);
+        for (SudokuSolver s : engines) {
+            String name = s.getClass().getSimpleName();
+            CancellationToken token = new CancellationToken();
+            Thread canceller = new Thread(() -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                token.cancel();
+            });
+            canceller.start();
+            SolveResult result = s.solve(Budget.ofToken(token));
+            canceller.join();
+            assertEquals(SolveResult.Status.ABORTED, result.getStatus(), name);
+            assertTrue(result.getStats().getNodes() > 0, name);
+            assertArrayEquals(lateDeadEnd(), s.getMatrix(), name);
+        }
+    }
+
+    @Test
+    void testProgress() {
+        for (SudokuSolver s : TestSolveStats.engines()) {
+            String name = s.getClass().getSimpleName();
+            s.setMatrix(puzzle);
+            List<Long> reported = Collections.synchronizedList(new ArrayList<Long>());
+            SolveResult result = s.solve(Budget.unlimited().withProgress(reported::add));
+            assertTrue(result.isSolved(), name);
+            assertFalse(reported.isEmpty(), name);
+            for (long n : reported) {
+                assertTrue(n <= result.getStats().getNodes(), name);
+            }
+        }
+    }
+
+    @Test
+    void testBudget() {
+        Budget b = Budget.unlimited();
+        assertEquals(Long.MAX_VALUE, b.getNodes());
+        assertEquals(-1, b.getTimeoutNanos());
+        assertNull(b.getToken());
+        assertNull(b.getProgress());
+        CancellationToken token = new CancellationToken();
+        Budget c = b.withNodes(7).withTimeout(2, TimeUnit.SECONDS).withToken(token);
+        assertEquals(7, c.getNodes());
+        assertEquals(2000000000L, c.getTimeoutNanos());
+        assertSame(token, c.getToken());
+        assertEquals(Long.MAX_VALUE, b.getNodes());
+        assertThrows(IllegalArgumentException.class, () -> Budget.ofNodes(-1));
+        assertThrows(IllegalArgumentException.class, () -> Budget.ofTimeout(-1, TimeUnit.SECONDS));
+        assertFalse(token.isCancelled());
+        token.cancel();
+        assertTrue(token.isCancelled());
+    }
+}
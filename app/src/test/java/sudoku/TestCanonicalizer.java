@@ -0,0 +1,327 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+class TestCanonicalizer {
+    Canonicalizer canonicalizer;
+    Random random;
+
+    @BeforeEach
+    void setUp() {
+        canonicalizer = Canonicalizer.ofDimension(9);
+        random = new Random(17);
+    }
+
+    @AfterEach
+    void tearDown() {
+        canonicalizer = null;
+        random = null;
+    }
+
+    /**
+     * Returns a random symmetry of a dimension.
+     */
+    static Symmetry randomSymmetry(int dim, Random random) {
+        int box = (int) Math.sqrt(dim);
+        return new Symmetry(random.nextBoolean(), randomOrder(box, random),
+                            randomOrder(box, random), randomNumbers(dim, random));
+    }
+
+    /**
+     * Returns a random order of the rows, or columns, that keeps bands,
+     * or stacks, together.
+     */
+    static int[] randomOrder(int box, Random random) {
+        int[] bands = permutation(box, random);
+        int[] order = new int[box * box];
+        for (int b = 0; b < box; b++) {
+            int[] within = permutation(box, random);
+            for (int k = 0; k < box; k++) {
+                order[b * box + k] = bands[b] * box + within[k];
+            }
+        }
+        return order;
+    }
+
+    static int[] randomNumbers(int dim, Random random) {
+        int[] p = permutation(dim, random);
+        int[] numbers = new int[dim + 1];
+        for (int n = 1; n <= dim; n++) {
+            numbers[n] = p[n - 1] + 1;
+        }
+        return numbers;
+    }
+
+    static int[] permutation(int n, Random random) {
+        int[] p = new int[n];
+        for (int k = 0; k < n; k++) {
+            int j = random.nextInt(k + 1);
+            p[k] = p[j];
+            p[j] = k;
+        }
+        return p;
+    }
+
+    /**
+     * Finds the canonical form of a 4x4 grid by trying all 128 symmetries
+     * that do not relabel, and relabelling in the order of first reading.
+     */
+    static Grid bruteForce(Grid grid) {
+        int[][] orders = new int[8][];
+        int k = 0;
+        for (int bands = 0; bands < 2; bands++) {
+            for (int first = 0; first < 2; first++) {
+                for (int second = 0; second < 2; second++) {
+                    int b0 = bands * 2;
+                    int b1 = 2 - bands * 2;
+                    orders[k++] = new int[] {b0 + first, b0 + 1 - first, b1 + second, b1 + 1 - second};
+                }
+            }
+        }
+        Grid best = null;
+        for (int t = 0; t < 2; t++) {
+            for (int[] rows : orders) {
+                for (int[] cols : orders) {
+                    Grid image = new Symmetry(t == 1, rows, cols, new int[] {0, 1, 2, 3, 4}).apply(grid);
+                    int[] label = new int[5];
+                    int next = 1;
+                    for (int i = 0; i < 16; i++) {
+                        int n = image.get(i);
+                        if (n != 0 && label[n] == 0) {
+                            label[n] = next++;
+                        }
+                        image.set(i, label[n]);
+                    }
+                    if (best == null || compare(image, best) < 0) {
+                        best = image;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    static int compare(Grid a, Grid b) {
+        for (int i = 0; i < a.cellCount(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return Integer.compare(a.get(i), b.get(i));
+            }
+        }
+        return 0;
+    }
+
+    @Test
+    void testSymmetry() {
+        Grid g = Grid.ofMatrix(Corpus.load("s01a"));
+        assertEquals(g, Symmetry.identity(9).apply(g));
+        for (int k = 0; k < 20; k++) {
+            Symmetry s = randomSymmetry(9, random);
+            Grid image = s.apply(g);
+            assertTrue(Validator.isValid(image));
+            assertEquals(g, s.inverse().apply(image), s.toString());
+            assertEquals(s, s.inverse().inverse());
+        }
+        Symmetry identity = Symmetry.identity(9);
+        int[] order = new int[9];
+        int[] numbers = new int[10];
+        for (int n = 0; n < 9; n++) {
+            order[n] = identity.getRow(n);
+            numbers[n + 1] = identity.getNumber(n + 1);
+        }
+        Grid transposed = new Symmetry(true, order, order, numbers).apply(g);
+        assertEquals(g.get(2, 7), transposed.get(7, 2));
+    }
+
+    @Test
+    void testSymmetryOfSolution() {
+        int[][] puzzle = Corpus.load("s05b");
+        DancingLinksSolver s = DancingLinksSolver.ofMatrix(puzzle);
+        assertTrue(s.solve());
+        for (int k = 0; k < 10; k++) {
+            Symmetry sym = randomSymmetry(9, random);
+            DancingLinksSolver image = DancingLinksSolver.ofMatrix(sym.apply(Grid.ofMatrix(puzzle)).getMatrix());
+            assertTrue(image.solve());
+            assertEquals(sym.apply(s.getGrid()), image.getGrid());
+        }
+    }
+
+    @Test
+    void testSymmetryErrors() {
+        Symmetry s = Symmetry.identity(4);
+        Grid g = Grid.ofDimension(4);
+        assertThrows(IllegalArgumentException.class, () -> s.apply(Grid.ofDimension(9)));
+        assertThrows(IllegalArgumentException.class, () -> s.apply(g, g));
+        assertThrows(IllegalArgumentException.class, () -> Symmetry.identity(8));
+        assertThrows(IllegalArgumentException.class, () -> Canonicalizer.ofDimension(8));
+        assertThrows(IllegalArgumentException.class, () -> canonicalizer.canonicalize(g));
+        Grid large = Grid.ofDimension(9);
+        large.set(0, 10);
+        assertThrows(IllegalArgumentException.class, () -> canonicalizer.canonicalize(large));
+    }
+
+    @Test
+    void testSameAsBruteForce() {
+        Canonicalizer small = Canonicalizer.ofDimension(4);
+        for (int seed = 0; seed < 200; seed++) {
+            Grid g = Grid.ofMatrix(TestDancingLinksSolver.puzzleOf(4, seed));
+            assertEquals(bruteForce(g), small.canonicalize(g).apply(g), g.toString());
+            // sparser, with empty rows and columns
+            for (int i = 0; i < 16; i++) {
+                if (random.nextBoolean()) {
+                    g.set(i, 0);
+                }
+            }
+            assertEquals(bruteForce(g), small.canonicalize(g).apply(g), g.toString());
+        }
+        // the rules do not matter
+        for (int k = 0; k < 200; k++) {
+            Grid g = Grid.ofDimension(4);
+            for (int i = 0; i < 16; i++) {
+                g.set(i, random.nextInt(3) == 0 ? 1 + random.nextInt(4) : 0);
+            }
+            assertEquals(bruteForce(g), small.canonicalize(g).apply(g), g.toString());
+        }
+    }
+
+    @Test
+    void testInvariant() {
+        for (String name : Corpus.names()) {
+            Grid g = Grid.ofMatrix(Corpus.load(name));
+            Grid canonical = canonicalizer.canonicalize(g).apply(g);
+            assertEquals(canonical, canonicalizer.canonicalize(canonical).apply(canonical), name);
+            for (int k = 0; k < 5; k++) {
+                Grid image = randomSymmetry(9, random).apply(g);
+                assertEquals(canonical, canonicalizer.canonicalize(image).apply(image), name);
+            }
+        }
+    }
+
+    @Test
+    void testDistinct() {
+        Set<Grid> forms = new HashSet<Grid>();
+        for (String name : Corpus.names()) {
+            Grid g = Grid.ofMatrix(Corpus.load(name));
+            assertTrue(forms.add(canonicalizer.canonicalize(g).apply(g)), name);
+            // one more number makes a sudoku of another class
+            for (int i = 0; i < 81; i++) {
+                if (g.get(i) == 0) {
+                    Grid h = g.copy();
+                    h.set(i, 1);
+                    assertNotEquals(canonicalizer.canonicalize(g).apply(g),
+                                    canonicalizer.canonicalize(h).apply(h), name);
+                    break;
+                }
+            }
+        }
+    }
+
+    @Test
+    void testForms() {
+        for (String name : Corpus.names()) {
+            int[][] puzzle = Corpus.load(name);
+            Grid g = Grid.ofMatrix(puzzle);
+            Grid canonical = canonicalizer.canonicalForm(g);
+            assertEquals(canonical, canonicalizer.canonicalize(g).apply(g), name);
+            assertEquals(canonical, canonicalizer.canonicalize(puzzle).apply(g), name);
+            assertEquals(canonicalizer.hash64(g), canonicalizer.hash64(puzzle), name);
+            assertEquals(canonicalizer.hash128(g), canonicalizer.hash128(puzzle), name);
+        }
+        assertThrows(IllegalArgumentException.class, () -> canonicalizer.canonicalize(new int[8][9]));
+        assertThrows(IllegalArgumentException.class, () -> canonicalizer.hash64(new int[9][8]));
+        int[][] negative = new int[9][9];
+        negative[4][4] = -1;
+        assertThrows(IllegalArgumentException.class, () -> canonicalizer.hash128(negative));
+    }
+
+    @Test
+    void testHash() {
+        Set<Long> hashes = new HashSet<Long>();
+        Set<UUID> wide = new HashSet<UUID>();
+        for (String name : Corpus.names()) {
+            Grid g = Grid.ofMatrix(Corpus.load(name));
+            long hash = canonicalizer.hash64(g);
+            UUID hash128 = canonicalizer.hash128(g);
+            assertEquals(hash, hash128.getMostSignificantBits(), name);
+            assertTrue(hashes.add(hash), name);
+            assertTrue(wide.add(hash128), name);
+            for (int k = 0; k < 5; k++) {
+                Grid image = randomSymmetry(9, random).apply(g);
+                assertEquals(hash, canonicalizer.hash64(image), name);
+                assertEquals(hash128, canonicalizer.hash128(image), name);
+            }
+        }
+        // the dimension is hashed too
+        assertNotEquals(Canonicalizer.ofDimension(4).hash128(Grid.ofDimension(4)),
+                        Canonicalizer.ofDimension(9).hash128(Grid.ofDimension(9)));
+    }
+
+    @Test
+    void testSolution() {
+        DancingLinksSolver s = DancingLinksSolver.ofMatrix(Corpus.load("s03a"));
+        assertTrue(s.solve());
+        Grid g = s.getGrid();
+        Grid canonical = canonicalizer.canonicalForm(g);
+        // the first row of the canonical form of a solution is 1, 2, ...
+        for (int c = 0; c < 9; c++) {
+            assertEquals(c + 1, canonical.get(0, c));
+        }
+        for (int k = 0; k < 10; k++) {
+            Grid image = randomSymmetry(9, random).apply(g);
+            assertEquals(canonical, canonicalizer.canonicalForm(image));
+            assertEquals(canonicalizer.hash64(g), canonicalizer.hash64(image.getMatrix()));
+        }
+    }
+
+    @Test
+    void testRepeated() {
+        Grid g = Grid.ofMatrix(Corpus.load("s02a"));
+        g.set(0, 0, 5);
+        g.set(0, 1, 5);
+        Grid canonical = canonicalizer.canonicalForm(g);
+        for (int k = 0; k < 5; k++) {
+            Grid image = randomSymmetry(9, random).apply(g);
+            assertEquals(canonical, canonicalizer.canonicalForm(image));
+        }
+    }
+
+    @Test
+    void testLarger() {
+        Canonicalizer large = Canonicalizer.ofDimension(16);
+        Grid g = Grid.ofMatrix(TestDancingLinksSolver.puzzleOf(16, 5));
+        Grid canonical = large.canonicalize(g).apply(g);
+        for (int k = 0; k < 3; k++) {
+            Grid image = randomSymmetry(16, random).apply(g);
+            assertEquals(canonical, large.canonicalize(image).apply(image));
+        }
+    }
+
+    @Test
+    void testSparse() {
+        // empty bands, stacks and rows are swapped without a search of
+        // their orders, which would take ages at these sizes
+        for (int dim : new int[] {25, 36}) {
+            Canonicalizer large = Canonicalizer.ofDimension(dim);
+            Grid empty = Grid.ofDimension(dim);
+            Grid one = Grid.ofDimension(dim);
+            one.set(random.nextInt(dim), random.nextInt(dim), 1 + random.nextInt(dim));
+            long start = System.nanoTime();
+            assertEquals(empty, large.canonicalForm(empty));
+            Grid canonical = large.canonicalForm(one);
+            for (int k = 0; k < 3; k++) {
+                Grid image = randomSymmetry(dim, random).apply(one);
+                assertEquals(canonical, large.canonicalForm(image), dim + "x" + dim);
+            }
+            // the number is in the last place read
+            assertEquals(1, canonical.get(dim - 1, dim - 1), dim + "x" + dim);
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2), dim + "x" + dim);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+class TestCli {
+    ByteArrayOutputStream out;
+    ByteArrayOutputStream err;
+
+    @BeforeEach
+    void setUp() {
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+    }
+
+    @AfterEach
+    void tearDown() {
+        out = null;
+        err = null;
+    }
+
+    int run(byte[] input, String... args) {
+        return Cli.run(args, new ByteArrayInputStream(input), Channels.newChannel(out),
+                       new PrintStream(err, true));
+    }
+
+    String[] lines() {
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+    }
+
+    /**
+     * Checks that line k of the output is the solution of puzzle.
+     */
+    void assertSolved(String line, int k, int[][] puzzle) {
+        String[] fields = line.split("\t");
+        assertEquals(3, fields.length, line);
+        assertEquals(String.valueOf(k + 1), fields[0]);
+        assertEquals(81, fields[1].length(), line);
+        Grid solution = PuzzleReader.of(new StringReader(fields[1]), PuzzleReader.Format.LINE)
+            .stream().findFirst().get();
+        assertTrue(Validator.isValid(solution));
+        for (int i = 0; i < 81; i++) {
+            assertNotEquals(0, solution.get(i));
+            int n = puzzle[i / 9][i % 9];
+            assertTrue(n == 0 || n == solution.get(i));
+        }
+        assertTrue(fields[2].startsWith("nodes="), line);
+    }
+
+    @Test
+    void testRows() {
+        List<int[][]> puzzles = new ArrayList<int[][]>();
+        StringBuilder text = new StringBuilder();
+        for (String name : Corpus.names()) {
+            puzzles.add(Corpus.load(name));
+            text.append(TestPuzzleReader.rows(Corpus.load(name))).append('\n');
+        }
+        assertEquals(0, run(text.toString().getBytes(StandardCharsets.US_ASCII), "-t", "3"));
+        String[] lines = lines();
+        assertEquals(puzzles.size(), lines.length);
+        for (int k = 0; k < lines.length; k++) {
+            assertSolved(lines[k], k, puzzles.get(k));
+        }
+        String summary = err.toString();
+        assertTrue(summary.startsWith("solved 46 of 46 sudokus"), summary);
+        assertTrue(summary.contains("p50") && summary.contains("p99"), summary);
+    }
+
+    @Test
+    void testLinesAndUnsolvable() {
+        int[][] puzzle = Corpus.load("s01a");
+        int[][] bad = Corpus.load("s01a");
+        bad[0][0] = 4;
+        String text = TestPuzzleReader.line(puzzle, '.') + "\n" +
+                      TestPuzzleReader.line(bad, '0') + "\n";
+        assertEquals(0, run(text.getBytes(StandardCharsets.US_ASCII), "--engine", "bitmask"));
+        String[] lines = lines();
+        assertEquals(2, lines.length);
+        assertSolved(lines[0], 0, puzzle);
+        assertTrue(lines[1].startsWith("2\tunsolved\t"), lines[1]);
+        assertTrue(err.toString().startsWith("solved 1 of 2 sudokus"), err.toString());
+    }
+
+    @Test
+    void testStdinOpen() throws IOException, InterruptedException {
+        PipedOutputStream typed = new PipedOutputStream();
+        PipedInputStream stdin = new PipedInputStream(typed);
+        int[] status = {-1};
+        Thread cli = new Thread(() -> {
+            status[0] = Cli.run(new String[] {"-t", "2"}, stdin, Channels.newChannel(out),
+                                new PrintStream(err, true));
+        });
+        cli.start();
+        int[][] puzzle = Corpus.load("s01a");
+        typed.write((TestPuzzleReader.line(puzzle, '.') + "\n").getBytes(StandardCharsets.US_ASCII));
+        typed.flush();
+        // the result comes out while stdin is still open
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (out.size() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        String[] lines = lines();
+        assertEquals(1, lines.length);
+        assertSolved(lines[0], 0, puzzle);
+        typed.close();
+        cli.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(0, status[0]);
+        assertTrue(err.toString().startsWith("solved 1 of 1 sudokus"), err.toString());
+    }
+
+    @Test
+    void testBadDimension() {
+        int[][] puzzle = Corpus.load("s02a");
+        String text = "0120\n" + TestPuzzleReader.line(puzzle, '0') + "\n";
+        assertEquals(0, run(text.getBytes(StandardCharsets.US_ASCII), "-f", "line"));
+        String[] lines = lines();
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("1\tunsolved\t"), lines[0]);
+        assertSolved(lines[1], 1, puzzle);
+        assertTrue(err.toString().startsWith("solved 1 of 2 sudokus"), err.toString());
+    }
+
+    @Test
+    void testPackedFile() throws IOException {
+        List<Grid> grids = new ArrayList<Grid>();
+        for (String name : Corpus.names()) {
+            grids.add(Grid.ofMatrix(Corpus.load(name)));
+        }
+        Path file = Files.createTempFile("sudokus", ".bin");
+        try {
+            Files.write(file, TestPackedPuzzles.pack(9, grids));
+            assertEquals(0, run(new byte[0], "-e", "plain", file.toString()));
+        } finally {
+            Files.delete(file);
+        }
+        String[] lines = lines();
+        assertEquals(grids.size(), lines.length);
+        for (int k = 0; k < lines.length; k++) {
+            assertSolved(lines[k], k, grids.get(k).getMatrix());
+        }
+    }
+
+    @Test
+    void testErrors() {
+        byte[] none = new byte[0];
+        assertEquals(2, run(none, "-t", "0"));
+        assertEquals(2, run(none, "-t"));
+        assertEquals(2, run(none, "--format", "xml"));
+        assertEquals(2, run(none, "--engine", "quantum"));
+        assertEquals(2, run(none, "--bogus"));
+        assertEquals(2, run(none, "a.txt", "b.txt"));
+        assertEquals(0, run(none, "--help"));
+        assertTrue(err.toString().contains("usage: cli"));
+        assertEquals(1, run(none, "/no/such/file.txt"));
+        assertEquals(1, run("1 2 3\n4 5\n".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(0, out.size());
+        assertEquals(0, run(none));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void testHistogram() {
+        Cli.Histogram h = new Cli.Histogram();
+        assertEquals(0, h.percentile(0.5));
+        for (long v = 1; v <= 1000; v++) {
+            h.add(v * 1000);
+        }
+        assertEquals(1000, h.count());
+        long p50 = h.percentile(0.50);
+        long p99 = h.percentile(0.99);
+        assertTrue(p50 <= 500000 && p50 > 500000 * 0.93, "" + p50);
+        assertTrue(p99 <= 990000 && p99 > 990000 * 0.93, "" + p99);
+        h.add(0);
+        h.add(Long.MAX_VALUE);
+        assertEquals(0, h.percentile(0));
+        assertTrue(h.percentile(1) > Long.MAX_VALUE / 2);
+    }
+}
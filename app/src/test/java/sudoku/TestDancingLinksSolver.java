@@ -0,0 +1,107 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.*;
+
+class TestDancingLinksSolver {
+    DancingLinksSolver s;
+
+    @BeforeEach
+    void setUp() {
+        s = DancingLinksSolver.ofDefaults();
+    }
+
+    @AfterEach
+    void tearDown() {
+        s = null;
+    }
+
+    /**
+     * Returns a solved grid of dimension dim with about a third of the cells cleared.
+     */
+    static int[][] puzzleOf(int dim, long seed) {
+        DancingLinksSolver full = DancingLinksSolver.ofDimension(dim);
+        Random random = new Random(seed);
+        // a few random numbers on the diagonal make the solution vary with seed
+        for (int i = 0; i < dim; i++) {
+            int n = 1 + random.nextInt(dim);
+            if (full.isValid(i, i, n)) {
+                full.setNumber(i, i, n);
+            }
+        }
+        assertTrue(full.solve());
+        int[][] m = full.getMatrix();
+        for (int r = 0; r < dim; r++) {
+            for (int c = 0; c < dim; c++) {
+                if (random.nextInt(3) == 0) {
+                    m[r][c] = 0;
+                }
+            }
+        }
+        return m;
+    }
+
+    @Test
+    void testSolveCorpus() {
+        for (String name : Corpus.names()) {
+            int[][] m = Corpus.load(name);
+            s.setMatrix(m);
+            assertTrue(s.solve(), name);
+            TestPropagatingSolver.assertSolves(m, s.getMatrix(), name);
+        }
+    }
+
+    // the corpus sudokus have one solution each, so all engines must agree
+    @Test
+    void testSameAsBitmaskSolver() {
+        for (String name : Corpus.names()) {
+            s.setMatrix(Corpus.load(name));
+            s.solve();
+            BitmaskSolver b = BitmaskSolver.ofMatrix(Corpus.load(name));
+            b.solve();
+            assertArrayEquals(b.getMatrix(), s.getMatrix(), name);
+        }
+    }
+
+    @Test
+    void testUnsolvable() {
+        s.setNumber(0, 0, 5);
+        s.setNumber(0, 1, 5);
+        assertFalse(s.solve());
+
+        s.clear();
+        for (int c = 0; c < 8; c++) {
+            s.setNumber(0, c, c + 1);
+        }
+        s.setNumber(4, 8, 9);
+        assertFalse(s.solve());
+        assertEquals(0, s.getNumber(0, 8));
+        assertEquals(0, s.getNumber(1, 0));
+    }
+
+    @Test
+    void testSolveTwice() {
+        s.setMatrix(Corpus.load("s16"));
+        assertTrue(s.solve());
+        int[][] solution = s.getMatrix();
+        s.setMatrix(Corpus.load("s16"));
+        assertTrue(s.solve());
+        assertArrayEquals(solution, s.getMatrix());
+    }
+
+    @Test
+    void testLargeDimensions() {
+        for (int dim : new int[]{16, 25}) {
+            DancingLinksSolver large = DancingLinksSolver.ofDimension(dim);
+            assertTrue(large.solve());
+            assertTrue(large.isAllValid());
+            int[][] m = puzzleOf(dim, dim);
+            large.setMatrix(m);
+            assertTrue(large.solve());
+            TestPropagatingSolver.assertSolves(m, large.getMatrix(), "dim " + dim);
+        }
+    }
+}
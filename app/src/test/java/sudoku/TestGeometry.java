@@ -0,0 +1,103 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.*;
+
+class TestGeometry {
+    Geometry g;
+
+    @BeforeEach
+    void setUp() {
+        g = Geometry.ofDimension(9);
+    }
+
+    @AfterEach
+    void tearDown() {
+        g = null;
+    }
+
+    @Test
+    void testOfDimension() {
+        assertSame(g, Geometry.ofDimension(9));
+        assertEquals(9, g.getDimension());
+        assertEquals(3, g.getBoxSize());
+        assertEquals(81, g.cellCount());
+        assertEquals(27, g.unitCount());
+        for (int dim : new int[]{-1, 0, 2, 10}) {
+            assertThrows(IllegalArgumentException.class,
+                         () -> {Geometry.ofDimension(dim);});
+        }
+    }
+
+    @Test
+    void testCells() {
+        assertEquals(4, g.rowOf(41));
+        assertEquals(5, g.colOf(41));
+        assertEquals(4, g.boxOf(41));
+        assertEquals(8, g.boxOf(80));
+        assertEquals(2, g.boxOf(g.index(1, 8)));
+        assertEquals(6, g.boxOf(g.index(8, 1)));
+    }
+
+    @Test
+    void testUnits() {
+        for (int dim : new int[]{1, 4, 9, 16, 25}) {
+            Geometry geo = Geometry.ofDimension(dim);
+            for (int u = 0; u < geo.unitCount(); u++) {
+                Set<Integer> cells = new HashSet<Integer>();
+                for (int k = 0; k < dim; k++) {
+                    int i = geo.unitCell(u, k);
+                    cells.add(i);
+                    if (u < dim) {
+                        assertEquals(u, geo.rowOf(i));
+                        assertEquals(k, geo.colOf(i));
+                    } else if (u < 2 * dim) {
+                        assertEquals(u - dim, geo.colOf(i));
+                        assertEquals(k, geo.rowOf(i));
+                    } else {
+                        assertEquals(u - 2 * dim, geo.boxOf(i));
+                    }
+                }
+                assertEquals(dim, cells.size());
+            }
+        }
+        // cells within a box are row-major, as Solver.getBox has them
+        assertEquals(g.index(3, 6), g.unitCell(2 * 9 + 5, 0));
+        assertEquals(g.index(4, 7), g.unitCell(2 * 9 + 5, 4));
+        assertEquals(g.index(5, 8), g.unitCell(2 * 9 + 5, 8));
+    }
+
+    @Test
+    void testPeers() {
+        assertEquals(20, g.peerCount());
+        assertEquals(0, Geometry.ofDimension(1).peerCount());
+        for (int dim : new int[]{4, 9, 16}) {
+            Geometry geo = Geometry.ofDimension(dim);
+            for (int i = 0; i < geo.cellCount(); i++) {
+                Set<Integer> peers = new HashSet<Integer>();
+                for (int j = 0; j < geo.peerCount(); j++) {
+                    peers.add(geo.peer(i, j));
+                }
+                Set<Integer> expected = new HashSet<Integer>();
+                for (int p = 0; p < geo.cellCount(); p++) {
+                    if (p != i && (geo.rowOf(p) == geo.rowOf(i) ||
+                                   geo.colOf(p) == geo.colOf(i) ||
+                                   geo.boxOf(p) == geo.boxOf(i))) {
+                        expected.add(p);
+                    }
+                }
+                assertEquals(expected, peers);
+            }
+        }
+    }
+
+    @Test
+    void testSolverDimension() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> {Solver.ofDimension(10);});
+    }
+}
@@ -0,0 +1,117 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+
+class TestGrid {
+    Grid g;
+
+    @BeforeEach
+    void setUp() {
+        g = Grid.ofMatrix(Corpus.load("s01a"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        g = null;
+    }
+
+    @Test
+    void testIndex() {
+        assertEquals(9, g.getDimension());
+        assertEquals(81, g.cellCount());
+        assertEquals(41, g.index(4, 5));
+        assertEquals(4, g.row(41));
+        assertEquals(5, g.col(41));
+        assertEquals(g.get(4, 5), g.get(41));
+    }
+
+    @Test
+    void testMatrix() {
+        int[][] m = Corpus.load("s01a");
+        assertArrayEquals(m, g.getMatrix());
+        g.getMatrix()[0][0] = 7;
+        assertArrayEquals(m, g.getMatrix());
+        assertThrows(IllegalArgumentException.class,
+                     () -> {g.setMatrix(new int[8][8]);});
+        assertThrows(IllegalArgumentException.class,
+                     () -> {g.setMatrix(new int[9][8]);});
+        m[3][3] = 10;
+        assertThrows(IllegalArgumentException.class,
+                     () -> {g.setMatrix(m);});
+        m[3][3] = -1;
+        assertThrows(IllegalArgumentException.class,
+                     () -> {Grid.ofMatrix(m);});
+        assertThrows(IllegalArgumentException.class,
+                     () -> {Grid.ofDimension(-1);});
+    }
+
+    @Test
+    void testLargeNumbers() {
+        Grid small = Grid.ofDimension(9);
+        small.set(3, 200);
+        assertEquals(200, small.get(3));
+        Grid large = Grid.ofDimension(64);
+        large.set(63, 63, 64);
+        large.set(0, 1000);
+        assertEquals(64, large.get(63, 63));
+        assertEquals(1000, large.get(0));
+        int[][] m = TestDancingLinksSolver.puzzleOf(16, 3);
+        assertArrayEquals(m, Grid.ofMatrix(m).getMatrix());
+    }
+
+    @Test
+    void testCopy() {
+        Grid copy = g.copy();
+        assertEquals(g, copy);
+        assertEquals(g.hashCode(), copy.hashCode());
+        copy.set(0, 0, 0);
+        copy.set(0, 1, 0);
+        assertNotEquals(g, copy);
+        copy.copyFrom(g);
+        assertEquals(g, copy);
+        copy.clear();
+        assertEquals(Grid.ofDimension(9), copy);
+        assertNotEquals(Grid.ofDimension(4), Grid.ofDimension(9));
+        assertThrows(IllegalArgumentException.class,
+                     () -> {g.copyFrom(Grid.ofDimension(4));});
+    }
+
+    @Test
+    void testEngines() {
+        SudokuSolver[] engines = {
+            Solver.ofDefaults(),
+            BitmaskSolver.ofDefaults(),
+            PropagatingSolver.ofDefaults(),
+            DancingLinksSolver.ofDefaults(),
+            ParallelSolver.ofDimension(9, 2),
+            new TestSolveMode.PlainSolver(9),
+        };
+        for (SudokuSolver s : engines) {
+            String name = s.getClass().getSimpleName();
+            s.setGrid(g);
+            assertEquals(g, s.getGrid(), name);
+            assertArrayEquals(g.getMatrix(), s.getMatrix(), name);
+            assertTrue(s.solve(), name);
+            Grid solution = s.getGrid();
+            assertNotEquals(g, solution, name);
+            TestPropagatingSolver.assertSolves(g.getMatrix(), solution.getMatrix(), name);
+            assertThrows(IllegalArgumentException.class,
+                         () -> {s.setGrid(Grid.ofDimension(4));}, name);
+        }
+    }
+
+    @Test
+    void testSolverCopies() {
+        Solver s = Solver.ofDefaults();
+        int[][] m = Corpus.load("s01a");
+        s.setMatrix(m);
+        m[0][0] = 0;
+        m[0][1] = 0;
+        assertEquals(g, s.getGrid());
+        s.getMatrix()[0][0] = 0;
+        s.getGrid().clear();
+        assertEquals(g, s.getGrid());
+    }
+}
@@ -0,0 +1,122 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.*;
+
+class TestMappedPuzzleReader {
+    // copies of the corpus in the test file
+    static final int COPIES = 2000;
+
+    Path file;
+    List<Grid> corpus;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        corpus = new ArrayList<Grid>();
+        StringBuilder sb = new StringBuilder();
+        for (String name : Corpus.names()) {
+            int[][] nbrs = Corpus.load(name);
+            corpus.add(Grid.ofMatrix(nbrs));
+            sb.append(TestPuzzleReader.line(nbrs, name.endsWith("a") ? '0' : '.')).append('\n');
+        }
+        file = Files.createTempFile("sudokus", ".txt");
+        Files.write(file, sb.toString().repeat(COPIES).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        file = null;
+        corpus = null;
+    }
+
+    void assertCorpus(List<Grid> grids) {
+        assertEquals(corpus.size() * COPIES, grids.size());
+        for (int k = 0; k < grids.size(); k++) {
+            assertEquals(corpus.get(k % corpus.size()), grids.get(k));
+        }
+    }
+
+    @Test
+    void testStream() throws IOException {
+        try (MappedPuzzleReader in = MappedPuzzleReader.ofPath(file)) {
+            assertEquals(Files.size(file), in.size());
+            assertCorpus(in.stream().collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testParallelStream() throws IOException {
+        try (MappedPuzzleReader in = MappedPuzzleReader.ofPath(file)) {
+            assertCorpus(in.stream().parallel().collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void testChunks() throws IOException {
+        try (MappedPuzzleReader in = MappedPuzzleReader.ofPath(file)) {
+            List<MappedPuzzleReader.Chunk> chunks = in.chunks(7);
+            assertEquals(7, chunks.size());
+            assertEquals(0, chunks.get(0).getStart());
+            assertEquals(in.size(), chunks.get(6).getEnd());
+            List<Grid> grids = new ArrayList<Grid>();
+            for (int k = 0; k < chunks.size(); k++) {
+                MappedPuzzleReader.Chunk chunk = chunks.get(k);
+                if (k > 0) {
+                    assertEquals(chunks.get(k - 1).getEnd(), chunk.getStart());
+                }
+                // lines are 82 bytes, so chunks start at the start of a line
+                assertEquals(0, chunk.getStart() % 82);
+                Grid grid = Grid.ofDimension(9);
+                while (chunk.read(grid)) {
+                    grids.add(grid.copy());
+                }
+            }
+            assertCorpus(grids);
+            assertThrows(IllegalArgumentException.class, () -> in.chunks(0));
+        }
+    }
+
+    @Test
+    void testSmallWindow() throws IOException {
+        // windows of a bit more than one line have to be remapped all the time
+        try (MappedPuzzleReader in = MappedPuzzleReader.ofPath(file, 100);
+             Stream<Grid> grids = in.stream()) {
+            assertEquals(corpus, grids.limit(corpus.size() * 3).distinct().collect(Collectors.toList()));
+        }
+        try (MappedPuzzleReader in = MappedPuzzleReader.ofPath(file, 50)) {
+            assertThrows(IllegalArgumentException.class, () -> in.stream().count());
+        }
+    }
+
+    @Test
+    void testSmallFiles() throws IOException {
+        Files.write(file, new byte[0]);
+        try (MappedPuzzleReader in = MappedPuzzleReader.ofPath(file)) {
+            assertEquals(0, in.stream().count());
+            assertTrue(in.chunks(4).isEmpty());
+        }
+        String one = TestPuzzleReader.line(Corpus.load("s01a"), '.');
+        Files.write(file, ("\r\n\n" + one + "\r\n\n" + one).getBytes(StandardCharsets.US_ASCII));
+        try (MappedPuzzleReader in = MappedPuzzleReader.ofPath(file);
+             Stream<Grid> grids = in.stream()) {
+            assertEquals(2, grids.filter(corpus.get(0)::equals).count());
+        }
+        Files.write(file, (one + "\n" + one.replace('.', '?')).getBytes(StandardCharsets.US_ASCII));
+        try (MappedPuzzleReader in = MappedPuzzleReader.ofPath(file)) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                                                      () -> in.stream().count());
+            assertTrue(e.getMessage().startsWith("byte 82:"), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.*;
+
+class TestPackedPuzzles {
+
+    static byte[] pack(int dim, List<Grid> grids) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PackedPuzzleWriter out = PackedPuzzleWriter.of(bytes, dim)) {
+            for (Grid grid : grids) {
+                out.write(grid);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<Grid> unpack(byte[] bytes) throws IOException {
+        return PackedPuzzleReader.of(new ByteArrayInputStream(bytes)).stream()
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * A solved grid of any square dimension, see the bench Puzzles.
+     */
+    static Grid solved(int dim) {
+        int boxSize = (int) Math.sqrt(dim);
+        Grid grid = Grid.ofDimension(dim);
+        for (int r = 0; r < dim; r++) {
+            for (int c = 0; c < dim; c++) {
+                grid.set(r, c, (r * boxSize + r / boxSize + c) % dim + 1);
+            }
+        }
+        return grid;
+    }
+
+    @Test
+    void testCorpus() throws IOException {
+        List<Grid> corpus = new ArrayList<Grid>();
+        long text = 0;
+        for (String name : Corpus.names()) {
+            int[][] nbrs = Corpus.load(name);
+            corpus.add(Grid.ofMatrix(nbrs));
+            text += TestPuzzleReader.rows(nbrs).length();
+        }
+        byte[] packed = pack(9, corpus);
+        assertEquals(7 + 41 * corpus.size(), packed.length);
+        assertTrue(packed.length * 4 < text);
+        assertEquals(corpus, unpack(packed));
+    }
+
+    @Test
+    void testDimensions() throws IOException {
+        assertEquals(4, PackedPuzzleWriter.bitsPerCell(9));
+        assertEquals(5, PackedPuzzleWriter.bitsPerCell(16));
+        assertEquals(5, PackedPuzzleWriter.bitsPerCell(25));
+        assertEquals(6, PackedPuzzleWriter.bitsPerCell(36));
+        for (int dim : new int[] {1, 4, 9, 16, 25, 36, 49, 64, 100}) {
+            Grid full = solved(dim);
+            Grid sparse = full.copy();
+            for (int i = 0; i < sparse.cellCount(); i += 3) {
+                sparse.set(i, 0);
+            }
+            List<Grid> grids = Arrays.asList(full, sparse, Grid.ofDimension(dim), full);
+            byte[] packed = pack(dim, grids);
+            assertEquals(7 + PackedPuzzleWriter.recordSize(dim) * 4, packed.length, "" + dim);
+            PackedPuzzleReader in = PackedPuzzleReader.of(new ByteArrayInputStream(packed));
+            assertEquals(dim, in.getDimension());
+            Grid grid = Grid.ofDimension(dim);
+            for (Grid expected : grids) {
+                assertTrue(in.read(grid), "" + dim);
+                assertEquals(expected, grid, "" + dim);
+            }
+            assertFalse(in.read(grid));
+            assertNull(in.read());
+        }
+        assertEquals(5 * 256 / 8, PackedPuzzleWriter.recordSize(16));
+        assertEquals((5 * 625 + 7) / 8, PackedPuzzleWriter.recordSize(25));
+    }
+
+    @Test
+    void testManyRecords() throws IOException {
+        // more than fits the buffers, so that they are flushed and refilled
+        List<Grid> grids = new ArrayList<Grid>();
+        for (int k = 0; k < 5000; k++) {
+            Grid grid = solved(9);
+            grid.set(k % 81, 0);
+            grids.add(grid);
+        }
+        assertEquals(grids, unpack(pack(9, grids)));
+    }
+
+    @Test
+    void testWriterErrors() throws IOException {
+        PackedPuzzleWriter out = PackedPuzzleWriter.of(new ByteArrayOutputStream(), 9);
+        assertThrows(IllegalArgumentException.class, () -> out.write(Grid.ofDimension(16)));
+        Grid bad = Grid.ofDimension(9);
+        bad.set(5, 10);
+        assertThrows(IllegalArgumentException.class, () -> out.write(bad));
+        assertThrows(IllegalArgumentException.class,
+                     () -> PackedPuzzleWriter.of(new ByteArrayOutputStream(), 0));
+        assertThrows(IllegalArgumentException.class,
+                     () -> PackedPuzzleWriter.of(new ByteArrayOutputStream(), 0x10000));
+    }
+
+    @Test
+    void testReaderErrors() throws IOException {
+        byte[] packed = pack(9, Arrays.asList(solved(9), solved(9)));
+        assertThrows(IllegalArgumentException.class,
+                     () -> unpack(Arrays.copyOf(packed, 5)));
+        assertThrows(IllegalArgumentException.class,
+                     () -> unpack(Arrays.copyOf(packed, packed.length - 1)));
+        byte[] magic = packed.clone();
+        magic[0] = 'X';
+        assertThrows(IllegalArgumentException.class, () -> unpack(magic));
+        byte[] version = packed.clone();
+        version[4] = 2;
+        assertThrows(IllegalArgumentException.class, () -> unpack(version));
+        byte[] value = packed.clone();
+        value[7] = (byte) 0xf0;
+        assertThrows(IllegalArgumentException.class, () -> unpack(value));
+        PackedPuzzleReader in = PackedPuzzleReader.of(new ByteArrayInputStream(packed));
+        assertThrows(IllegalArgumentException.class, () -> in.read(Grid.ofDimension(4)));
+    }
+}
@@ -0,0 +1,91 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+
+class TestParallelSolver {
+    ParallelSolver s;
+
+    @BeforeEach
+    void setUp() {
+        s = ParallelSolver.ofDimension(9, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        s = null;
+    }
+
+    @Test
+    void testParallelism() {
+        assertEquals(4, s.getParallelism());
+        assertEquals(Runtime.getRuntime().availableProcessors(),
+                     ParallelSolver.ofDefaults().getParallelism());
+        assertThrows(IllegalArgumentException.class,
+                     () -> {ParallelSolver.ofDimension(9, 0);});
+    }
+
+    @Test
+    void testSolveCorpus() {
+        for (String name : Corpus.names()) {
+            int[][] m = Corpus.load(name);
+            s.setMatrix(m);
+            assertTrue(s.solve(), name);
+            TestPropagatingSolver.assertSolves(m, s.getMatrix(), name);
+        }
+    }
+
+    @Test
+    void testCount() {
+        s.setMatrix(TestSolveMode.ambiguous());
+        assertEquals(54, s.countSolutions(1000));
+        assertEquals(10, s.countSolutions(10));
+        assertFalse(s.hasUniqueSolution());
+        assertArrayEquals(TestSolveMode.ambiguous(), s.getMatrix());
+        assertEquals(54, s.solve(SolveMode.exhaustive()));
+        TestPropagatingSolver.assertSolves(TestSolveMode.ambiguous(), s.getMatrix(), "s01a");
+
+        ParallelSolver s4 = ParallelSolver.ofDimension(4, 3);
+        assertEquals(288, s4.solve(SolveMode.exhaustive()));
+        assertTrue(s4.isAllValid());
+    }
+
+    @Test
+    void testUnsolvable() {
+        for (int c = 0; c < 8; c++) {
+            s.setNumber(0, c, c + 1);
+        }
+        s.setNumber(4, 8, 9);
+        assertFalse(s.solve());
+        assertEquals(0, s.getNumber(0, 8));
+        s.clear();
+        s.setNumber(0, 0, 5);
+        s.setNumber(0, 1, 5);
+        assertFalse(s.solve());
+    }
+
+    @Test
+    void testPools() {
+        // more parallelisms than pools are kept, so that s loses its pool
+        for (int parallelism = 1; parallelism <= 8; parallelism++) {
+            ParallelSolver other = ParallelSolver.ofDimension(9, parallelism);
+            other.setMatrix(Corpus.load("s02a"));
+            assertTrue(other.solve(), "parallelism " + parallelism);
+            s.setMatrix(Corpus.load("s01a"));
+            assertTrue(s.solve(), "parallelism " + parallelism);
+            TestPropagatingSolver.assertSolves(Corpus.load("s01a"), s.getMatrix(), "s01a");
+        }
+    }
+
+    @Test
+    void testLargeDimensions() {
+        for (int dim : new int[]{16, 25}) {
+            ParallelSolver large = ParallelSolver.ofDimension(dim, 4);
+            int[][] m = TestDancingLinksSolver.puzzleOf(dim, dim);
+            large.setMatrix(m);
+            assertTrue(large.solve());
+            TestPropagatingSolver.assertSolves(m, large.getMatrix(), "dim " + dim);
+        }
+    }
+}
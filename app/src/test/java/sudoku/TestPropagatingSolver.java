@@ -0,0 +1,81 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+
+class TestPropagatingSolver {
+    PropagatingSolver s;
+
+    @BeforeEach
+    void setUp() {
+        s = PropagatingSolver.ofDefaults();
+    }
+
+    @AfterEach
+    void tearDown() {
+        s = null;
+    }
+
+    /**
+     * Asserts that solution is a valid, complete grid that keeps all
+     * numbers of puzzle.
+     */
+    static void assertSolves(int[][] puzzle, int[][] solution, String name) {
+        SudokuSolver check = BitmaskSolver.ofMatrix(solution);
+        assertTrue(check.isAllValid(), name);
+        for (int r = 0; r < puzzle.length; r++) {
+            for (int c = 0; c < puzzle.length; c++) {
+                assertNotEquals(0, solution[r][c], name);
+                if (puzzle[r][c] != 0) {
+                    assertEquals(puzzle[r][c], solution[r][c], name);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSolveCorpus() {
+        for (String name : Corpus.names()) {
+            int[][] m = Corpus.load(name);
+            s.setMatrix(m);
+            assertTrue(s.solve(), name);
+            assertSolves(m, s.getMatrix(), name);
+        }
+    }
+
+    @Test
+    void testEasyNeedsNoSearch() {
+        s.setMatrix(Corpus.load("s01a"));
+        assertTrue(s.solve());
+        assertEquals(0, s.getSearchedCount());
+        assertEquals(0, s.getBacktrackCount());
+        assertEquals(81 - 33, s.getPropagatedCount());
+    }
+
+    @Test
+    void testUnsolvable() {
+        // 1-8 in the first row and 9 in the last column, (0, 8) has no candidate
+        for (int c = 0; c < 8; c++) {
+            s.setNumber(0, c, c + 1);
+        }
+        s.setNumber(4, 8, 9);
+        assertFalse(s.solve());
+        assertEquals(0, s.getNumber(0, 8));
+        assertEquals(0, s.getNumber(1, 0));
+
+        s.clear();
+        s.setNumber(0, 0, 5);
+        s.setNumber(0, 1, 5);
+        assertFalse(s.solve());
+    }
+
+    @Test
+    void testSolveEmpty() {
+        assertTrue(s.solve());
+        assertTrue(s.isAllValid());
+        PropagatingSolver s16 = PropagatingSolver.ofDimension(16);
+        assertTrue(s16.solve());
+        assertTrue(s16.isAllValid());
+    }
+}
@@ -0,0 +1,189 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.*;
+
+class TestPuzzleReader {
+
+    static String rows(int[][] nbrs) {
+        StringBuilder sb = new StringBuilder();
+        for (int[] row : nbrs) {
+            for (int n : row) {
+                sb.append(n).append(' ');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    static String line(int[][] nbrs, char blank) {
+        StringBuilder sb = new StringBuilder();
+        for (int[] row : nbrs) {
+            for (int n : row) {
+                sb.append(n == 0 ? blank : Character.forDigit(n, 36));
+            }
+        }
+        return sb.toString();
+    }
+
+    static List<Grid> readAll(String text, PuzzleReader.Format format) {
+        return PuzzleReader.of(new StringReader(text), format).stream()
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    void testCorpusRows() throws IOException {
+        StringBuilder all = new StringBuilder();
+        for (String name : Corpus.names()) {
+            int[][] nbrs = Corpus.load(name);
+            String text = rows(nbrs);
+            try (PuzzleReader in = PuzzleReader.of(new StringReader(text), PuzzleReader.Format.ROWS)) {
+                Grid grid = in.read();
+                assertEquals(Grid.ofMatrix(nbrs), grid, name);
+                assertNull(in.read(), name);
+            }
+            all.append(text).append('\n');
+        }
+        List<Grid> grids = readAll(all.toString(), PuzzleReader.Format.ROWS);
+        assertEquals(Corpus.names().size(), grids.size());
+        for (int k = 0; k < grids.size(); k++) {
+            assertEquals(Grid.ofMatrix(Corpus.load(Corpus.names().get(k))), grids.get(k));
+        }
+    }
+
+    @Test
+    void testCorpusLines() {
+        StringBuilder all = new StringBuilder();
+        List<String> names = Corpus.names();
+        for (int k = 0; k < names.size(); k++) {
+            all.append(line(Corpus.load(names.get(k)), k % 2 == 0 ? '.' : '0'));
+            all.append(k % 3 == 0 ? "\r\n" : "\n");
+        }
+        List<Grid> grids = readAll(all.toString(), PuzzleReader.Format.LINE);
+        assertEquals(names.size(), grids.size());
+        for (int k = 0; k < grids.size(); k++) {
+            assertEquals(Grid.ofMatrix(Corpus.load(names.get(k))), grids.get(k), names.get(k));
+        }
+    }
+
+    @Test
+    void testReuse() throws IOException {
+        int[][] a = Corpus.load("s01a");
+        int[][] b = Corpus.load("s02b");
+        String text = "\n\n" + rows(a) + "\n  \n" + rows(b);
+        Grid grid = Grid.ofDimension(9);
+        try (PuzzleReader in = PuzzleReader.of(new StringReader(text), PuzzleReader.Format.ROWS)) {
+            assertTrue(in.read(grid));
+            assertArrayEquals(a, grid.getMatrix());
+            assertTrue(in.read(grid));
+            assertArrayEquals(b, grid.getMatrix());
+            assertFalse(in.read(grid));
+        }
+    }
+
+    @Test
+    void testOtherDimensions() {
+        String text = "1 0 0 0\n0 0 3 0\n0 4 0 0\n0 0 0 2\n\n" +
+                      "16 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0\n";
+        assertThrows(IllegalArgumentException.class,
+                     () -> readAll(text, PuzzleReader.Format.ROWS));
+        List<Grid> grids = readAll(text.substring(0, text.indexOf("\n\n")), PuzzleReader.Format.ROWS);
+        assertEquals(1, grids.size());
+        assertEquals(4, grids.get(0).getDimension());
+        assertEquals(3, grids.get(0).get(1, 2));
+
+        Grid big = readAll("G" + ".".repeat(255), PuzzleReader.Format.LINE).get(0);
+        assertEquals(16, big.getDimension());
+        assertEquals(16, big.get(0));
+        assertEquals(0, big.get(255));
+    }
+
+    @Test
+    void testMalformed() {
+        String row = "1 2 3 4 5 6 7 8 9\n";
+        String[] bad = {
+            row.repeat(8),
+            row.repeat(4) + "1 2 3 4 5 6 7 8\n" + row.repeat(4),
+            row.repeat(4) + "1 2 3 4 5 6 7 8 9 1\n" + row.repeat(4),
+            row.repeat(4) + "1 2 3 4 x 6 7 8 9\n" + row.repeat(4),
+            row.repeat(4) + "1 2 3 4 10 6 7 8 9\n" + row.repeat(4)
+        };
+        for (String text : bad) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> readAll(text, PuzzleReader.Format.ROWS), text);
+            assertTrue(e.getMessage().startsWith("line "), e.getMessage());
+        }
+        assertThrows(IllegalArgumentException.class,
+                     () -> readAll(".".repeat(80), PuzzleReader.Format.LINE));
+        assertThrows(IllegalArgumentException.class,
+                     () -> readAll(".".repeat(40) + "A" + ".".repeat(40), PuzzleReader.Format.LINE));
+        assertThrows(IllegalArgumentException.class,
+                     () -> readAll(".".repeat(40) + "?" + ".".repeat(40), PuzzleReader.Format.LINE));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> readAll(".".repeat(81) + "\n" + ".".repeat(82), PuzzleReader.Format.LINE));
+        assertTrue(e.getMessage().startsWith("line 2:"), e.getMessage());
+        PuzzleReader in = PuzzleReader.of(new StringReader(".".repeat(16)), PuzzleReader.Format.LINE);
+        assertThrows(IllegalArgumentException.class, () -> in.read(Grid.ofDimension(9)));
+    }
+
+    @Test
+    void testLazy() {
+        // an endless text of sudokus, handed out a few characters at a time
+        String one = line(Corpus.load("s01a"), '.') + "\n";
+        Reader endless = new Reader() {
+            private long served;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                int n = Math.min(len, 7);
+                for (int k = 0; k < n; k++) {
+                    cbuf[off + k] = one.charAt((int) (served++ % one.length()));
+                }
+                return n;
+            }
+
+            @Override
+            public void close() {}
+        };
+        List<Grid> grids = PuzzleReader.of(endless, PuzzleReader.Format.LINE).stream()
+            .limit(1000)
+            .collect(Collectors.toList());
+        assertEquals(1000, grids.size());
+        assertEquals(Grid.ofMatrix(Corpus.load("s01a")), grids.get(999));
+    }
+
+    @Test
+    void testStreamClose() {
+        boolean[] closed = new boolean[1];
+        Reader in = new StringReader("") {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        try (Stream<Grid> grids = PuzzleReader.of(in, PuzzleReader.Format.ROWS).stream()) {
+            assertEquals(0, grids.count());
+        }
+        assertTrue(closed[0]);
+        Reader failing = new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("disk on fire");
+            }
+
+            @Override
+            public void close() {}
+        };
+        assertThrows(UncheckedIOException.class,
+                     () -> PuzzleReader.of(failing, PuzzleReader.Format.LINE).stream().count());
+    }
+}
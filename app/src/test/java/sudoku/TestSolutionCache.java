@@ -0,0 +1,146 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+class TestSolutionCache {
+    SolutionCache cache;
+    DancingLinksSolver s;
+    Random random;
+
+    @BeforeEach
+    void setUp() {
+        cache = SolutionCache.ofCapacity(100);
+        s = DancingLinksSolver.ofDimension(9);
+        random = new Random(24);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache = null;
+        s = null;
+        random = null;
+    }
+
+    @Test
+    void testHitOnVariants() {
+        for (String name : Corpus.names()) {
+            int[][] puzzle = Corpus.load(name);
+            if (puzzle.length != 9) {
+                continue;
+            }
+            s.setMatrix(puzzle);
+            assertTrue(cache.solve(s), name);
+            TestPropagatingSolver.assertSolves(puzzle, s.getMatrix(), name);
+            long hits = cache.getHitCount();
+            for (int k = 0; k < 3; k++) {
+                int[][] variant = TestCanonicalizer.randomSymmetry(9, random)
+                    .apply(Grid.ofMatrix(puzzle)).getMatrix();
+                s.setMatrix(variant);
+                SolveResult result = cache.solve(s, Budget.unlimited());
+                assertTrue(result.isSolved(), name);
+                assertEquals(0, result.getStats().getNodes());
+                TestPropagatingSolver.assertSolves(variant, s.getMatrix(), name);
+            }
+            assertEquals(hits + 3, cache.getHitCount(), name);
+        }
+        assertEquals(cache.size(), cache.getMissCount());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    void testUnsolvable() {
+        int[][] puzzle = TestBudget.lateDeadEnd();
+        s.setMatrix(puzzle);
+        assertEquals(SolveResult.Status.UNSOLVABLE, cache.solve(s, Budget.unlimited()).getStatus());
+        int[][] variant = TestCanonicalizer.randomSymmetry(9, random).apply(Grid.ofMatrix(puzzle)).getMatrix();
+        s.setMatrix(variant);
+        assertFalse(cache.solve(s));
+        assertArrayEquals(variant, s.getMatrix());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testAbortedIsNotCached() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        s.setMatrix(Corpus.load("s07a"));
+        assertEquals(SolveResult.Status.ABORTED, cache.solve(s, Budget.ofToken(token)).getStatus());
+        assertEquals(0, cache.size());
+        assertTrue(cache.solve(s));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void testEviction() {
+        SolutionCache small = SolutionCache.ofCapacity(2);
+        int[][] a = Corpus.load("s01a");
+        int[][] b = Corpus.load("s02a");
+        int[][] c = Corpus.load("s03a");
+        for (int[][] puzzle : new int[][][] {a, b, a, c}) {
+            s.setMatrix(puzzle);
+            assertTrue(small.solve(s));
+        }
+        // a was used after b, so b was evicted for c
+        assertEquals(2, small.size());
+        assertEquals(1, small.getEvictionCount());
+        assertEquals(1, small.getHitCount());
+        s.setMatrix(a);
+        small.solve(s);
+        assertEquals(2, small.getHitCount());
+        s.setMatrix(b);
+        small.solve(s);
+        assertEquals(2, small.getHitCount());
+        assertEquals(4, small.getMissCount());
+        assertEquals(2, small.getEvictionCount());
+        small.clear();
+        assertEquals(0, small.size());
+        assertEquals(2, small.getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> SolutionCache.ofCapacity(0));
+    }
+
+    @Test
+    void testOtherDimensions() {
+        int[][] puzzle = TestDancingLinksSolver.puzzleOf(16, 9);
+        SudokuSolver large = BitmaskSolver.ofMatrix(puzzle);
+        assertTrue(cache.solve(large));
+        int[][] variant = TestCanonicalizer.randomSymmetry(16, random).apply(Grid.ofMatrix(puzzle)).getMatrix();
+        large.setMatrix(variant);
+        assertTrue(cache.solve(large));
+        TestPropagatingSolver.assertSolves(variant, large.getMatrix(), "16x16");
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void testCanonicalizeInBudget() {
+        Budget second = Budget.ofTimeout(1, TimeUnit.SECONDS);
+        SudokuSolver large = DancingLinksSolver.ofDimension(36);
+        long start = System.nanoTime();
+        SolveResult result = cache.solve(large, second);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        assertNotEquals(SolveResult.Status.UNSOLVABLE, result.getStatus());
+
+        // the solution of the empty grid has so many symmetries of its own
+        // that it takes seconds to canonicalize, so the cache gives up and
+        // reads it off as solved
+        DancingLinksSolver full = DancingLinksSolver.ofDimension(36);
+        assertTrue(full.solve());
+        int[][] puzzle = full.getMatrix();
+        large.setMatrix(puzzle);
+        long misses = cache.getMissCount();
+        int size = cache.size();
+        start = System.nanoTime();
+        result = cache.solve(large, second);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        assertTrue(result.isSolved());
+        TestPropagatingSolver.assertSolves(puzzle, large.getMatrix(), "36x36");
+        assertEquals(misses + 1, cache.getMissCount());
+        assertEquals(size, cache.size());
+    }
+}
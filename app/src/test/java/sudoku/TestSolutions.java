@@ -0,0 +1,85 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.*;
+
+class TestSolutions {
+
+    /**
+     * Returns the solutions as strings, to compare them as a set.
+     */
+    static Set<String> asStrings(List<int[][]> solutions) {
+        return solutions.stream()
+                        .map(Arrays::deepToString)
+                        .collect(Collectors.toSet());
+    }
+
+    @Test
+    void testEmpty4x4() {
+        SudokuSolver s = BitmaskSolver.ofDimension(4);
+        List<int[][]> sequential = s.solutions().collect(Collectors.toList());
+        assertEquals(288, sequential.size());
+        assertEquals(288, asStrings(sequential).size());
+        for (int[][] m : sequential) {
+            assertTrue(BitmaskSolver.ofMatrix(m).isAllValid());
+        }
+        List<int[][]> parallel = s.solutions().parallel().collect(Collectors.toList());
+        assertEquals(asStrings(sequential), asStrings(parallel));
+    }
+
+    @Test
+    void testSeveralSolutions() {
+        int[][] m = TestSolveMode.ambiguous();
+        SudokuSolver s = Solver.ofMatrix(m);
+        List<int[][]> sequential = s.solutions().collect(Collectors.toList());
+        assertEquals(54, sequential.size());
+        for (int[][] solution : sequential) {
+            TestPropagatingSolver.assertSolves(m, solution, "s01a");
+        }
+        List<int[][]> parallel = s.solutions().parallel().collect(Collectors.toList());
+        assertEquals(asStrings(sequential), asStrings(parallel));
+        // the grid is never touched
+        assertArrayEquals(TestSolveMode.ambiguous(), s.getMatrix());
+    }
+
+    @Test
+    void testCorpus() {
+        for (String name : Corpus.names()) {
+            SudokuSolver s = BitmaskSolver.ofMatrix(Corpus.load(name));
+            List<int[][]> solutions = s.solutions().parallel().collect(Collectors.toList());
+            assertEquals(1, solutions.size(), name);
+            s.solve();
+            assertArrayEquals(s.getMatrix(), solutions.get(0), name);
+        }
+    }
+
+    // the empty grid has far too many solutions to go through them all
+    @Test
+    void testLazy() {
+        SudokuSolver s = Solver.ofDefaults();
+        assertEquals(1000, s.solutions().limit(1000).count());
+        assertEquals(1000, s.solutions().parallel().limit(1000).count());
+        SudokuSolver s16 = DancingLinksSolver.ofDimension(16);
+        assertTrue(s16.solutions().findFirst().isPresent());
+    }
+
+    @Test
+    void testNoSolution() {
+        SudokuSolver s = BitmaskSolver.ofDefaults();
+        s.setNumber(0, 0, 5);
+        s.setNumber(0, 1, 5);
+        assertEquals(0, s.solutions().count());
+        s.clear();
+        for (int c = 0; c < 8; c++) {
+            s.setNumber(0, c, c + 1);
+        }
+        s.setNumber(4, 8, 9);
+        assertEquals(0, s.solutions().parallel().count());
+    }
+}
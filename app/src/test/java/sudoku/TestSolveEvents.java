@@ -0,0 +1,148 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.*;
+
+class TestSolveEvents {
+    long nodes;
+    long millis;
+
+    @BeforeEach
+    void setUp() {
+        nodes = SolveEvents.getSlowSearchNodes();
+        millis = SolveEvents.getSlowSearchMillis();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SolveEvents.setSlowSearchBudget(nodes, millis);
+    }
+
+    /**
+     * Runs the searches with both events enabled and returns the events.
+     */
+    static List<RecordedEvent> record(Runnable searches) throws IOException {
+        Path file = Files.createTempFile("sudoku", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("sudoku.Solve");
+            recording.enable("sudoku.SlowSearch");
+            recording.start();
+            searches.run();
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+            for (RecordedEvent e : RecordingFile.readAllEvents(file)) {
+                if (e.getEventType().getName().startsWith("sudoku.")) {
+                    events.add(e);
+                }
+            }
+            return events;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testBudget() {
+        SolveEvents.setSlowSearchBudget(5, 20);
+        assertEquals(5, SolveEvents.getSlowSearchNodes());
+        assertEquals(20, SolveEvents.getSlowSearchMillis());
+        assertThrows(IllegalArgumentException.class,
+                     () -> {SolveEvents.setSlowSearchBudget(-1, 20);});
+    }
+
+    @Test
+    void testSolveEvents() throws IOException {
+        SolveEvents.setSlowSearchBudget(Long.MAX_VALUE, Long.MAX_VALUE / 1_000_000);
+        List<RecordedEvent> events = record(() -> {
+            for (SudokuSolver s : TestSolveStats.engines()) {
+                s.setMatrix(Corpus.load("s01a"));
+                s.solve();
+            }
+            DancingLinksSolver.ofMatrix(TestSolveMode.ambiguous()).countSolutions(10);
+        });
+        assertEquals(6, events.size());
+        for (RecordedEvent e : events) {
+            assertEquals("sudoku.Solve", e.getEventType().getName());
+            assertEquals(9, e.getInt("dimension"));
+        }
+        RecordedEvent solver = events.get(0);
+        assertEquals("Solver", solver.getString("engine"));
+        assertEquals("solve", solver.getString("operation"));
+        assertEquals(33, solver.getInt("clues"));
+        assertEquals(1, solver.getLong("solutions"));
+        assertEquals("SOLVED", solver.getString("outcome"));
+        assertTrue(solver.getLong("nodes") > 0);
+        RecordedEvent count = events.get(5);
+        assertEquals("DancingLinksSolver", count.getString("engine"));
+        assertEquals("count", count.getString("operation"));
+        assertEquals(10, count.getLong("limit"));
+        assertEquals(10, count.getLong("solutions"));
+        assertEquals("FOUND", count.getString("outcome"));
+    }
+
+    @Test
+    void testOutcome() throws IOException {
+        SolveEvents.setSlowSearchBudget(Long.MAX_VALUE, Long.MAX_VALUE / 1_000_000);
+        int[][] duplicate = new int[9][9];
+        duplicate[0][0] = 5;
+        duplicate[0][1] = 5;
+        List<RecordedEvent> events = record(() -> {
+            for (SudokuSolver s : TestSolveStats.engines()) {
+                s.setMatrix(duplicate);
+                s.solve(Budget.unlimited());
+                // nothing is solved without a branch
+                s.setMatrix(new int[9][9]);
+                s.solve(Budget.ofNodes(0));
+                s.setMatrix(Corpus.load("s01a"));
+                s.countSolutions(2);
+            }
+        });
+        assertEquals(15, events.size());
+        for (int k = 0; k < events.size(); k += 3) {
+            String name = events.get(k).getString("engine");
+            // both find no solution, but only one of them is sure of it
+            assertEquals("UNSOLVABLE", events.get(k).getString("outcome"), name);
+            assertEquals(0, events.get(k).getLong("solutions"), name);
+            assertEquals("ABORTED", events.get(k + 1).getString("outcome"), name);
+            assertEquals(0, events.get(k + 1).getLong("solutions"), name);
+            assertEquals("EXHAUSTED", events.get(k + 2).getString("outcome"), name);
+            assertEquals(1, events.get(k + 2).getLong("solutions"), name);
+        }
+    }
+
+    @Test
+    void testSlowSearch() throws IOException {
+        SolveEvents.setSlowSearchBudget(100, Long.MAX_VALUE / 1_000_000);
+        List<RecordedEvent> events = record(() -> {
+            // far more than 100 nodes in row-major order, none propagated
+            Solver.ofMatrix(Corpus.load("s01a")).solve();
+            PropagatingSolver.ofMatrix(Corpus.load("s01a")).solve();
+        });
+        List<RecordedEvent> slow = new ArrayList<RecordedEvent>();
+        for (RecordedEvent e : events) {
+            if (e.getEventType().getName().equals("sudoku.SlowSearch")) {
+                slow.add(e);
+            }
+        }
+        assertEquals(1, slow.size());
+        RecordedEvent e = slow.get(0);
+        assertEquals("Solver", e.getString("engine"));
+        assertEquals(100, e.getLong("nodeBudget"));
+        assertTrue(e.getLong("nodes") > 100);
+        String line = e.getString("puzzle");
+        assertEquals(81, line.length());
+        assertTrue(line.startsWith("040000179"));
+    }
+}
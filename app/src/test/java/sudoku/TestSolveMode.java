@@ -0,0 +1,180 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+class TestSolveMode {
+
+    /**
+     * A SudokuSolver that only has the default solve(SolveMode).
+     */
+    static class PlainSolver implements SudokuSolver {
+        private final BitmaskSolver s;
+
+        PlainSolver(int dim) {
+            s = BitmaskSolver.ofDimension(dim);
+        }
+
+        public void setNumber(int r, int c, int nbr) { s.setNumber(r, c, nbr); }
+        public int getNumber(int r, int c) { return s.getNumber(r, c); }
+        public void clearNumber(int r, int c) { s.clearNumber(r, c); }
+        public boolean isValid(int r, int c, int nbr) { return s.isValid(r, c, nbr); }
+        public boolean isAllValid() { return s.isAllValid(); }
+        public boolean solve() { return solve(SolveMode.first()) > 0; }
+        public void clear() { s.clear(); }
+        public int[][] getMatrix() { return s.getMatrix(); }
+        public void setMatrix(int[][] nbrs) { s.setMatrix(nbrs); }
+        public int getDimension() { return s.getDimension(); }
+    }
+
+    /**
+     * Returns one of each engine, with the numbers of nbrs filled in.
+     */
+    static List<SudokuSolver> engines(int[][] nbrs) {
+        int dim = nbrs.length;
+        List<SudokuSolver> engines = new ArrayList<SudokuSolver>();
+        engines.add(Solver.ofDimension(dim));
+        engines.add(BitmaskSolver.ofDimension(dim));
+        BitmaskSolver fewest = BitmaskSolver.ofDimension(dim);
+        fewest.setCellOrder(CellOrder.FEWEST_CANDIDATES);
+        engines.add(fewest);
+        engines.add(PropagatingSolver.ofDimension(dim));
+        engines.add(DancingLinksSolver.ofDimension(dim));
+        engines.add(new PlainSolver(dim));
+        for (SudokuSolver s : engines) {
+            for (int r = 0; r < dim; r++) {
+                for (int c = 0; c < dim; c++) {
+                    if (nbrs[r][c] != 0) {
+                        s.setNumber(r, c, nbrs[r][c]);
+                    }
+                }
+            }
+        }
+        return engines;
+    }
+
+    /**
+     * Returns s01a with its first two rows cleared, which has 54 solutions.
+     */
+    static int[][] ambiguous() {
+        int[][] m = Corpus.load("s01a");
+        for (int c = 0; c < 9; c++) {
+            m[0][c] = 0;
+            m[1][c] = 0;
+        }
+        return m;
+    }
+
+    @Test
+    void testLimit() {
+        assertEquals(1, SolveMode.first().getLimit());
+        assertEquals(5, SolveMode.firstK(5).getLimit());
+        assertEquals(Long.MAX_VALUE, SolveMode.exhaustive().getLimit());
+        assertSame(SolveMode.first(), SolveMode.firstK(1));
+        assertThrows(IllegalArgumentException.class,
+                     () -> {SolveMode.firstK(0);});
+    }
+
+    // every corpus sudoku has exactly one solution
+    // Solver.setMatrix keeps the matrix it is given, so every setMatrix
+    // below gets a freshly loaded one
+    @Test
+    void testCorpus() {
+        for (String name : Corpus.names()) {
+            int[][] m = Corpus.load(name);
+            for (SudokuSolver s : engines(m)) {
+                String what = name + " " + s.getClass().getSimpleName();
+                assertEquals(1, s.solve(SolveMode.first()), what);
+                int[][] solution = s.getMatrix();
+                TestPropagatingSolver.assertSolves(m, solution, what);
+
+                s.setMatrix(Corpus.load(name));
+                assertEquals(1, s.solve(SolveMode.firstK(2)), what);
+                assertArrayEquals(solution, s.getMatrix(), what);
+
+                s.setMatrix(Corpus.load(name));
+                assertEquals(1, s.solve(SolveMode.exhaustive()), what);
+                assertArrayEquals(solution, s.getMatrix(), what);
+            }
+        }
+    }
+
+    @Test
+    void testSeveralSolutions() {
+        int[][] m = ambiguous();
+        for (SudokuSolver s : engines(m)) {
+            String what = s.getClass().getSimpleName();
+            assertEquals(54, s.solve(SolveMode.exhaustive()), what);
+            int[][] first = s.getMatrix();
+            TestPropagatingSolver.assertSolves(m, first, what);
+
+            // the grid keeps the first solution, whatever the mode
+            s.setMatrix(ambiguous());
+            assertEquals(5, s.solve(SolveMode.firstK(5)), what);
+            assertArrayEquals(first, s.getMatrix(), what);
+
+            s.setMatrix(ambiguous());
+            assertEquals(1, s.solve(SolveMode.first()), what);
+            assertArrayEquals(first, s.getMatrix(), what);
+        }
+    }
+
+    @Test
+    void testEmpty4x4() {
+        for (SudokuSolver s : engines(new int[4][4])) {
+            String what = s.getClass().getSimpleName();
+            assertEquals(288, s.solve(SolveMode.exhaustive()), what);
+            assertTrue(s.isAllValid(), what);
+            s.clear();
+            assertEquals(100, s.solve(SolveMode.firstK(100)), what);
+        }
+    }
+
+    @Test
+    void testNoSolution() {
+        int[][] m = new int[9][9];
+        m[0][0] = 5;
+        m[0][1] = 5;
+        for (SudokuSolver s : engines(m)) {
+            assertEquals(0, s.solve(SolveMode.exhaustive()));
+            assertArrayEquals(m, s.getMatrix());
+        }
+    }
+
+    @Test
+    void testCountSolutions() {
+        for (SudokuSolver s : engines(ambiguous())) {
+            String what = s.getClass().getSimpleName();
+            int[][] before = s.getMatrix();
+            assertEquals(54, s.countSolutions(1000), what);
+            assertEquals(10, s.countSolutions(10), what);
+            assertEquals(1, s.countSolutions(1), what);
+            assertFalse(s.hasUniqueSolution(), what);
+            // counting leaves the grid as it was
+            assertArrayEquals(before, s.getMatrix(), what);
+            assertThrows(IllegalArgumentException.class,
+                         () -> {s.countSolutions(0);});
+        }
+    }
+
+    @Test
+    void testHasUniqueSolution() {
+        for (String name : Corpus.names()) {
+            for (SudokuSolver s : engines(Corpus.load(name))) {
+                assertTrue(s.hasUniqueSolution(), name);
+                assertArrayEquals(Corpus.load(name), s.getMatrix(), name);
+            }
+        }
+        int[][] m = new int[9][9];
+        m[0][0] = 5;
+        m[0][1] = 5;
+        for (SudokuSolver s : engines(m)) {
+            assertEquals(0, s.countSolutions(2));
+            assertFalse(s.hasUniqueSolution());
+        }
+    }
+}
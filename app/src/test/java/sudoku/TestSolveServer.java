@@ -0,0 +1,229 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+class TestSolveServer {
+    SolveServer server;
+    HttpClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = SolveServer.ofPort(0);
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        server = null;
+        client = null;
+    }
+
+    URI uri(String query) {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + "/solve" + query);
+    }
+
+    HttpResponse<String> post(String query, String type, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri(query))
+            .header("Content-Type", type)
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    static String solution(int[][] puzzle) {
+        DancingLinksSolver s = DancingLinksSolver.ofMatrix(puzzle);
+        assertTrue(s.solve());
+        StringBuilder sb = new StringBuilder("[");
+        int[][] m = s.getMatrix();
+        for (int r = 0; r < m.length; r++) {
+            sb.append(r == 0 ? "[" : ", [");
+            for (int c = 0; c < m.length; c++) {
+                sb.append(c == 0 ? "" : ",").append(m[r][c]);
+            }
+            sb.append(']');
+        }
+        return sb.append(']').toString();
+    }
+
+    @Test
+    void testText() throws Exception {
+        server.start();
+        int[][] puzzle = Corpus.load("s01a");
+        HttpResponse<String> line = post("", "text/plain", TestPuzzleReader.line(puzzle, '.'));
+        assertEquals(200, line.statusCode(), line.body());
+        assertTrue(line.body().startsWith("{\"status\": \"SOLVED\", \"dimension\": 9, \"solution\": " +
+                                          solution(puzzle) + ", \"nodes\": "), line.body());
+        HttpResponse<String> rows = post("?timeoutMillis=500", "text/plain", TestPuzzleReader.rows(puzzle));
+        assertEquals(line.body().substring(0, line.body().indexOf("\"nodes\"")),
+                     rows.body().substring(0, rows.body().indexOf("\"nodes\"")));
+        assertEquals(2, server.getSolvedCount());
+    }
+
+    @Test
+    void testJson() throws Exception {
+        server.setEngine(BitmaskSolver::ofDimension);
+        server.start();
+        int[][] puzzle = Corpus.load("s02b");
+        StringBuilder rows = new StringBuilder("[");
+        for (int r = 0; r < 9; r++) {
+            rows.append(r == 0 ? "" : ",").append(Arrays.toString(puzzle[r]));
+        }
+        rows.append(']');
+        HttpResponse<String> response = post("", "application/json",
+            "{ \"timeoutMillis\": 1000, \"puzzle\": " + rows + " }");
+        assertEquals(200, response.statusCode(), response.body());
+        assertTrue(response.body().contains("\"solution\": " + solution(puzzle)), response.body());
+
+        response = post("", "application/json; charset=utf-8",
+                        "{\"puzzle\": \"" + TestPuzzleReader.line(puzzle, '0') + "\"}");
+        assertTrue(response.body().contains("\"solution\": " + solution(puzzle)), response.body());
+
+        puzzle[0][0] = puzzle[0][1] = 9;
+        response = post("", "text/plain", TestPuzzleReader.line(puzzle, '.'));
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("{\"status\": \"UNSOLVABLE\", \"dimension\": 9, \"solution\": null"),
+                   response.body());
+    }
+
+    @Test
+    void testCache() throws Exception {
+        SolutionCache cache = SolutionCache.ofCapacity(10);
+        server.setCache(cache);
+        server.start();
+        Grid puzzle = Grid.ofMatrix(Corpus.load("s04c"));
+        Grid variant = TestCanonicalizer.randomSymmetry(9, new Random(23)).apply(puzzle);
+        post("", "text/plain", TestPuzzleReader.line(puzzle.getMatrix(), '.'));
+        HttpResponse<String> response = post("", "text/plain", TestPuzzleReader.line(variant.getMatrix(), '.'));
+        assertTrue(response.body().contains("\"solution\": " + solution(variant.getMatrix()) + ", \"nodes\": 0,"),
+                   response.body());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, server.getSolvedCount());
+    }
+
+    @Test
+    void testBadRequests() throws Exception {
+        server.start();
+        String[][] bad = {
+            {"text/plain", ""},
+            {"text/plain", "1 2 3\n"},
+            {"text/plain", ".".repeat(80)},
+            {"application/json", "{\"puzzle\": "},
+            {"application/json", "[1, 2]"},
+            {"application/json", "{\"puzzle\": [[1, 2], [3]]}"},
+            {"application/json", "{\"puzzle\": [[\"1\"]]}"},
+            {"application/json", "{\"puzzle\": \"" + ".".repeat(81) + "\", \"timeoutMillis\": -1}"},
+            // a 5x5 grid is fine for a Grid, but not for the solvers
+            {"application/json", "{\"puzzle\": \"" + ".".repeat(25) + "\"}"}
+        };
+        for (String[] request : bad) {
+            HttpResponse<String> response = post("", request[0], request[1]);
+            assertEquals(400, response.statusCode(), request[1]);
+            assertTrue(response.body().startsWith("{\"error\": "), response.body());
+        }
+        assertEquals(400, post("?timeoutMillis=soon", "text/plain", ".".repeat(81)).statusCode());
+        HttpResponse<String> get = client.send(HttpRequest.newBuilder(uri("")).GET().build(),
+                                               HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, get.statusCode());
+        awaitInFlight(0);
+    }
+
+    @Test
+    void testTimeout() throws Exception {
+        server.setEngine(Solver::ofDimension);
+        server.start();
+        HttpResponse<String> response = post("?timeoutMillis=50", "text/plain",
+                                             TestPuzzleReader.line(TestBudget.lateDeadEnd(), '.'));
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("{\"status\": \"ABORTED\""), response.body());
+    }
+
+    @Test
+    void testOverload() throws Exception {
+        server.setEngine(Solver::ofDimension);
+        server.setConcurrency(1);
+        server.setQueueCapacity(1);
+        server.start();
+        assertThrows(IllegalStateException.class, () -> server.setConcurrency(2));
+        String hard = TestPuzzleReader.line(TestBudget.lateDeadEnd(), '.');
+        // the first request is solved for 2 s, the second one waits for a
+        // turn, which it does not get within its 300 ms
+        CompletableFuture<HttpResponse<String>> first = postAsync("?timeoutMillis=2000", hard);
+        awaitInFlight(1);
+        CompletableFuture<HttpResponse<String>> second = postAsync("?timeoutMillis=300", hard);
+        awaitInFlight(2);
+        HttpResponse<String> rejected = post("", "text/plain", TestPuzzleReader.line(Corpus.load("s01a"), '.'));
+        assertEquals(503, rejected.statusCode());
+        assertEquals("1", rejected.headers().firstValue("Retry-After").orElse(null));
+        assertEquals(1, server.getRejectedCount());
+        assertEquals(503, second.get().statusCode());
+        HttpResponse<String> response = first.get();
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("{\"status\": \"ABORTED\""), response.body());
+        // the admission is released just after the response is sent
+        awaitInFlight(0);
+    }
+
+    @Test
+    void testSlowClient() throws Exception {
+        server.setConcurrency(1);
+        server.setQueueCapacity(0);
+        server.start();
+        try (Socket slow = new Socket("localhost", server.getAddress().getPort())) {
+            // the headers of a request whose body never comes
+            OutputStream out = slow.getOutputStream();
+            out.write(("POST /solve HTTP/1.1\r\nHost: localhost\r\n" +
+                       "Content-Length: 100\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(200);
+            assertEquals(0, server.getInFlightCount());
+            HttpResponse<String> response = post("", "text/plain",
+                                                 TestPuzzleReader.line(Corpus.load("s01a"), '.'));
+            assertEquals(200, response.statusCode(), response.body());
+        }
+    }
+
+    @Test
+    void testNoDelay() {
+        // set by the first SolveServer unless set already
+        assertNotNull(System.getProperty("sun.net.httpserver.nodelay"));
+    }
+
+    CompletableFuture<HttpResponse<String>> postAsync(String query, String body) {
+        HttpRequest request = HttpRequest.newBuilder(uri(query))
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    void awaitInFlight(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (server.getInFlightCount() != count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, server.getInFlightCount());
+    }
+
+    @Test
+    void testSetters() {
+        assertThrows(IllegalArgumentException.class, () -> server.setConcurrency(0));
+        assertThrows(IllegalArgumentException.class, () -> server.setQueueCapacity(-1));
+        assertThrows(IllegalArgumentException.class, () -> server.setTimeout(-1, TimeUnit.SECONDS));
+        assertNotNull(SolveServer.newRequestExecutor());
+    }
+}
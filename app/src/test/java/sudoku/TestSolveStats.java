@@ -0,0 +1,143 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+class TestSolveStats {
+    int[][] puzzle;
+    int empty;
+
+    @BeforeEach
+    void setUp() {
+        puzzle = Corpus.load("s01a");
+        empty = 0;
+        for (int[] row : puzzle) {
+            for (int n : row) {
+                if (n == 0) empty++;
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        puzzle = null;
+    }
+
+    static List<SudokuSolver> engines() {
+        List<SudokuSolver> engines = new ArrayList<SudokuSolver>();
+        engines.add(Solver.ofDefaults());
+        engines.add(BitmaskSolver.ofDefaults());
+        engines.add(PropagatingSolver.ofDefaults());
+        engines.add(DancingLinksSolver.ofDefaults());
+        engines.add(ParallelSolver.ofDimension(9, 2));
+        return engines;
+    }
+
+    @Test
+    void testBeforeSolve() {
+        for (SudokuSolver s : engines()) {
+            SolveStats stats = s.getStats();
+            assertEquals(0, stats.getNodes());
+            assertEquals(0, stats.getElapsedNanos());
+        }
+        assertSame(SolveStats.NONE, new TestSolveMode.PlainSolver(9).getStats());
+    }
+
+    @Test
+    void testSolve() {
+        for (SudokuSolver s : engines()) {
+            String name = s.getClass().getSimpleName();
+            s.setMatrix(puzzle);
+            assertTrue(s.solve(), name);
+            SolveStats stats = s.getStats();
+            assertTrue(stats.getNodes() + stats.getPropagated() >= empty, name);
+            assertTrue(stats.getMaxDepth() <= empty, name);
+            assertTrue(stats.getCandidateChecks() > 0, name);
+            assertTrue(stats.getElapsedNanos() > 0, name);
+            assertTrue(stats.getBacktracks() <= stats.getNodes() + 1, name);
+        }
+    }
+
+    @Test
+    void testSolver() {
+        Solver s = Solver.ofMatrix(puzzle);
+        s.solve();
+        SolveStats stats = s.getStats();
+        assertTrue(stats.getNodes() > empty);
+        assertTrue(stats.getBacktracks() > 0);
+        assertTrue(stats.getCandidateChecks() >= stats.getNodes());
+        assertEquals(empty, stats.getMaxDepth());
+        assertEquals(0, stats.getPropagated());
+    }
+
+    @Test
+    void testBitmaskSolver() {
+        BitmaskSolver s = BitmaskSolver.ofMatrix(puzzle);
+        s.solve();
+        SolveStats stats = s.getStats();
+        assertEquals(s.getSearchedCount(), stats.getNodes());
+        assertEquals(s.getBacktrackCount(), stats.getBacktracks());
+        assertEquals(empty, stats.getMaxDepth());
+
+        // s01a needs no search at all once propagated
+        PropagatingSolver p = PropagatingSolver.ofMatrix(puzzle);
+        p.solve();
+        assertEquals(0, p.getStats().getNodes());
+        assertEquals(0, p.getStats().getMaxDepth());
+        assertEquals(empty, p.getStats().getPropagated());
+        assertEquals(p.getPropagatedCount(), p.getStats().getPropagated());
+    }
+
+    @Test
+    void testCountSolutions() {
+        for (SudokuSolver s : engines()) {
+            if (s instanceof Solver) continue;
+            String name = s.getClass().getSimpleName();
+            s.setMatrix(TestSolveMode.ambiguous());
+            assertEquals(54, s.countSolutions(100), name);
+            SolveStats stats = s.getStats();
+            assertTrue(stats.getNodes() >= 54, name);
+            assertTrue(stats.getElapsedNanos() > 0, name);
+        }
+    }
+
+    @Test
+    void testUnsolvable() {
+        BitmaskSolver s = BitmaskSolver.ofDefaults();
+        s.setNumber(0, 0, 5);
+        s.setNumber(0, 1, 5);
+        assertFalse(s.solve());
+        assertEquals(0, s.getStats().getNodes());
+    }
+
+    @Test
+    void testBatchSolver() {
+        List<int[][]> puzzles = new ArrayList<int[][]>();
+        puzzles.add(puzzle);
+        puzzles.add(new int[4][4]);
+        try (BatchSolver b = BatchSolver.ofThreads(1)) {
+            b.solve(puzzles).forEach(r -> {
+                assertTrue(r.isSolved());
+                assertTrue(r.getStats().getNodes() > 0);
+            });
+        }
+    }
+
+    @Test
+    void testPlus() {
+        SolveStats a = new SolveStats(1, 2, 3, 4, 5, 6);
+        SolveStats b = a.plus(new SolveStats(10, 20, 1, 40, 50, 60));
+        assertEquals(11, b.getNodes());
+        assertEquals(22, b.getBacktracks());
+        assertEquals(3, b.getMaxDepth());
+        assertEquals(44, b.getPropagated());
+        assertEquals(55, b.getCandidateChecks());
+        assertEquals(66, b.getElapsedNanos());
+        assertEquals(7, b.withElapsedNanos(7).getElapsedNanos());
+        assertEquals(11, b.withElapsedNanos(7).getNodes());
+    }
+}
@@ -157,4 +157,25 @@ class TestSudoku {
         assertTrue(s2.isAllValid());
     }
 
+    // a 36x36 grid with every 4th cell empty, 324 cells deep
+    @Test
+    void testDeepSolve() {
+        int dim = 36;
+        Solver s = Solver.ofDimension(dim);
+        for (int r = 0; r < dim; r++) {
+            for (int c = 0; c < dim; c++) {
+                if ((r * dim + c) % 4 != 0) {
+                    s.setNumber(r, c, (6 * (r % 6) + r / 6 + c) % dim + 1);
+                }
+            }
+        }
+        assertTrue(s.solve());
+        assertTrue(s.isAllValid());
+        for (int r = 0; r < dim; r++) {
+            for (int c = 0; c < dim; c++) {
+                assertNotEquals(0, s.getNumber(r, c));
+            }
+        }
+    }
+
 }
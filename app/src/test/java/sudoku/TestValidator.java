@@ -0,0 +1,98 @@
+package sudoku;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.*;
+
+class TestValidator {
+    Grid g;
+
+    @BeforeEach
+    void setUp() {
+        g = Grid.ofMatrix(Corpus.load("s01a"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        g = null;
+    }
+
+    @Test
+    void testValid() {
+        for (String name : Corpus.names()) {
+            assertTrue(Validator.isValid(Grid.ofMatrix(Corpus.load(name))), name);
+        }
+        assertTrue(Validator.isValid(Grid.ofDimension(9)));
+        assertTrue(Validator.isValid(Grid.ofDimension(0)));
+        assertEquals(Validator.NO_CONFLICT, Validator.findConflict(g));
+    }
+
+    @Test
+    void testConflicts() {
+        // s01a row 0 is 0 4 0 | 0 0 0 | 1 7 9
+        Grid row = g.copy();
+        row.set(0, 0, 7);
+        long conflict = Validator.findConflict(row);
+        assertEquals(0, Validator.firstCell(conflict));
+        assertEquals(7, Validator.secondCell(conflict));
+
+        // s01a column 0 holds a 3 at row 6, not seen by row 2 or box 0
+        Grid col = g.copy();
+        col.set(2, 0, 3);
+        conflict = Validator.findConflict(col);
+        assertEquals(18, Validator.firstCell(conflict));
+        assertEquals(54, Validator.secondCell(conflict));
+
+        Grid box = Grid.ofDimension(9);
+        box.set(0, 0, 4);
+        box.set(2, 2, 4);
+        conflict = Validator.findConflict(box);
+        assertEquals(0, Validator.firstCell(conflict));
+        assertEquals(20, Validator.secondCell(conflict));
+        assertFalse(Validator.isValid(box));
+    }
+
+    @Test
+    void testLargeNumbers() {
+        Grid large = Grid.ofDimension(9);
+        large.set(4, 2, 70);
+        large.set(4, 7, 71);
+        assertTrue(Validator.isValid(large));
+        large.set(4, 8, 70);
+        long conflict = Validator.findConflict(large);
+        assertEquals(large.index(4, 2), Validator.firstCell(conflict));
+        assertEquals(large.index(4, 8), Validator.secondCell(conflict));
+        Grid huge = Grid.ofDimension(100);
+        assertTrue(Validator.isValid(huge));
+        huge.set(0, 99, 100);
+        huge.set(99, 99, 100);
+        assertFalse(Validator.isValid(huge));
+    }
+
+    @Test
+    void testAgreesWithBitmaskSolver() {
+        Random random = new Random(13);
+        for (int t = 0; t < 500; t++) {
+            Grid grid = Grid.ofDimension(9);
+            for (int k = 0; k < 8 + random.nextInt(10); k++) {
+                grid.set(random.nextInt(81), 1 + random.nextInt(9));
+            }
+            BitmaskSolver s = BitmaskSolver.ofDefaults();
+            s.setGrid(grid);
+            long conflict = Validator.findConflict(grid);
+            assertEquals(s.isAllValid(), conflict == Validator.NO_CONFLICT);
+            if (conflict != Validator.NO_CONFLICT) {
+                int i = Validator.firstCell(conflict);
+                int j = Validator.secondCell(conflict);
+                assertTrue(i < j);
+                assertEquals(grid.get(i), grid.get(j));
+                Geometry geo = Geometry.ofDimension(9);
+                assertTrue(geo.rowOf(i) == geo.rowOf(j) ||
+                           geo.colOf(i) == geo.colOf(j) ||
+                           geo.boxOf(i) == geo.boxOf(j));
+            }
+        }
+    }
+}
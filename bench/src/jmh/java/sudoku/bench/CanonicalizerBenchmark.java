@@ -0,0 +1,80 @@
+package sudoku.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import sudoku.Canonicalizer;
+import sudoku.DancingLinksSolver;
+import sudoku.Grid;
+
+/**
+ * Canonicalizing the bundled 9x9 sudokus, and their solutions, with one
+ * reused Canonicalizer. An operation goes through all of them once, so
+ * the grids per second are the throughput times the number printed at
+ * setup. Every benchmark returns the sum of the hashes, so that nothing
+ * is optimized away.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CanonicalizerBenchmark {
+    private List<Grid> puzzles;
+    private List<Grid> solutions;
+    private Canonicalizer canonicalizer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        puzzles = new ArrayList<Grid>();
+        solutions = new ArrayList<Grid>();
+        for (String name : Puzzles.names()) {
+            int[][] nbrs = Puzzles.load(name);
+            if (nbrs.length != 9) {
+                continue;
+            }
+            DancingLinksSolver solver = DancingLinksSolver.ofMatrix(nbrs);
+            if (solver.solve()) {
+                solutions.add(solver.getGrid());
+            }
+            puzzles.add(Grid.ofMatrix(nbrs));
+        }
+        canonicalizer = Canonicalizer.ofDimension(9);
+        System.out.printf("%n%d sudokus, %d solutions%n", puzzles.size(), solutions.size());
+    }
+
+    @Benchmark
+    public long hashPuzzles() {
+        long sum = 0;
+        for (Grid grid : puzzles) {
+            sum += canonicalizer.hash64(grid);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long hashSolutions() {
+        long sum = 0;
+        for (Grid grid : solutions) {
+            sum += canonicalizer.hash64(grid);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long canonicalizePuzzles() {
+        long sum = 0;
+        for (Grid grid : puzzles) {
+            sum += canonicalizer.canonicalize(grid).hashCode();
+        }
+        return sum;
+    }
+}
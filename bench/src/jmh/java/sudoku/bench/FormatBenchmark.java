@@ -0,0 +1,122 @@
+package sudoku.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import sudoku.Grid;
+import sudoku.PackedPuzzleReader;
+import sudoku.PackedPuzzleWriter;
+import sudoku.PuzzleReader;
+
+/**
+ * Loading a corpus of 9x9 sudokus, the bundled ones repeated, from memory
+ * in the ROWS and LINE text formats and in the packed binary format, into
+ * one reused Grid. Every benchmark returns the sum of the cells, so that
+ * nothing is optimized away.
+ *
+ * The sizes are printed at setup: a 9x9 sudoku takes 172 bytes as ROWS
+ * text, 82 as a LINE and 41 packed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FormatBenchmark {
+    // the number of times the corpus is repeated
+    private static final int COPIES = 1000;
+
+    private byte[] rows;
+    private byte[] lines;
+    private byte[] packed;
+    private Grid grid;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> names = Puzzles.names();
+        StringBuilder rowText = new StringBuilder();
+        StringBuilder lineText = new StringBuilder();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PackedPuzzleWriter out = PackedPuzzleWriter.of(bytes, 9)) {
+            for (int k = 0; k < COPIES; k++) {
+                for (String name : names) {
+                    int[][] nbrs = Puzzles.load(name);
+                    for (int[] row : nbrs) {
+                        for (int n : row) {
+                            rowText.append(n).append(' ');
+                            lineText.append(n == 0 ? '.' : (char) ('0' + n));
+                        }
+                        rowText.append('\n');
+                    }
+                    rowText.append('\n');
+                    lineText.append('\n');
+                    out.write(Grid.ofMatrix(nbrs));
+                }
+            }
+        }
+        rows = rowText.toString().getBytes(StandardCharsets.US_ASCII);
+        lines = lineText.toString().getBytes(StandardCharsets.US_ASCII);
+        packed = bytes.toByteArray();
+        grid = Grid.ofDimension(9);
+        System.out.printf("%n%d sudokus: rows %d bytes, lines %d bytes, packed %d bytes%n",
+                          COPIES * names.size(), rows.length, lines.length, packed.length);
+    }
+
+    /**
+     * Adds up the cells of the grid.
+     *
+     * @return the sum
+     */
+    private long sum() {
+        long sum = 0;
+        for (int i = 0; i < grid.cellCount(); i++) {
+            sum += grid.get(i);
+        }
+        return sum;
+    }
+
+    private long readText(byte[] text, PuzzleReader.Format format) throws IOException {
+        long sum = 0;
+        try (PuzzleReader in = PuzzleReader.of(
+                new InputStreamReader(new ByteArrayInputStream(text), StandardCharsets.ISO_8859_1),
+                format)) {
+            while (in.read(grid)) {
+                sum += sum();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long readRows() throws IOException {
+        return readText(rows, PuzzleReader.Format.ROWS);
+    }
+
+    @Benchmark
+    public long readLines() throws IOException {
+        return readText(lines, PuzzleReader.Format.LINE);
+    }
+
+    @Benchmark
+    public long readPacked() throws IOException {
+        long sum = 0;
+        try (PackedPuzzleReader in = PackedPuzzleReader.of(new ByteArrayInputStream(packed))) {
+            while (in.read(grid)) {
+                sum += sum();
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,99 @@
+package sudoku.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import sudoku.DancingLinksSolver;
+import sudoku.Grid;
+import sudoku.SudokuSolver;
+
+/**
+ * Solves hard 16x16 sudokus with ParallelSolver, on all processors, and
+ * with PropagatingSolver, the engine it runs in every task, to compare
+ * the wall-clock time of one solve.
+ *
+ * The sudokus are random, made at setup from a clue count and a seed:
+ * the ones picked take PropagatingSolver thousands of branches, where
+ * most random 16x16 sudokus take it a few dozen. ParallelSolver can win
+ * by more than its number of threads, even on one processor, as its tasks
+ * try branches far apart in the tree early on, and the first solution
+ * found ends the search.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelBenchmark {
+    @Param({"PropagatingSolver", "ParallelSolver"})
+    public String engine;
+
+    // the number of clues and the seed, as clues-seed
+    @Param({"90-8", "90-28", "94-8", "98-23", "102-5"})
+    public String puzzle;
+
+    private SudokuSolver solver;
+    private Grid grid;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = puzzle.split("-");
+        grid = Grid.ofMatrix(random(16, Integer.parseInt(parts[0]), Long.parseLong(parts[1])));
+        solver = SolveBenchmark.engineOf(engine, 16);
+    }
+
+    /**
+     * Makes a random sudoku with a solution: a solved grid, varied by a
+     * few random numbers on the diagonal, of which only clues random
+     * cells are kept.
+     *
+     * @param dim
+     *        the dimension
+     * @param clues
+     *        the number of cells to keep
+     * @param seed
+     *        the seed of the random numbers
+     * @return the matrix
+     */
+    static int[][] random(int dim, int clues, long seed) {
+        Random random = new Random(seed);
+        DancingLinksSolver full = DancingLinksSolver.ofDimension(dim);
+        for (int i = 0; i < dim; i++) {
+            int n = 1 + random.nextInt(dim);
+            if (full.isValid(i, i, n)) {
+                full.setNumber(i, i, n);
+            }
+        }
+        if (!full.solve()) {
+            throw new IllegalStateException();
+        }
+        int[][] m = full.getMatrix();
+        List<Integer> cells = new ArrayList<Integer>();
+        for (int i = 0; i < dim * dim; i++) {
+            cells.add(i);
+        }
+        Collections.shuffle(cells, random);
+        for (int k = clues; k < cells.size(); k++) {
+            int i = cells.get(k);
+            m[i / dim][i % dim] = 0;
+        }
+        return m;
+    }
+
+    @Benchmark
+    public boolean solve() {
+        solver.setGrid(grid);
+        return solver.solve();
+    }
+}
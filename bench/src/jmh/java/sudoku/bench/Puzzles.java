@@ -0,0 +1,80 @@
+package sudoku.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Access to the sudokus in app/src/test/resources/sudokus.
+ */
+final class Puzzles {
+
+    private Puzzles() {}
+
+    /**
+     * Gets the names of all bundled sudokus, without the .txt suffix.
+     *
+     * @return the names
+     */
+    static List<String> names() {
+        List<String> names = new ArrayList<String>();
+        for (int i = 1; i <= 15; i++) {
+            for (char v = 'a'; v <= 'c'; v++) {
+                names.add(String.format("s%02d%c", i, v));
+            }
+        }
+        names.add("s16");
+        return names;
+    }
+
+    /**
+     * Loads the bundled sudoku with the given name.
+     *
+     * @param name
+     *        the name, for example "s01a"
+     * @return the matrix
+     */
+    static int[][] load(String name) {
+        String path = "/sudokus/" + name + ".txt";
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(Puzzles.class.getResourceAsStream(path)))) {
+            List<int[]> rows = new ArrayList<int[]>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                String[] nums = line.split(" +");
+                int[] row = new int[nums.length];
+                for (int c = 0; c < nums.length; c++) {
+                    row[c] = Integer.parseInt(nums[c]);
+                }
+                rows.add(row);
+            }
+            return rows.toArray(new int[0][]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets a solved grid of any square dimension, made by shifting the
+     * first row by a box in every row and by one more at every box border.
+     *
+     * @param dim
+     *        the dimension
+     * @return the matrix
+     */
+    static int[][] solved(int dim) {
+        int boxSize = (int) Math.sqrt(dim);
+        int[][] m = new int[dim][dim];
+        for (int r = 0; r < dim; r++) {
+            for (int c = 0; c < dim; c++) {
+                m[r][c] = (r * boxSize + r / boxSize + c) % dim + 1;
+            }
+        }
+        return m;
+    }
+}
@@ -0,0 +1,80 @@
+package sudoku.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import sudoku.SolveServer;
+
+/**
+ * Requests per second to a SolveServer on localhost, one request at a time
+ * over a kept-alive connection, each a bundled 9x9 sudoku in the LINE
+ * format, in turn.
+ *
+ * The time of a request is mostly the HTTP round trip, as the sudokus take
+ * microseconds to solve. A server that waits for the acknowledgement of
+ * the headers before it sends the body stalls for the delayed ack of the
+ * client, some 40 ms; compare with -jvmArgs
+ * -Dsun.net.httpserver.nodelay=false.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ServerBenchmark {
+    private SolveServer server;
+    private HttpClient client;
+    private HttpRequest[] requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = SolveServer.ofPort(0);
+        server.start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/solve");
+        List<String> names = Puzzles.names();
+        requests = new HttpRequest[names.size()];
+        for (int k = 0; k < requests.length; k++) {
+            StringBuilder line = new StringBuilder();
+            for (int[] row : Puzzles.load(names.get(k))) {
+                for (int n : row) {
+                    line.append(n == 0 ? '.' : (char) ('0' + n));
+                }
+            }
+            requests[k] = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString(line.toString()))
+                .build();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public int solve() throws IOException, InterruptedException {
+        HttpRequest request = requests[next];
+        next = (next + 1) % requests.length;
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(response.body());
+        }
+        return response.body().length();
+    }
+}
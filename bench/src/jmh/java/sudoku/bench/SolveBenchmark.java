@@ -0,0 +1,93 @@
+package sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import sudoku.BitmaskSolver;
+import sudoku.CellOrder;
+import sudoku.DancingLinksSolver;
+import sudoku.Grid;
+import sudoku.ParallelSolver;
+import sudoku.PropagatingSolver;
+import sudoku.Solver;
+import sudoku.SudokuSolver;
+
+/**
+ * Solves every bundled sudoku with every engine.
+ *
+ * Throughput is solves per microsecond, the sample mode gives the latency
+ * distribution of a single solve. Every operation starts from the puzzle,
+ * setting it is part of what is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SolveBenchmark {
+    @Param({"Solver", "BitmaskSolver", "BitmaskSolver-mrv", "PropagatingSolver",
+            "DancingLinksSolver", "ParallelSolver"})
+    public String engine;
+
+    @Param({"s01a", "s01b", "s01c", "s02a", "s02b", "s02c", "s03a", "s03b", "s03c",
+            "s04a", "s04b", "s04c", "s05a", "s05b", "s05c", "s06a", "s06b", "s06c",
+            "s07a", "s07b", "s07c", "s08a", "s08b", "s08c", "s09a", "s09b", "s09c",
+            "s10a", "s10b", "s10c", "s11a", "s11b", "s11c", "s12a", "s12b", "s12c",
+            "s13a", "s13b", "s13c", "s14a", "s14b", "s14c", "s15a", "s15b", "s15c",
+            "s16"})
+    public String puzzle;
+
+    private SudokuSolver solver;
+    private Grid grid;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        grid = Grid.ofMatrix(Puzzles.load(puzzle));
+        solver = engineOf(engine, grid.getDimension());
+    }
+
+    /**
+     * Creates an engine by name.
+     *
+     * @param name
+     *        the class name, with -mrv for FEWEST_CANDIDATES
+     * @param dim
+     *        the dimension
+     * @return the engine
+     */
+    static SudokuSolver engineOf(String name, int dim) {
+        switch (name) {
+        case "Solver":
+            return Solver.ofDimension(dim);
+        case "BitmaskSolver":
+            return BitmaskSolver.ofDimension(dim);
+        case "BitmaskSolver-mrv":
+            BitmaskSolver s = BitmaskSolver.ofDimension(dim);
+            s.setCellOrder(CellOrder.FEWEST_CANDIDATES);
+            return s;
+        case "PropagatingSolver":
+            PropagatingSolver p = PropagatingSolver.ofDimension(dim);
+            p.setCellOrder(CellOrder.FEWEST_CANDIDATES);
+            return p;
+        case "DancingLinksSolver":
+            return DancingLinksSolver.ofDimension(dim);
+        case "ParallelSolver":
+            return ParallelSolver.ofDimension(dim);
+        default:
+            throw new IllegalArgumentException(name);
+        }
+    }
+
+    @Benchmark
+    public boolean solve() {
+        solver.setGrid(grid);
+        return solver.solve();
+    }
+}
@@ -0,0 +1,98 @@
+package sudoku.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import sudoku.BitmaskSolver;
+import sudoku.Grid;
+import sudoku.Solver;
+import sudoku.Validator;
+
+/**
+ * The rule checks that run on every placement and every incoming puzzle,
+ * on a solved grid, that is the worst case for a check that passes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValidationBenchmark {
+    @Param({"9", "16", "36"})
+    public int dimension;
+
+    private Solver solver;
+    private BitmaskSolver bitmask;
+    private Grid grid;
+    private int[] row;
+    // the cell checked next, so that every cell gets its turn
+    private int cell;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[][] solved = Puzzles.solved(dimension);
+        solver = Solver.ofMatrix(solved);
+        bitmask = BitmaskSolver.ofMatrix(solved);
+        grid = Grid.ofMatrix(solved);
+        row = solver.getRow(0);
+    }
+
+    /**
+     * Gets the next cell to check, wrapping around.
+     *
+     * @return the cell index
+     */
+    private int nextCell() {
+        cell = cell + 1 == dimension * dimension ? 0 : cell + 1;
+        return cell;
+    }
+
+    @Benchmark
+    public boolean solverIsAllValid() {
+        return solver.isAllValid();
+    }
+
+    @Benchmark
+    public boolean bitmaskIsAllValid() {
+        return bitmask.isAllValid();
+    }
+
+    @Benchmark
+    public long validatorFindConflict() {
+        return Validator.findConflict(grid);
+    }
+
+    @Benchmark
+    public boolean solverIsValid() {
+        int i = nextCell();
+        int r = i / dimension;
+        int c = i % dimension;
+        return solver.isValid(r, c, solver.getNumber(r, c));
+    }
+
+    @Benchmark
+    public boolean bitmaskIsValid() {
+        int i = nextCell();
+        int r = i / dimension;
+        int c = i % dimension;
+        return bitmask.isValid(r, c, bitmask.getNumber(r, c));
+    }
+
+    @Benchmark
+    public int[] solverGetBox() {
+        int i = nextCell();
+        return solver.getBox(i / dimension, i % dimension);
+    }
+
+    @Benchmark
+    public boolean solverIsUniqueArray() {
+        return solver.isUniqueArray(row);
+    }
+}